@@ -3,8 +3,9 @@ package com.x00179223.librarybackend.client;
 import com.stripe.Stripe;
 import com.stripe.model.Charge;
 import com.x00179223.librarybackend.dto.ChargeResponse;
+import com.x00179223.librarybackend.exception.FineNotCoveredException;
 import com.x00179223.librarybackend.exception.ResourceNotFoundException;
-import com.x00179223.librarybackend.model.User;
+import com.x00179223.librarybackend.service.FineService;
 import com.x00179223.librarybackend.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -14,12 +15,19 @@ import java.util.Map;
 public class StripeClient {
 
     private final UserService userService;
+    private final FineService fineService;
     @Autowired
-    StripeClient(UserService userService) {
+    StripeClient(UserService userService, FineService fineService) {
         this.userService = userService;
+        this.fineService = fineService;
         Stripe.apiKey = "sk_test_51Hs4PpDNHqlXLssuIwTZg1Vv3aINzw5nqHjByuVDMDPilK2JvAVgL0I5z0pM6Brmtqu9BypbFfT8tA4bGK6aUsei006I07Vs0S";
     }
     public ChargeResponse chargeNewCard(String token, double amount, Long userId) throws Exception {
+        userService.findById(userId).orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        double balance = fineService.balance(userId);
+        if (Math.round(amount * 100) < Math.round(balance * 100)) {
+            throw new FineNotCoveredException(balance);
+        }
         Map<String, Object> chargeParams = new HashMap<String, Object>();
         chargeParams.put("amount", (int)(amount * 100));
         chargeParams.put("currency", "EUR");
@@ -27,9 +35,7 @@ public class StripeClient {
         Charge charge = Charge.create(chargeParams);
 
          if (charge.getStatus().equals("succeeded")){
-            User existingUser = userService.findById(userId).orElseThrow(() -> new ResourceNotFoundException("User not found"));
-            existingUser.setFine(0.0);
-            userService.addFine(existingUser);
+            fineService.settle(userId);
          }
         return convertToStripeResponse(charge);
     }
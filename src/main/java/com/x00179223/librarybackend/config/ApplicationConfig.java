@@ -1,5 +1,6 @@
 package com.x00179223.librarybackend.config;
 
+import com.x00179223.librarybackend.index.CatalogueIndexer;
 import com.x00179223.librarybackend.repository.BookRatingRepository;
 import com.x00179223.librarybackend.repository.BookRepository;
 import com.x00179223.librarybackend.repository.UserRepository;
@@ -49,8 +50,8 @@ public class ApplicationConfig {
     }
 
     @Bean
-    public BookRatingService bookRatingService(BookRatingRepository bookRatingRepository, BookRepository bookRepository, UserService userService) {
-        return new BookRatingServiceImpl(bookRatingRepository, bookRepository, userService);
+    public BookRatingService bookRatingService(BookRatingRepository bookRatingRepository, BookRepository bookRepository, UserService userService, CatalogueIndexer catalogueIndexer) {
+        return new BookRatingServiceImpl(bookRatingRepository, bookRepository, userService, catalogueIndexer);
     }
 
 }
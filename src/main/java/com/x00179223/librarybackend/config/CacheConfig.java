@@ -0,0 +1,15 @@
+package com.x00179223.librarybackend.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String BOOKS = "books";
+    public static final String BOOK_GENRES = "bookGenres";
+    public static final String BOOKS_BY_GENRE = "booksByGenre";
+    public static final String BOOK_SEARCHES = "bookSearches";
+    public static final String FINES = "fines";
+}
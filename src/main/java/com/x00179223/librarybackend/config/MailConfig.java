@@ -1,5 +1,6 @@
 package com.x00179223.librarybackend.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.mail.javamail.JavaMailSender;
@@ -11,19 +12,25 @@ import java.util.Properties;
 public class MailConfig {
 
     @Bean
-    public JavaMailSender javaMailSender() {
+    public JavaMailSender javaMailSender(@Value("${mail.smtp.host}") String host,
+                                         @Value("${mail.smtp.port}") int port,
+                                         @Value("${mail.smtp.username}") String username,
+                                         @Value("${mail.smtp.password}") String password,
+                                         @Value("${mail.smtp.tls:true}") boolean tls) {
         JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
-        mailSender.setHost("sandbox.smtp.mailtrap.io");
-        mailSender.setPort(2525);
-        mailSender.setUsername("fedb6db92c0160");
-        mailSender.setPassword("d9e79b0eada78c");
+        mailSender.setHost(host);
+        mailSender.setPort(port);
+        mailSender.setUsername(username);
+        mailSender.setPassword(password);
 
         Properties properties = mailSender.getJavaMailProperties();
         properties.put("mail.transport.protocol", "smtp");
         properties.put("mail.smtp.auth", "true");
-        properties.put("mail.smtp.starttls.enable", "true");
-        properties.put("mail.debug", "true");
+        properties.put("mail.smtp.starttls.enable", String.valueOf(tls));
+        properties.put("mail.smtp.connectiontimeout", "10000");
+        properties.put("mail.smtp.timeout", "10000");
+        properties.put("mail.smtp.writetimeout", "10000");
 
         return mailSender;
     }
-}
\ No newline at end of file
+}
@@ -1,13 +1,29 @@
 package com.x00179223.librarybackend.controller;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.x00179223.librarybackend.dto.BookBatchRequest;
+import com.x00179223.librarybackend.dto.BookBatchResponse;
+import com.x00179223.librarybackend.dto.BookFilter;
+import com.x00179223.librarybackend.dto.BookSummary;
+import com.x00179223.librarybackend.dto.FacetQuery;
+import com.x00179223.librarybackend.dto.FacetedSearchResponse;
+import com.x00179223.librarybackend.dto.ImportReport;
+import com.x00179223.librarybackend.dto.KeysetPage;
 import com.x00179223.librarybackend.model.Book;
+import com.x00179223.librarybackend.service.BookImportService;
 import com.x00179223.librarybackend.service.BookService;
 import com.x00179223.librarybackend.service.BookServiceImpl;
+import jakarta.persistence.EntityNotFoundException;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
 @RestController
@@ -18,28 +34,101 @@ public class BookController {
     @Autowired
     private final BookService bookService;
 
+    @Autowired
+    private BookImportService bookImportService;
+
     public BookController(BookServiceImpl bookServiceImpl) {
         this.bookService = bookServiceImpl;
     }
 
     @GetMapping
-    public Page<Book> getAllBooks(@RequestParam(defaultValue = "0") int page,
-                                  @RequestParam(defaultValue = "10") int size,
-                                  @RequestParam(defaultValue = "title") String sortField,
-                                  @RequestParam(defaultValue = "asc") String sortDirection) {
+    public Page<BookSummary> getAllBooks(@RequestParam(defaultValue = "0") int page,
+                                         @RequestParam(defaultValue = "10") int size,
+                                         @RequestParam(defaultValue = "title") String sortField,
+                                         @RequestParam(defaultValue = "asc") String sortDirection) {
         return bookService.findAll(page, size, sortField, sortDirection);
     }
 
+    @GetMapping(params = "ids")
+    public ResponseEntity<BookBatchResponse> getBooksByIds(@RequestParam List<Long> ids) {
+        try {
+            return ResponseEntity.ok(bookService.findAllById(ids));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity<BookBatchResponse> getBooksByIds(@RequestBody BookBatchRequest request) {
+        return getBooksByIds(request.getIds());
+    }
+
+    @GetMapping("/cursor")
+    public ResponseEntity<KeysetPage<BookSummary>> getBooksAfter(@RequestParam(required = false) String after,
+                                                                 @RequestParam(defaultValue = "10") int size,
+                                                                 @RequestParam(defaultValue = "title") String sortField,
+                                                                 @RequestParam(defaultValue = "asc") String sortDirection) {
+        try {
+            return ResponseEntity.ok(bookService.findAllAfter(after, size, sortField, sortDirection));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/{id}")
     public Optional<Book> getBookById(@PathVariable Long id) {
         return bookService.findById(id);
     }
 
+    @GetMapping("/trending")
+    public List<Book> getTrendingBooks(@RequestParam(defaultValue = "10") int limit) {
+        return bookService.findTrending(limit);
+    }
+
+    @GetMapping("/{id}/similar")
+    public ResponseEntity<List<Book>> getSimilarBooks(@PathVariable Long id,
+                                                      @RequestParam(defaultValue = "10") int limit) {
+        try {
+            return ResponseEntity.ok(bookService.findSimilar(id, limit));
+        } catch (EntityNotFoundException ex) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @GetMapping("/{id}/also-reserved")
+    public ResponseEntity<List<Book>> getAlsoReservedBooks(@PathVariable Long id,
+                                                           @RequestParam(defaultValue = "10") int limit) {
+        try {
+            return ResponseEntity.ok(bookService.findAlsoReserved(id, limit));
+        } catch (EntityNotFoundException ex) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @GetMapping("/isbn/{isbn}")
+    public ResponseEntity<Book> getBookByIsbn(@PathVariable String isbn) {
+        try {
+            return ResponseEntity.of(bookService.findByIsbn(isbn));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @PostMapping
     public Book addBook(@RequestBody Book book) {
         return bookService.save(book);
     }
 
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
+    public ImportReport importBooks(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                    @RequestParam(required = false) Integer batchSize,
+                                    HttpServletRequest request) throws IOException {
+        BookImportService.Format format = "x-ndjson".equals(contentType.getSubtype())
+                ? BookImportService.Format.NDJSON
+                : BookImportService.Format.CSV;
+        return bookImportService.importBooks(request.getInputStream(), format, batchSize);
+    }
+
     @PutMapping("/{id}")
     public Book updateBook(@PathVariable Long id, @RequestBody Book book) {
         return bookService.update(id, book);
@@ -51,16 +140,61 @@ public class BookController {
     }
 
     @GetMapping("/search/{query}")
-    public List<Book> searchBooks(@PathVariable String query) throws JsonProcessingException {
-        return bookService.searchByTitleOrAuthorOrGenre(query.toLowerCase());
+    public Slice<Book> searchBooks(@PathVariable String query,
+                                   @RequestParam(defaultValue = "0") int page,
+                                   @RequestParam(defaultValue = "10") int size) throws JsonProcessingException {
+        return bookService.searchByTitleOrAuthorOrGenre(query.toLowerCase(), page, size);
     }
+
+    @GetMapping("/search/{query}/suggestions")
+    public List<String> getSearchSuggestions(@PathVariable String query) {
+        return bookService.suggestCorrections(query.toLowerCase());
+    }
+
+    @GetMapping("/suggest")
+    public List<String> suggestCompletions(@RequestParam String prefix,
+                                           @RequestParam(defaultValue = "10") int limit) {
+        return bookService.suggestCompletions(prefix, limit);
+    }
+
+    @GetMapping("/browse")
+    public FacetedSearchResponse browseBooks(@RequestParam(required = false) String query,
+                                             @RequestParam(required = false) List<String> genre,
+                                             @RequestParam(required = false) Integer yearFrom,
+                                             @RequestParam(required = false) Integer yearTo,
+                                             @RequestParam(required = false) Integer minRating,
+                                             @RequestParam(required = false) Boolean available,
+                                             @RequestParam(defaultValue = "0") int page,
+                                             @RequestParam(defaultValue = "10") int size) {
+        FacetQuery facetQuery = FacetQuery.builder()
+                .query(query)
+                .genres(genre)
+                .yearFrom(yearFrom)
+                .yearTo(yearTo)
+                .minRating(minRating)
+                .available(available)
+                .build();
+        return bookService.browse(facetQuery, page, size);
+    }
+
+    @PostMapping("/filter")
+    public ResponseEntity<FacetedSearchResponse> filterBooks(@RequestBody BookFilter filter,
+                                                             @RequestParam(defaultValue = "0") int page,
+                                                             @RequestParam(defaultValue = "10") int size) {
+        try {
+            return ResponseEntity.ok(bookService.filter(filter, page, size));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/genres")
     public List<String> getGenres(){
         return bookService.findDistinctGenres();
     }
 
     @GetMapping("/genre/{genre}")
-    public Page<Book> getBooksByGenre(@PathVariable("genre") String genre,
+    public Page<BookSummary> getBooksByGenre(@PathVariable("genre") String genre,
                                         @RequestParam(defaultValue = "0") int page,
                                         @RequestParam(defaultValue = "10") int size,
                                         @RequestParam(defaultValue = "title") String sortField,
@@ -1,8 +1,10 @@
 package com.x00179223.librarybackend.controller;
 
 import com.x00179223.librarybackend.client.StripeClient;
-import com.x00179223.librarybackend.dto.ChargeResponse;
+import com.x00179223.librarybackend.dto.OutstandingFine;
+import com.x00179223.librarybackend.exception.FineNotCoveredException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 @RestController
 @CrossOrigin(origins = {"https://library-management-frontend.herokuapp.com", "http://localhost:3000"})
@@ -15,8 +17,13 @@ public class PaymentGatewayController {
     PaymentGatewayController(StripeClient stripeClient) {
         this.stripeClient = stripeClient;
     }
+    // 400 with the outstanding balance when the amount does not cover it; nothing is charged.
     @PostMapping("/charge")
-    public ChargeResponse chargeCard(@RequestHeader(value="token") String token, @RequestHeader(value="amount") Double amount, @RequestHeader(value="userId") Long userId) throws Exception {
-        return this.stripeClient.chargeNewCard(token, amount, userId);
+    public ResponseEntity<?> chargeCard(@RequestHeader(value="token") String token, @RequestHeader(value="amount") Double amount, @RequestHeader(value="userId") Long userId) throws Exception {
+        try {
+            return ResponseEntity.ok(this.stripeClient.chargeNewCard(token, amount, userId));
+        } catch (FineNotCoveredException ex) {
+            return ResponseEntity.badRequest().body(new OutstandingFine(userId, ex.getBalance(), ex.getMessage()));
+        }
     }
 }
\ No newline at end of file
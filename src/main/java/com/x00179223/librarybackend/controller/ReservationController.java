@@ -1,9 +1,14 @@
 package com.x00179223.librarybackend.controller;
 
+import com.x00179223.librarybackend.exception.BookUnavailableException;
 import com.x00179223.librarybackend.exception.ResourceNotFoundException;
 import com.x00179223.librarybackend.dto.BookIdUserIdRequest;
+import com.x00179223.librarybackend.dto.HoldPosition;
+import com.x00179223.librarybackend.dto.KeysetPage;
+import com.x00179223.librarybackend.dto.ReservationSummary;
 import com.x00179223.librarybackend.model.Reservation;
 import com.x00179223.librarybackend.service.ReservationService;
+import jakarta.persistence.EntityNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.http.HttpStatus;
@@ -24,10 +29,34 @@ public class ReservationController {
         this.reservationService = reservationService;
     }
 
+    // 202 with the queue position when no copy is left; the patron is notified once promoted.
     @PostMapping
-    public ResponseEntity<Reservation> reserveBook(@RequestBody BookIdUserIdRequest request) {
-        Reservation reservation = reservationService.reserveBook(request.getBookId(), request.getUserId());
-        return ResponseEntity.ok(reservation);
+    public ResponseEntity<?> reserveBook(@RequestBody BookIdUserIdRequest request) {
+        try {
+            Reservation reservation = reservationService.reserveBook(request.getBookId(), request.getUserId());
+            return ResponseEntity.ok(reservation);
+        } catch (BookUnavailableException ex) {
+            return ResponseEntity.accepted().body(ex.getHold());
+        }
+    }
+
+    @GetMapping("/holds/{id}")
+    public ResponseEntity<HoldPosition> findHoldPosition(@PathVariable Long id) {
+        try {
+            return ResponseEntity.ok(reservationService.findHoldPosition(id));
+        } catch (EntityNotFoundException ex) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @DeleteMapping("/holds/{id}")
+    public ResponseEntity<Void> cancelHold(@PathVariable Long id) {
+        try {
+            reservationService.cancelHold(id);
+            return ResponseEntity.noContent().build();
+        } catch (EntityNotFoundException ex) {
+            return ResponseEntity.notFound().build();
+        }
     }
 
     @PutMapping("/checkout/{id}")
@@ -49,14 +78,26 @@ public class ReservationController {
     }
 
     @GetMapping
-    public ResponseEntity<Page<Reservation>> findAllReservations(@RequestParam(defaultValue = "0") int page,
-                                                                 @RequestParam(defaultValue = "10") int size,
-                                                                 @RequestParam(defaultValue = "id") String sortField,
-                                                                 @RequestParam(defaultValue = "asc") String sortDirection) {
-        Page<Reservation> reservations = reservationService.findAllReservations(page, size, sortField, sortDirection);
+    public ResponseEntity<Page<ReservationSummary>> findAllReservations(@RequestParam(defaultValue = "0") int page,
+                                                                        @RequestParam(defaultValue = "10") int size,
+                                                                        @RequestParam(defaultValue = "id") String sortField,
+                                                                        @RequestParam(defaultValue = "asc") String sortDirection) {
+        Page<ReservationSummary> reservations = reservationService.findAllReservations(page, size, sortField, sortDirection);
         return ResponseEntity.ok(reservations);
     }
 
+    @GetMapping("/cursor")
+    public ResponseEntity<KeysetPage<ReservationSummary>> findAllReservationsAfter(@RequestParam(required = false) String after,
+                                                                                   @RequestParam(defaultValue = "10") int size,
+                                                                                   @RequestParam(defaultValue = "id") String sortField,
+                                                                                   @RequestParam(defaultValue = "asc") String sortDirection) {
+        try {
+            return ResponseEntity.ok(reservationService.findAllReservationsAfter(after, size, sortField, sortDirection));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<Reservation> findReservationById(@PathVariable Long id) {
         try {
@@ -78,8 +119,8 @@ public class ReservationController {
     }
 
     @GetMapping("/userId/{id}")
-    public ResponseEntity<List<Reservation>> getReservationsByUserId(@PathVariable Long id){
-        List<Reservation> reservations = reservationService.findReservationsByUserId(id);
+    public ResponseEntity<List<ReservationSummary>> getReservationsByUserId(@PathVariable Long id){
+        List<ReservationSummary> reservations = reservationService.findReservationsByUserId(id);
         return ResponseEntity.ok(reservations);
     }
 
@@ -1,17 +1,23 @@
 package com.x00179223.librarybackend.controller;
 
-import com.x00179223.librarybackend.model.Book;
 import com.x00179223.librarybackend.repository.BookRepository;
 import com.x00179223.librarybackend.repository.ReservationRepository;
+import com.x00179223.librarybackend.service.CatalogueExportService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping(value = "api/v1/stats")
@@ -24,6 +30,9 @@ public class StatisticsController {
     @Autowired
     private ReservationRepository reservationRepository;
 
+    @Autowired
+    private CatalogueExportService catalogueExportService;
+
     @GetMapping("/genre-count")
     public ResponseEntity<List<Map<String, Object>>> getBooksByGenre() {
         List<Map<String, Object>> booksCountByGenre = bookRepository.countBooksByGenre();
@@ -43,7 +52,35 @@ public class StatisticsController {
     }
 
     @GetMapping("/books-inventory")
-    public List<Book> getBooksInventory() {
-        return bookRepository.findAll();
+    public ResponseEntity<StreamingResponseBody> getBooksInventory(@RequestParam(defaultValue = "json") String format,
+                                                                   @RequestParam(required = false) List<String> columns,
+                                                                   @RequestParam(defaultValue = "false") boolean gzip) {
+        CatalogueExportService.Format exportFormat;
+        List<String> selectedColumns;
+        try {
+            exportFormat = CatalogueExportService.Format.valueOf(format.toUpperCase(Locale.ROOT));
+            selectedColumns = catalogueExportService.resolveColumns(columns);
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().build();
+        }
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                GZIPOutputStream compressed = new GZIPOutputStream(out, 8192);
+                catalogueExportService.exportBooks(exportFormat, selectedColumns, compressed);
+                compressed.finish();
+            } else {
+                catalogueExportService.exportBooks(exportFormat, selectedColumns, out);
+            }
+        };
+        MediaType contentType = switch (exportFormat) {
+            case CSV -> new MediaType("text", "csv");
+            case NDJSON -> new MediaType("application", "x-ndjson");
+            default -> MediaType.APPLICATION_JSON;
+        };
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(contentType);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
     }
 }
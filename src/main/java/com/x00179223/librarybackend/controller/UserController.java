@@ -2,15 +2,22 @@ package com.x00179223.librarybackend.controller;
 
 import com.x00179223.librarybackend.model.Book;
 import com.x00179223.librarybackend.dto.BookIdUserIdRequest;
+import com.x00179223.librarybackend.dto.KeysetPage;
 import com.x00179223.librarybackend.model.User;
+import com.x00179223.librarybackend.dto.UserSummary;
 import com.x00179223.librarybackend.dto.UserUpdateRequest;
+import com.x00179223.librarybackend.service.FineService;
+import com.x00179223.librarybackend.service.RecommendationService;
 import com.x00179223.librarybackend.service.ReservationService;
 import com.x00179223.librarybackend.service.UserService;
+import jakarta.persistence.EntityNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
@@ -23,14 +30,44 @@ public class UserController {
     private UserService userService;
     @Autowired
     private ReservationService reservationService;
+    @Autowired
+    private RecommendationService recommendationService;
+    @Autowired
+    private FineService fineService;
 
     @GetMapping
-    public Page<User> findAll(@RequestParam(defaultValue = "0") int page,
-                              @RequestParam(defaultValue = "10") int size,
-                              @RequestParam(defaultValue = "id") String sortField,
-                              @RequestParam(defaultValue = "asc") String sortDirection) {
+    public Page<UserSummary> findAll(@RequestParam(defaultValue = "0") int page,
+                                     @RequestParam(defaultValue = "10") int size,
+                                     @RequestParam(defaultValue = "id") String sortField,
+                                     @RequestParam(defaultValue = "asc") String sortDirection) {
+
+        Page<UserSummary> users = userService.findAll(page, size, sortField, sortDirection);
+        withBalances(users.getContent());
+        return users;
+    }
 
-        return userService.findAll(page, size, sortField, sortDirection);
+    @GetMapping("/cursor")
+    public ResponseEntity<KeysetPage<UserSummary>> findAllAfter(@RequestParam(required = false) String after,
+                                                                @RequestParam(defaultValue = "10") int size,
+                                                                @RequestParam(defaultValue = "id") String sortField,
+                                                                @RequestParam(defaultValue = "asc") String sortDirection) {
+        try {
+            KeysetPage<UserSummary> users = userService.findAllAfter(after, size, sortField, sortDirection);
+            withBalances(users.getContent());
+            return ResponseEntity.ok(users);
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // The stored User.fine the summaries carry is only the balance when fines are stored; otherwise
+    // the page's balances are computed from loan dates in one lookup.
+    private void withBalances(List<UserSummary> users) {
+        if (!fineService.computesCharges() || users.isEmpty()) {
+            return;
+        }
+        Map<Long, Double> balances = fineService.balances(users.stream().map(UserSummary::getId).toList());
+        users.forEach(user -> user.setFine(balances.getOrDefault(user.getId(), user.getFine())));
     }
 
     @PutMapping("/update/{id}")
@@ -48,6 +85,16 @@ public class UserController {
         return userService.findById(id);
     }
 
+    @GetMapping("/{id}/recommendations")
+    public ResponseEntity<List<Book>> getRecommendations(@PathVariable Long id,
+                                                         @RequestParam(defaultValue = "10") int limit) {
+        try {
+            return ResponseEntity.ok(recommendationService.recommendFor(id, limit));
+        } catch (EntityNotFoundException ex) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
     @DeleteMapping("/{id}")
     public void deleteUser(@PathVariable Long id){
         reservationService.cancelReservationsForUser(id);
@@ -0,0 +1,18 @@
+package com.x00179223.librarybackend.dto;
+
+import com.x00179223.librarybackend.model.Book;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookBatchResponse {
+    private List<Book> books;
+    private List<Long> missing;
+}
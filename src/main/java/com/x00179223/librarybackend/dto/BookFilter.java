@@ -0,0 +1,26 @@
+package com.x00179223.librarybackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookFilter {
+
+    public enum Type {
+        AND, OR, NOT, GENRE, YEAR, RATING, AVAILABLE
+    }
+
+    private Type type;
+    private List<BookFilter> filters;
+    private String genre;
+    private Integer yearFrom;
+    private Integer yearTo;
+    private Integer minRating;
+}
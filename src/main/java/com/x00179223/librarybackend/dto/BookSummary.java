@@ -0,0 +1,27 @@
+package com.x00179223.librarybackend.dto;
+
+import com.x00179223.librarybackend.model.Book;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookSummary {
+    private Long id;
+    private String title;
+    private String author;
+    private String isbn;
+    private String genre;
+    private Integer publicationYear;
+    private Integer quantityAvailable;
+    private Double rating;
+
+    public static BookSummary from(Book book) {
+        return new BookSummary(book.getId(), book.getTitle(), book.getAuthor(), book.getISBN(), book.getGenre(),
+                book.getPublicationYear(), book.getQuantityAvailable(), book.getRating());
+    }
+}
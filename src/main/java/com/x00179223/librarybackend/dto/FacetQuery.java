@@ -0,0 +1,21 @@
+package com.x00179223.librarybackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FacetQuery {
+    private String query;
+    private List<String> genres;
+    private Integer yearFrom;
+    private Integer yearTo;
+    private Integer minRating;
+    private Boolean available;
+}
@@ -0,0 +1,25 @@
+package com.x00179223.librarybackend.dto;
+
+import com.x00179223.librarybackend.model.Book;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FacetedSearchResponse {
+    private List<Book> books;
+    private int page;
+    private int size;
+    private long totalElements;
+    private Map<String, Long> genres;
+    private Map<String, Long> publicationYears;
+    private Map<String, Long> ratings;
+    private Map<String, Long> availability;
+}
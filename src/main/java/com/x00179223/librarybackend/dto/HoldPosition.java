@@ -0,0 +1,25 @@
+package com.x00179223.librarybackend.dto;
+
+import com.x00179223.librarybackend.model.Hold;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HoldPosition {
+    private Long holdId;
+    private Long bookId;
+    private Long userId;
+    private LocalDateTime placedAt;
+    private long position;
+
+    public static HoldPosition of(Hold hold, long position) {
+        return new HoldPosition(hold.getId(), hold.getBook().getId(), hold.getUser().getId(), hold.getPlacedAt(), position);
+    }
+}
@@ -0,0 +1,20 @@
+package com.x00179223.librarybackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImportReport {
+    private long rowsRead;
+    private long imported;
+    private long rejected;
+    private List<ImportRowError> errors;
+    private long elapsedMillis;
+}
@@ -0,0 +1,24 @@
+package com.x00179223.librarybackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.function.Function;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class KeysetPage<T> {
+    private List<T> content;
+    private int size;
+    private boolean hasNext;
+    private String next;
+
+    public <R> KeysetPage<R> map(Function<? super T, ? extends R> mapper) {
+        return new KeysetPage<>(content.stream().<R>map(mapper).toList(), size, hasNext, next);
+    }
+}
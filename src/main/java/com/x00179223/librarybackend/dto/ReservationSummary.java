@@ -0,0 +1,59 @@
+package com.x00179223.librarybackend.dto;
+
+import com.x00179223.librarybackend.model.Reservation;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ReservationSummary {
+    private Long id;
+    private BookRef book;
+    private UserRef user;
+    private LocalDateTime reservedAt;
+    private LocalDateTime pickUpBy;
+    private LocalDateTime checkedOutAt;
+    private LocalDateTime dueDate;
+    private Boolean returned;
+
+    // Flat constructor for JPQL "SELECT new" projections, which cannot build nested objects.
+    public ReservationSummary(Long id, Long bookId, String bookTitle, String bookAuthor, Long userId, String firstname,
+                              String lastname, String email, LocalDateTime reservedAt, LocalDateTime pickUpBy,
+                              LocalDateTime checkedOutAt, LocalDateTime dueDate, Boolean returned) {
+        this(id, new BookRef(bookId, bookTitle, bookAuthor), new UserRef(userId, firstname, lastname, email),
+                reservedAt, pickUpBy, checkedOutAt, dueDate, returned);
+    }
+
+    public static ReservationSummary from(Reservation reservation) {
+        return new ReservationSummary(reservation.getId(),
+                reservation.getBook().getId(), reservation.getBook().getTitle(), reservation.getBook().getAuthor(),
+                reservation.getUser().getId(), reservation.getUser().getFirstname(), reservation.getUser().getLastname(),
+                reservation.getUser().getEmail(), reservation.getReservedAt(), reservation.getPickUpBy(),
+                reservation.getCheckedOutAt(), reservation.getDueDate(), reservation.isReturned());
+    }
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class BookRef {
+        private Long id;
+        private String title;
+        private String author;
+    }
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class UserRef {
+        private Long id;
+        private String firstname;
+        private String lastname;
+        private String email;
+    }
+}
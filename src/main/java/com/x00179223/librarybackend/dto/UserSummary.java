@@ -0,0 +1,25 @@
+package com.x00179223.librarybackend.dto;
+
+import com.x00179223.librarybackend.model.Role;
+import com.x00179223.librarybackend.model.User;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserSummary {
+    private Long id;
+    private String firstname;
+    private String lastname;
+    private String email;
+    private Role role;
+    private Double fine;
+
+    public static UserSummary from(User user) {
+        return new UserSummary(user.getId(), user.getFirstname(), user.getLastname(), user.getEmail(), user.getRole(), user.getFine());
+    }
+}
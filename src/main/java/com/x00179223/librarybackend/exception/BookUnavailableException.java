@@ -0,0 +1,21 @@
+package com.x00179223.librarybackend.exception;
+
+import com.x00179223.librarybackend.dto.HoldPosition;
+
+/**
+ * Thrown by reserveBook when no copy is left. The patron has been queued instead, and the
+ * hold tells them where they are in the queue.
+ */
+public class BookUnavailableException extends IllegalArgumentException {
+
+    private final HoldPosition hold;
+
+    public BookUnavailableException(HoldPosition hold) {
+        super("Book is not available for reservation");
+        this.hold = hold;
+    }
+
+    public HoldPosition getHold() {
+        return hold;
+    }
+}
@@ -0,0 +1,19 @@
+package com.x00179223.librarybackend.exception;
+
+/**
+ * Thrown when a payment is smaller than the patron's outstanding fine. Nothing has been
+ * charged; the balance tells the client how much to pay.
+ */
+public class FineNotCoveredException extends IllegalArgumentException {
+
+    private final double balance;
+
+    public FineNotCoveredException(double balance) {
+        super("Amount does not cover the outstanding fine");
+        this.balance = balance;
+    }
+
+    public double getBalance() {
+        return balance;
+    }
+}
@@ -0,0 +1,279 @@
+package com.x00179223.librarybackend.index;
+
+import com.x00179223.librarybackend.model.Book;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Character trie over book titles and authors. Every node caches its top completions
+ * by popularity, so a lookup is a walk down the prefix plus a copy of that cached list.
+ * Keys are cut at {@link #MAX_KEY_DEPTH} characters; longer prefixes filter the phrases
+ * stored at the deepest node.
+ */
+@Component
+public class AutocompleteIndex implements CatalogueIndex {
+
+    public static final int MAX_SUGGESTIONS = 10;
+    private static final int MAX_KEY_DEPTH = 32;
+
+    private final Node root = new Node();
+    private final Map<String, Phrase> phrases = new HashMap<>();
+    private final Map<Long, List<Phrase>> documentPhrases = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @Override
+    public void rebuild(Collection<Book> books) {
+        lock.writeLock().lock();
+        try {
+            root.clear();
+            phrases.clear();
+            documentPhrases.clear();
+            for (Book book : books) {
+                addDocument(book, false);
+            }
+            rebuildTop(root);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void index(Book book) {
+        if (book == null || book.getId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeDocument(book.getId());
+            addDocument(book, true);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Long bookId) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(bookId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<String> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        int size = Math.min(Math.max(limit, 0), MAX_SUGGESTIONS);
+        if (key.isEmpty() || size == 0) {
+            return new ArrayList<>();
+        }
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            int depth = Math.min(key.length(), MAX_KEY_DEPTH);
+            for (int i = 0; i < depth && node != null; i++) {
+                node = node.child(key.charAt(i));
+            }
+            if (node == null) {
+                return new ArrayList<>();
+            }
+            if (key.length() <= MAX_KEY_DEPTH) {
+                return node.top.stream().limit(size).map(phrase -> phrase.display).toList();
+            }
+            return node.terminals.stream()
+                    .filter(phrase -> phrase.key.startsWith(key))
+                    .sorted(BY_WEIGHT)
+                    .limit(size)
+                    .map(phrase -> phrase.display)
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void addDocument(Book book, boolean refresh) {
+        long weight = 1L + Math.max(book.getRatingCount(), 0);
+        List<Phrase> added = new ArrayList<>(2);
+        for (String text : new String[]{book.getTitle(), book.getAuthor()}) {
+            String key = normalize(text);
+            if (key.isEmpty()) {
+                continue;
+            }
+            Phrase phrase = phrases.get(key);
+            if (phrase == null) {
+                phrase = new Phrase(key, text.trim());
+                phrases.put(key, phrase);
+                terminalNode(key, true).terminals.add(phrase);
+            }
+            if (phrase.contributions.put(book.getId(), weight) == null) {
+                added.add(phrase);
+            }
+            phrase.weight = phrase.contributions.values().stream().mapToLong(Long::longValue).sum();
+            if (refresh) {
+                refreshPath(key);
+            }
+        }
+        documentPhrases.put(book.getId(), added);
+    }
+
+    private void removeDocument(Long bookId) {
+        List<Phrase> existing = documentPhrases.remove(bookId);
+        if (existing == null) {
+            return;
+        }
+        for (Phrase phrase : existing) {
+            phrase.contributions.remove(bookId);
+            phrase.weight = phrase.contributions.values().stream().mapToLong(Long::longValue).sum();
+            if (phrase.contributions.isEmpty()) {
+                phrases.remove(phrase.key);
+                terminalNode(phrase.key, false).terminals.remove(phrase);
+            }
+            refreshPath(phrase.key);
+        }
+    }
+
+    private Node terminalNode(String key, boolean create) {
+        Node node = root;
+        int depth = Math.min(key.length(), MAX_KEY_DEPTH);
+        for (int i = 0; i < depth; i++) {
+            Node child = node.child(key.charAt(i));
+            if (child == null) {
+                if (!create) {
+                    return node;
+                }
+                child = node.addChild(key.charAt(i));
+            }
+            node = child;
+        }
+        return node;
+    }
+
+    // Recomputes the cached completions from the phrase's node back up to the root.
+    private void refreshPath(String key) {
+        int depth = Math.min(key.length(), MAX_KEY_DEPTH);
+        Node[] path = new Node[depth + 1];
+        path[0] = root;
+        for (int i = 0; i < depth; i++) {
+            path[i + 1] = path[i].child(key.charAt(i));
+            if (path[i + 1] == null) {
+                depth = i;
+                break;
+            }
+        }
+        for (int i = depth; i >= 0; i--) {
+            Node node = path[i];
+            node.top = mergeTop(node);
+            if (i > 0 && node.isEmpty()) {
+                path[i - 1].removeChild(key.charAt(i - 1));
+            }
+        }
+    }
+
+    private void rebuildTop(Node node) {
+        for (Node child : node.children) {
+            rebuildTop(child);
+        }
+        node.top = mergeTop(node);
+    }
+
+    private static List<Phrase> mergeTop(Node node) {
+        List<Phrase> candidates = new ArrayList<>(node.terminals);
+        for (Node child : node.children) {
+            candidates.addAll(child.top);
+        }
+        candidates.sort(BY_WEIGHT);
+        List<Phrase> top = new ArrayList<>(Math.min(MAX_SUGGESTIONS, candidates.size()));
+        for (Phrase phrase : candidates) {
+            if (top.size() == MAX_SUGGESTIONS) {
+                break;
+            }
+            if (!top.contains(phrase)) {
+                top.add(phrase);
+            }
+        }
+        return List.copyOf(top);
+    }
+
+    private static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return String.join(" ", TextTokenizer.tokenize(text));
+    }
+
+    private static final Comparator<Phrase> BY_WEIGHT = Comparator.<Phrase>comparingLong(phrase -> phrase.weight)
+            .reversed()
+            .thenComparing(phrase -> phrase.key);
+
+    private static final class Phrase {
+        private final String key;
+        private final String display;
+        private final Map<Long, Long> contributions = new HashMap<>(2);
+        private long weight;
+
+        private Phrase(String key, String display) {
+            this.key = key;
+            this.display = display;
+        }
+    }
+
+    private static final class Node {
+        private static final char[] NO_KEYS = new char[0];
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        private char[] keys = NO_KEYS;
+        private Node[] children = NO_CHILDREN;
+        private final List<Phrase> terminals = new ArrayList<>(1);
+        private List<Phrase> top = List.of();
+
+        private Node child(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            return index >= 0 ? children[index] : null;
+        }
+
+        private Node addChild(char c) {
+            int insertAt = -(Arrays.binarySearch(keys, c) + 1);
+            char[] newKeys = new char[keys.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, insertAt);
+            System.arraycopy(children, 0, newChildren, 0, insertAt);
+            newKeys[insertAt] = c;
+            Node child = new Node();
+            newChildren[insertAt] = child;
+            System.arraycopy(keys, insertAt, newKeys, insertAt + 1, keys.length - insertAt);
+            System.arraycopy(children, insertAt, newChildren, insertAt + 1, children.length - insertAt);
+            keys = newKeys;
+            children = newChildren;
+            return child;
+        }
+
+        private void removeChild(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            if (index < 0) {
+                return;
+            }
+            char[] newKeys = new char[keys.length - 1];
+            Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(keys, 0, newKeys, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            System.arraycopy(keys, index + 1, newKeys, index, keys.length - index - 1);
+            System.arraycopy(children, index + 1, newChildren, index, children.length - index - 1);
+            keys = newKeys;
+            children = newChildren;
+        }
+
+        private boolean isEmpty() {
+            return terminals.isEmpty() && children.length == 0;
+        }
+
+        private void clear() {
+            keys = NO_KEYS;
+            children = NO_CHILDREN;
+            terminals.clear();
+            top = List.of();
+        }
+    }
+}
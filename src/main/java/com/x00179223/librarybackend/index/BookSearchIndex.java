@@ -0,0 +1,270 @@
+package com.x00179223.librarybackend.index;
+
+import com.x00179223.librarybackend.model.Book;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over book title, author and genre, ranked with BM25.
+ * Every query token is matched as a prefix so partially typed words still hit,
+ * with exact term matches scoring above prefix expansions. The index keeps its own copy of
+ * each book and hands out copies, so callers never share an instance with it or each other.
+ */
+@Component
+public class BookSearchIndex implements CatalogueIndex {
+
+    private static final float TITLE_WEIGHT = 3.0f;
+    private static final float AUTHOR_WEIGHT = 2.0f;
+    private static final float GENRE_WEIGHT = 1.0f;
+    private static final float PREFIX_MATCH_BOOST = 0.5f;
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private static final Comparator<Map.Entry<Long, Double>> RANKING = Map.Entry.<Long, Double>comparingByValue().reversed()
+            .thenComparing(Map.Entry.comparingByKey());
+
+    private final Map<Long, Book> documents = new HashMap<>();
+    private final Map<Long, Float> documentLengths = new HashMap<>();
+    private final Map<Long, String[]> documentTerms = new HashMap<>();
+    private final NavigableMap<String, Map<Long, Float>> postings = new TreeMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private double totalLength;
+    private volatile boolean ready;
+
+    @Override
+    public void rebuild(Collection<Book> books) {
+        lock.writeLock().lock();
+        try {
+            documents.clear();
+            documentLengths.clear();
+            documentTerms.clear();
+            postings.clear();
+            totalLength = 0;
+            for (Book book : books) {
+                add(book);
+            }
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void index(Book book) {
+        if (book == null || book.getId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeDocument(book.getId());
+            add(book);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Stock is not part of the ranking, so only the stored document is refreshed.
+    @Override
+    public void stockChanged(Long bookId, int delta) {
+        lock.writeLock().lock();
+        try {
+            Book book = documents.get(bookId);
+            if (book != null) {
+                book.setQuantityAvailable(book.getQuantityAvailable() + delta);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Long bookId) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(bookId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean contains(Long bookId) {
+        lock.readLock().lock();
+        try {
+            return documents.containsKey(bookId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Optional<Book> document(Long bookId) {
+        lock.readLock().lock();
+        try {
+            return Optional.ofNullable(documents.get(bookId)).map(BookSearchIndex::copy);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} books ranked from position {@code offset}. Only the top
+     * {@code offset + limit} hits are kept while ranking, so shallow pages stay cheap on broad queries.
+     */
+    public List<Book> search(String query, int offset, int limit) {
+        List<String> tokens = TextTokenizer.tokenize(query);
+        if (tokens.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+        lock.readLock().lock();
+        try {
+            Map<Long, Double> scores = score(tokens);
+            if (scores.isEmpty()) {
+                return new ArrayList<>();
+            }
+            int window = offset + limit;
+            PriorityQueue<Map.Entry<Long, Double>> top = new PriorityQueue<>(Math.min(window, scores.size()) + 1, RANKING.reversed());
+            for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+                top.offer(entry);
+                if (top.size() > window) {
+                    top.poll();
+                }
+            }
+            List<Map.Entry<Long, Double>> ranked = new ArrayList<>(top);
+            ranked.sort(RANKING);
+            List<Book> results = new ArrayList<>(Math.max(ranked.size() - offset, 0));
+            for (int i = offset; i < ranked.size(); i++) {
+                results.add(copy(documents.get(ranked.get(i).getKey())));
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public RoaringBitmap matches(String query) {
+        RoaringBitmap matches = new RoaringBitmap();
+        List<String> tokens = TextTokenizer.tokenize(query);
+        if (tokens.isEmpty()) {
+            return matches;
+        }
+        lock.readLock().lock();
+        try {
+            for (Long id : score(tokens).keySet()) {
+                matches.add(Math.toIntExact(id));
+            }
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Map<Long, Double> score(List<String> tokens) {
+        Map<Long, Double> scores = null;
+        for (String token : new LinkedHashSet<>(tokens)) {
+            Map<Long, Double> tokenScores = scoreToken(token);
+            if (scores == null) {
+                scores = tokenScores;
+            } else {
+                scores.keySet().retainAll(tokenScores.keySet());
+                scores.replaceAll((id, score) -> score + tokenScores.get(id));
+            }
+            if (scores.isEmpty()) {
+                break;
+            }
+        }
+        return scores;
+    }
+
+    private Map<Long, Double> scoreToken(String token) {
+        Map<Long, Double> scores = new HashMap<>();
+        int documentCount = documents.size();
+        double averageLength = documentCount == 0 ? 1.0 : totalLength / documentCount;
+        for (Map.Entry<String, Map<Long, Float>> term : postings.subMap(token, true, token + Character.MAX_VALUE, true).entrySet()) {
+            Map<Long, Float> termPostings = term.getValue();
+            double documentFrequency = termPostings.size();
+            double idf = Math.log(1 + (documentCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+            double boost = term.getKey().equals(token) ? 1.0 : PREFIX_MATCH_BOOST;
+            for (Map.Entry<Long, Float> posting : termPostings.entrySet()) {
+                double tf = posting.getValue();
+                double norm = K1 * (1 - B + B * documentLengths.get(posting.getKey()) / averageLength);
+                double score = boost * idf * (tf * (K1 + 1)) / (tf + norm);
+                scores.merge(posting.getKey(), score, Math::max);
+            }
+        }
+        return scores;
+    }
+
+    private void add(Book book) {
+        Map<String, Float> frequencies = termFrequencies(book);
+        float length = 0;
+        for (Map.Entry<String, Float> entry : frequencies.entrySet()) {
+            postings.computeIfAbsent(entry.getKey(), term -> new HashMap<>()).put(book.getId(), entry.getValue());
+            length += entry.getValue();
+        }
+        documents.put(book.getId(), copy(book));
+        documentLengths.put(book.getId(), length);
+        documentTerms.put(book.getId(), frequencies.keySet().toArray(new String[0]));
+        totalLength += length;
+    }
+
+    private void removeDocument(Long bookId) {
+        if (documents.remove(bookId) == null) {
+            return;
+        }
+        for (String term : documentTerms.remove(bookId)) {
+            Map<Long, Float> termPostings = postings.get(term);
+            if (termPostings != null) {
+                termPostings.remove(bookId);
+                if (termPostings.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+        totalLength -= documentLengths.remove(bookId);
+    }
+
+    static Book copy(Book book) {
+        return Book.builder()
+                .id(book.getId())
+                .title(book.getTitle())
+                .author(book.getAuthor())
+                .ISBN(book.getISBN())
+                .genre(book.getGenre())
+                .publicationYear(book.getPublicationYear())
+                .quantityAvailable(book.getQuantityAvailable())
+                .rating(book.getRating())
+                .ratingCount(book.getRatingCount())
+                .ratingTotal(book.getRatingTotal())
+                .build();
+    }
+
+    private static Map<String, Float> termFrequencies(Book book) {
+        Map<String, Float> frequencies = new HashMap<>();
+        addField(frequencies, book.getTitle(), TITLE_WEIGHT);
+        addField(frequencies, book.getAuthor(), AUTHOR_WEIGHT);
+        addField(frequencies, book.getGenre(), GENRE_WEIGHT);
+        return frequencies;
+    }
+
+    private static void addField(Map<String, Float> frequencies, String text, float weight) {
+        for (String token : TextTokenizer.tokenize(text)) {
+            frequencies.merge(token, weight, Float::sum);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.x00179223.librarybackend.index;
+
+import com.x00179223.librarybackend.model.Book;
+
+import java.util.Collection;
+
+public interface CatalogueIndex {
+    void rebuild(Collection<Book> books);
+    void index(Book book);
+
+    default void indexAll(Collection<Book> books) {
+        for (Book book : books) {
+            index(book);
+        }
+    }
+
+    void remove(Long bookId);
+
+    /**
+     * Only the stock level changed, by {@code delta} copies. Deltas commute, so they may arrive
+     * in any order; indexes that do not track availability can ignore them.
+     */
+    default void stockChanged(Long bookId, int delta) {
+    }
+}
@@ -0,0 +1,91 @@
+package com.x00179223.librarybackend.index;
+
+import com.x00179223.librarybackend.model.Book;
+import com.x00179223.librarybackend.repository.BookRepository;
+import com.x00179223.librarybackend.repository.InventoryLeaseRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+
+@Component
+public class CatalogueIndexer {
+
+    private final BookRepository bookRepository;
+    private final InventoryLeaseRepository leaseRepository;
+    private final List<CatalogueIndex> indexes;
+
+    @Autowired
+    public CatalogueIndexer(BookRepository bookRepository, InventoryLeaseRepository leaseRepository, List<CatalogueIndex> indexes) {
+        this.bookRepository = bookRepository;
+        this.leaseRepository = leaseRepository;
+        this.indexes = indexes;
+    }
+
+    // Copies escrowed by any node are still on the shelf, so they are added to the stock read from
+    // the books row; after that the indexes only ever see deltas.
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<Book> books = bookRepository.findAll();
+        for (CatalogueIndex index : indexes) {
+            index.rebuild(books);
+        }
+        for (Object[] escrowed : leaseRepository.sumCopiesByBookId()) {
+            pushStock((Long) escrowed[0], ((Number) escrowed[1]).intValue());
+        }
+    }
+
+    public void indexed(Book book) {
+        for (CatalogueIndex index : indexes) {
+            index.index(book);
+        }
+        if (book.getId() != null) {
+            int escrowed = (int) leaseRepository.sumCopies(book.getId());
+            if (escrowed > 0) {
+                pushStock(book.getId(), escrowed);
+            }
+        }
+    }
+
+    public void indexedAll(Collection<Book> books) {
+        for (CatalogueIndex index : indexes) {
+            index.indexAll(books);
+        }
+    }
+
+    /**
+     * Pushes a change in stock once the current transaction commits, so nothing is indexed while
+     * the book's row is still locked and a rolled-back change is never seen. Only the delta is
+     * pushed: transactions can commit in a different order from the one they read the row in,
+     * and deltas give the same total whichever order their afterCommit callbacks run in.
+     */
+    public void stockChanged(Long bookId, int delta) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            pushStock(bookId, delta);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                pushStock(bookId, delta);
+            }
+        });
+    }
+
+    private void pushStock(Long bookId, int delta) {
+        for (CatalogueIndex index : indexes) {
+            index.stockChanged(bookId, delta);
+        }
+    }
+
+    public void removed(Long bookId) {
+        for (CatalogueIndex index : indexes) {
+            index.remove(bookId);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.x00179223.librarybackend.index;
+
+import com.x00179223.librarybackend.repository.ReservationHistoryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * "Patrons who reserved this also reserved" counts. Every book keeps a fixed-size
+ * Space-Saving summary of the books reserved by the same patrons, so memory stays
+ * bounded at {@link #SUMMARY_CAPACITY} counters per book no matter how many distinct
+ * pairs the reservation history contains, while the most frequent partners survive.
+ */
+@Component
+public class CoReservationIndex {
+
+    public static final int MAX_NEIGHBOURS = 20;
+    private static final Logger log = LoggerFactory.getLogger(CoReservationIndex.class);
+    private static final int SUMMARY_CAPACITY = MAX_NEIGHBOURS * 4;
+    public static final int MAX_BOOKS_PER_PATRON = 200;
+
+    private final ReservationHistoryRepository reservationHistoryRepository;
+    private Map<Long, Counters> counters = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @Autowired
+    public CoReservationIndex(ReservationHistoryRepository reservationHistoryRepository) {
+        this.reservationHistoryRepository = reservationHistoryRepository;
+    }
+
+    @Scheduled(initialDelayString = "${library.co-reservations.initial-delay-ms:30000}",
+            fixedDelayString = "${library.co-reservations.refresh-interval-ms:21600000}")
+    public void rebuild() {
+        long started = System.currentTimeMillis();
+        Miner miner = new Miner();
+        reservationHistoryRepository.streamByUser(miner::accept);
+        miner.flush();
+        lock.writeLock().lock();
+        try {
+            counters = miner.mined;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Co-reservations mined for {} books from {} patrons in {} ms",
+                miner.mined.size(), miner.patrons, System.currentTimeMillis() - started);
+    }
+
+    /**
+     * Counts a new reservation of {@code bookId} against the patron's earlier reservations,
+     * most recent first. Like the rebuild, only the first {@link #MAX_BOOKS_PER_PATRON} are
+     * paired, so a patron with a long history cannot hold the write lock for long.
+     */
+    public void recorded(long bookId, Collection<Long> previousBookIds) {
+        Set<Long> others = new HashSet<>();
+        for (Long other : previousBookIds) {
+            if (others.size() == MAX_BOOKS_PER_PATRON) {
+                break;
+            }
+            others.add(other);
+        }
+        if (others.remove(bookId)) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            for (Long other : others) {
+                pair(counters, bookId, other);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<Long> alsoReserved(long bookId, int limit) {
+        lock.readLock().lock();
+        try {
+            Counters summary = counters.get(bookId);
+            if (summary == null || limit <= 0) {
+                return new ArrayList<>();
+            }
+            return summary.top(Math.min(limit, MAX_NEIGHBOURS));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static void pair(Map<Long, Counters> counters, long a, long b) {
+        counters.computeIfAbsent(a, key -> new Counters()).increment(b);
+        counters.computeIfAbsent(b, key -> new Counters()).increment(a);
+    }
+
+    private static final class Miner {
+        private final Map<Long, Counters> mined = new HashMap<>();
+        private long[] books = new long[16];
+        private int size;
+        private long currentUser = Long.MIN_VALUE;
+        private long patrons;
+
+        void accept(long userId, long bookId) {
+            if (userId != currentUser) {
+                flush();
+                currentUser = userId;
+            }
+            if (size < MAX_BOOKS_PER_PATRON) {
+                if (size == books.length) {
+                    books = Arrays.copyOf(books, size * 2);
+                }
+                books[size++] = bookId;
+            }
+        }
+
+        void flush() {
+            if (size == 0) {
+                return;
+            }
+            Arrays.sort(books, 0, size);
+            int distinct = 0;
+            for (int i = 0; i < size; i++) {
+                if (i == 0 || books[i] != books[i - 1]) {
+                    books[distinct++] = books[i];
+                }
+            }
+            for (int i = 0; i < distinct; i++) {
+                for (int j = i + 1; j < distinct; j++) {
+                    pair(mined, books[i], books[j]);
+                }
+            }
+            patrons++;
+            size = 0;
+        }
+    }
+
+    // Space-Saving heavy hitters: when full, the smallest counter is handed to the new book.
+    private static final class Counters {
+        private final long[] books = new long[SUMMARY_CAPACITY];
+        private final int[] counts = new int[SUMMARY_CAPACITY];
+        private int size;
+
+        void increment(long book) {
+            int min = 0;
+            for (int i = 0; i < size; i++) {
+                if (books[i] == book) {
+                    counts[i]++;
+                    return;
+                }
+                if (counts[i] < counts[min]) {
+                    min = i;
+                }
+            }
+            if (size < SUMMARY_CAPACITY) {
+                books[size] = book;
+                counts[size++] = 1;
+            } else {
+                books[min] = book;
+                counts[min]++;
+            }
+        }
+
+        List<Long> top(int limit) {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.<Integer>comparingInt(i -> counts[i]).reversed().thenComparingLong(i -> books[i]));
+            List<Long> result = new ArrayList<>(Math.min(limit, size));
+            for (int i = 0; i < order.length && result.size() < limit; i++) {
+                result.add(books[order[i]]);
+            }
+            return result;
+        }
+    }
+}
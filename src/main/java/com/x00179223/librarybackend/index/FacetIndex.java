@@ -0,0 +1,423 @@
+package com.x00179223.librarybackend.index;
+
+import com.x00179223.librarybackend.dto.BookFilter;
+import com.x00179223.librarybackend.dto.FacetQuery;
+import com.x00179223.librarybackend.model.Book;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Roaring bitmaps of book ids per genre, publication year, rating star and availability.
+ * Each facet is counted with every filter applied except its own, so the sidebar
+ * shows how many results selecting another value would give. Arbitrary AND/OR/NOT
+ * {@link BookFilter} expressions are evaluated as bitmap operations over the same sets;
+ * they are limited to {@link #MAX_FILTER_DEPTH} levels and {@link #MAX_FILTER_NODES} clauses.
+ */
+@Component
+public class FacetIndex implements CatalogueIndex {
+
+    public static final String AVAILABLE = "available";
+    public static final String UNAVAILABLE = "unavailable";
+    public static final int MAX_FILTER_DEPTH = 16;
+    public static final int MAX_FILTER_NODES = 256;
+    private static final Comparator<Entry> TITLE_ORDER = Comparator.comparing(Entry::titleKey).thenComparingLong(Entry::id);
+
+    private final RoaringBitmap all = new RoaringBitmap();
+    private final RoaringBitmap available = new RoaringBitmap();
+    private final Map<String, RoaringBitmap> genres = new HashMap<>();
+    private final Map<Integer, RoaringBitmap> years = new TreeMap<>();
+    private final Map<Integer, RoaringBitmap> ratings = new TreeMap<>();
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private final Map<Long, Integer> stock = new HashMap<>();
+    private final NavigableSet<Entry> titleOrder = new TreeSet<>(TITLE_ORDER);
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @Override
+    public void rebuild(Collection<Book> books) {
+        lock.writeLock().lock();
+        try {
+            all.clear();
+            available.clear();
+            genres.clear();
+            years.clear();
+            ratings.clear();
+            entries.clear();
+            stock.clear();
+            titleOrder.clear();
+            for (Book book : books) {
+                add(book);
+            }
+            all.runOptimize();
+            available.runOptimize();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void index(Book book) {
+        if (book == null || book.getId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeEntry(book.getId());
+            add(book);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void stockChanged(Long bookId, int delta) {
+        lock.writeLock().lock();
+        try {
+            Entry entry = entries.get(bookId);
+            if (entry == null) {
+                return;
+            }
+            if (stock.merge(bookId, delta, Integer::sum) > 0) {
+                available.add(entry.ordinal());
+            } else {
+                available.remove(entry.ordinal());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Long bookId) {
+        lock.writeLock().lock();
+        try {
+            removeEntry(bookId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Applies the query's filters to {@code candidates} (every book when null) and returns
+     * one page of matching ids in title order together with the facet counts.
+     */
+    public Result query(FacetQuery query, RoaringBitmap candidates, int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap base = candidates == null ? all.clone() : RoaringBitmap.and(candidates, all);
+            RoaringBitmap genreFilter = genreFilter(query.getGenres());
+            RoaringBitmap yearFilter = yearFilter(query.getYearFrom(), query.getYearTo());
+            RoaringBitmap ratingFilter = ratingFilter(query.getMinRating());
+            RoaringBitmap availabilityFilter = availabilityFilter(query.getAvailable());
+
+            RoaringBitmap matching = intersect(base, genreFilter, yearFilter, ratingFilter, availabilityFilter);
+            return new Result(page(matching, offset, limit), matching.getLongCardinality(),
+                    genreCounts(intersect(base, yearFilter, ratingFilter, availabilityFilter)),
+                    decadeCounts(intersect(base, genreFilter, ratingFilter, availabilityFilter)),
+                    ratingCounts(intersect(base, genreFilter, yearFilter, availabilityFilter)),
+                    availabilityCounts(intersect(base, genreFilter, yearFilter, ratingFilter)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Evaluates a boolean filter expression and returns one page of matching ids in title
+     * order, with the facet counts of the whole matching set.
+     */
+    public Result filter(BookFilter filter, int offset, int limit) {
+        checkSize(filter);
+        lock.readLock().lock();
+        try {
+            RoaringBitmap matching = evaluate(filter);
+            return new Result(page(matching, offset, limit), matching.getLongCardinality(),
+                    genreCounts(matching), decadeCounts(matching), ratingCounts(matching), availabilityCounts(matching));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Walks the tree without recursion so an oversized filter is rejected before evaluate recurses into it.
+    private static void checkSize(BookFilter filter) {
+        Deque<BookFilter> pending = new ArrayDeque<>();
+        Deque<Integer> depths = new ArrayDeque<>();
+        pending.push(filter == null ? new BookFilter() : filter);
+        depths.push(1);
+        int nodes = 0;
+        while (!pending.isEmpty()) {
+            BookFilter node = pending.pop();
+            int depth = depths.pop();
+            if (++nodes > MAX_FILTER_NODES) {
+                throw new IllegalArgumentException("Filter has more than " + MAX_FILTER_NODES + " clauses");
+            }
+            if (depth > MAX_FILTER_DEPTH) {
+                throw new IllegalArgumentException("Filter is nested more than " + MAX_FILTER_DEPTH + " levels deep");
+            }
+            if (node.getFilters() != null) {
+                for (BookFilter operand : node.getFilters()) {
+                    if (operand == null) {
+                        throw new IllegalArgumentException("Filter operands must not be null");
+                    }
+                    pending.push(operand);
+                    depths.push(depth + 1);
+                }
+            }
+        }
+    }
+
+    private RoaringBitmap evaluate(BookFilter filter) {
+        if (filter == null || filter.getType() == null) {
+            throw new IllegalArgumentException("Filter type is required");
+        }
+        List<BookFilter> operands = filter.getFilters() == null ? List.of() : filter.getFilters();
+        switch (filter.getType()) {
+            case AND -> {
+                if (operands.isEmpty()) {
+                    throw new IllegalArgumentException("AND filter needs at least one operand");
+                }
+                RoaringBitmap result = evaluate(operands.get(0));
+                for (int i = 1; i < operands.size() && !result.isEmpty(); i++) {
+                    result.and(evaluate(operands.get(i)));
+                }
+                return result;
+            }
+            case OR -> {
+                if (operands.isEmpty()) {
+                    throw new IllegalArgumentException("OR filter needs at least one operand");
+                }
+                RoaringBitmap result = new RoaringBitmap();
+                for (BookFilter operand : operands) {
+                    result.or(evaluate(operand));
+                }
+                return result;
+            }
+            case NOT -> {
+                if (operands.size() != 1) {
+                    throw new IllegalArgumentException("NOT filter needs exactly one operand");
+                }
+                return RoaringBitmap.andNot(all, evaluate(operands.get(0)));
+            }
+            case GENRE -> {
+                RoaringBitmap ids = genres.get(filter.getGenre());
+                return ids == null ? new RoaringBitmap() : ids.clone();
+            }
+            case YEAR -> {
+                RoaringBitmap ids = yearFilter(filter.getYearFrom(), filter.getYearTo());
+                return ids == null ? all.clone() : ids;
+            }
+            case RATING -> {
+                RoaringBitmap ids = ratingFilter(filter.getMinRating());
+                return ids == null ? all.clone() : ids;
+            }
+            case AVAILABLE -> {
+                return available.clone();
+            }
+            default -> throw new IllegalArgumentException("Unsupported filter type " + filter.getType());
+        }
+    }
+
+    private RoaringBitmap genreFilter(Collection<String> selected) {
+        if (selected == null || selected.isEmpty()) {
+            return null;
+        }
+        RoaringBitmap filter = new RoaringBitmap();
+        for (String genre : selected) {
+            RoaringBitmap ids = genres.get(genre);
+            if (ids != null) {
+                filter.or(ids);
+            }
+        }
+        return filter;
+    }
+
+    private RoaringBitmap yearFilter(Integer from, Integer to) {
+        if (from == null && to == null) {
+            return null;
+        }
+        int lower = from == null ? Integer.MIN_VALUE : from;
+        int upper = to == null ? Integer.MAX_VALUE : to;
+        RoaringBitmap filter = new RoaringBitmap();
+        years.forEach((year, ids) -> {
+            if (year >= lower && year <= upper) {
+                filter.or(ids);
+            }
+        });
+        return filter;
+    }
+
+    private RoaringBitmap ratingFilter(Integer minRating) {
+        if (minRating == null) {
+            return null;
+        }
+        RoaringBitmap filter = new RoaringBitmap();
+        ratings.forEach((stars, ids) -> {
+            if (stars >= minRating) {
+                filter.or(ids);
+            }
+        });
+        return filter;
+    }
+
+    private RoaringBitmap availabilityFilter(Boolean onlyAvailable) {
+        if (onlyAvailable == null) {
+            return null;
+        }
+        return onlyAvailable ? available : RoaringBitmap.andNot(all, available);
+    }
+
+    private Map<String, Long> genreCounts(RoaringBitmap scope) {
+        Map<String, Long> counts = new TreeMap<>();
+        genres.forEach((genre, ids) -> putCount(counts, genre, scope, ids));
+        return counts;
+    }
+
+    private Map<String, Long> decadeCounts(RoaringBitmap scope) {
+        Map<String, Long> counts = new TreeMap<>();
+        years.forEach((year, ids) -> {
+            long count = RoaringBitmap.andCardinality(scope, ids);
+            if (count > 0 && year > 0) {
+                counts.merge((year / 10 * 10) + "s", count, Long::sum);
+            }
+        });
+        return counts;
+    }
+
+    private Map<String, Long> ratingCounts(RoaringBitmap scope) {
+        Map<String, Long> counts = new TreeMap<>();
+        ratings.forEach((stars, ids) -> putCount(counts, String.valueOf(stars), scope, ids));
+        return counts;
+    }
+
+    private Map<String, Long> availabilityCounts(RoaringBitmap scope) {
+        Map<String, Long> counts = new TreeMap<>();
+        long availableCount = RoaringBitmap.andCardinality(scope, available);
+        counts.put(AVAILABLE, availableCount);
+        counts.put(UNAVAILABLE, scope.getLongCardinality() - availableCount);
+        return counts;
+    }
+
+    // A walk down the title order stops after offset + limit matches, but a selective filter still
+    // walks most of the catalogue to find them. When fewer ids match than the walk would visit,
+    // the matches are ranked by title directly instead, keeping only the first offset + limit.
+    private List<Long> page(RoaringBitmap matching, int offset, int limit) {
+        long matches = matching.getLongCardinality();
+        if (limit <= 0 || offset >= matches) {
+            return List.of();
+        }
+        int wanted = (int) Math.min((long) offset + limit, matches);
+        if (matches < (long) wanted * titleOrder.size() / matches) {
+            return rankMatches(matching, offset, wanted);
+        }
+        List<Long> page = new ArrayList<>(Math.min(limit, wanted - offset));
+        int skipped = 0;
+        for (Entry entry : titleOrder) {
+            if (page.size() >= limit) {
+                break;
+            }
+            if (matching.contains(entry.ordinal())) {
+                if (skipped < offset) {
+                    skipped++;
+                } else {
+                    page.add(entry.id());
+                }
+            }
+        }
+        return page;
+    }
+
+    private List<Long> rankMatches(RoaringBitmap matching, int offset, int wanted) {
+        PriorityQueue<Entry> first = new PriorityQueue<>(wanted, TITLE_ORDER.reversed());
+        for (int ordinal : matching) {
+            Entry entry = entries.get((long) ordinal);
+            if (entry == null) {
+                continue;
+            }
+            if (first.size() < wanted) {
+                first.add(entry);
+            } else if (TITLE_ORDER.compare(entry, first.peek()) < 0) {
+                first.poll();
+                first.add(entry);
+            }
+        }
+        List<Entry> ranked = new ArrayList<>(first);
+        ranked.sort(TITLE_ORDER);
+        List<Long> page = new ArrayList<>(Math.max(ranked.size() - offset, 0));
+        for (int i = offset; i < ranked.size(); i++) {
+            page.add(ranked.get(i).id());
+        }
+        return page;
+    }
+
+    private static RoaringBitmap intersect(RoaringBitmap base, RoaringBitmap... filters) {
+        RoaringBitmap result = base.clone();
+        for (RoaringBitmap filter : filters) {
+            if (filter != null) {
+                result.and(filter);
+            }
+        }
+        return result;
+    }
+
+    private static void putCount(Map<String, Long> counts, String key, RoaringBitmap scope, RoaringBitmap ids) {
+        long count = RoaringBitmap.andCardinality(scope, ids);
+        if (count > 0) {
+            counts.put(key, count);
+        }
+    }
+
+    private void add(Book book) {
+        int ordinal = Math.toIntExact(book.getId());
+        String genre = book.getGenre() == null ? "" : book.getGenre();
+        int stars = (int) Math.floor(Math.max(0, Math.min(5, book.getRating())));
+        Entry entry = new Entry(book.getId(), ordinal, titleKey(book.getTitle()), genre, book.getPublicationYear(), stars);
+        all.add(ordinal);
+        stock.put(book.getId(), book.getQuantityAvailable());
+        if (book.getQuantityAvailable() > 0) {
+            available.add(ordinal);
+        }
+        genres.computeIfAbsent(genre, key -> new RoaringBitmap()).add(ordinal);
+        years.computeIfAbsent(entry.year(), key -> new RoaringBitmap()).add(ordinal);
+        ratings.computeIfAbsent(stars, key -> new RoaringBitmap()).add(ordinal);
+        entries.put(book.getId(), entry);
+        titleOrder.add(entry);
+    }
+
+    private void removeEntry(Long bookId) {
+        Entry entry = entries.remove(bookId);
+        if (entry == null) {
+            return;
+        }
+        all.remove(entry.ordinal());
+        available.remove(entry.ordinal());
+        stock.remove(bookId);
+        clear(genres, entry.genre(), entry.ordinal());
+        clear(years, entry.year(), entry.ordinal());
+        clear(ratings, entry.stars(), entry.ordinal());
+        titleOrder.remove(entry);
+    }
+
+    private static <K> void clear(Map<K, RoaringBitmap> postings, K key, int ordinal) {
+        RoaringBitmap ids = postings.get(key);
+        if (ids != null) {
+            ids.remove(ordinal);
+            if (ids.isEmpty()) {
+                postings.remove(key);
+            }
+        }
+    }
+
+    private static String titleKey(String title) {
+        return title == null ? "" : title.toLowerCase(Locale.ROOT);
+    }
+
+    public record Result(List<Long> bookIds, long totalElements, Map<String, Long> genres,
+                         Map<String, Long> publicationYears, Map<String, Long> ratings,
+                         Map<String, Long> availability) {
+    }
+
+    private record Entry(long id, int ordinal, String titleKey, String genre, int year, int stars) {
+    }
+}
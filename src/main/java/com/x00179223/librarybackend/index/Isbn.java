@@ -0,0 +1,81 @@
+package com.x00179223.librarybackend.index;
+
+import java.util.Optional;
+
+/**
+ * ISBN parsing and normalisation. Both ISBN-10 and ISBN-13 inputs, with or without
+ * hyphens and spaces, are validated against their check digit and returned as ISBN-13,
+ * which is also what EAN-13 barcode scanners emit.
+ */
+public final class Isbn {
+
+    private Isbn() {
+    }
+
+    public static Optional<String> normalize(String isbn) {
+        if (isbn == null) {
+            return Optional.empty();
+        }
+        StringBuilder digits = new StringBuilder(13);
+        for (int i = 0; i < isbn.length(); i++) {
+            char c = isbn.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            } else if (c == 'x' || c == 'X') {
+                digits.append('X');
+            } else if (c != '-' && c != ' ') {
+                return Optional.empty();
+            }
+        }
+        if (digits.length() == 10 && isValidIsbn10(digits)) {
+            String isbn13 = "978" + digits.substring(0, 9);
+            return Optional.of(isbn13 + isbn13CheckDigit(isbn13));
+        }
+        if (digits.length() == 13 && isValidIsbn13(digits)) {
+            return Optional.of(digits.toString());
+        }
+        return Optional.empty();
+    }
+
+    private static boolean isValidIsbn10(CharSequence digits) {
+        int sum = 0;
+        for (int i = 0; i < 10; i++) {
+            char c = digits.charAt(i);
+            int value;
+            if (c == 'X') {
+                if (i != 9) {
+                    return false;
+                }
+                value = 10;
+            } else {
+                value = c - '0';
+            }
+            sum += (10 - i) * value;
+        }
+        return sum % 11 == 0;
+    }
+
+    private static boolean isValidIsbn13(CharSequence digits) {
+        if (!(startsWith(digits, "978") || startsWith(digits, "979"))) {
+            return false;
+        }
+        for (int i = 0; i < 13; i++) {
+            if (digits.charAt(i) == 'X') {
+                return false;
+            }
+        }
+        return isbn13CheckDigit(digits) == digits.charAt(12);
+    }
+
+    private static char isbn13CheckDigit(CharSequence digits) {
+        int sum = 0;
+        for (int i = 0; i < 12; i++) {
+            sum += (digits.charAt(i) - '0') * (i % 2 == 0 ? 1 : 3);
+        }
+        return (char) ('0' + (10 - sum % 10) % 10);
+    }
+
+    private static boolean startsWith(CharSequence digits, String prefix) {
+        return digits.subSequence(0, prefix.length()).toString().equals(prefix);
+    }
+}
@@ -0,0 +1,109 @@
+package com.x00179223.librarybackend.index;
+
+import com.x00179223.librarybackend.model.Book;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Normalised ISBN-13 to book map for barcode lookups at the circulation desk. Like
+ * {@link BookSearchIndex} it keeps its own copies of the books and hands out copies,
+ * and it tracks stock so a lookup shows current availability.
+ */
+@Component
+public class IsbnIndex implements CatalogueIndex {
+
+    private final Map<String, Book> byIsbn = new HashMap<>();
+    private final Map<Long, String> isbns = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean ready;
+
+    @Override
+    public void rebuild(Collection<Book> books) {
+        lock.writeLock().lock();
+        try {
+            byIsbn.clear();
+            isbns.clear();
+            for (Book book : books) {
+                add(book);
+            }
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void index(Book book) {
+        if (book == null || book.getId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeBook(book.getId());
+            add(book);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void stockChanged(Long bookId, int delta) {
+        lock.writeLock().lock();
+        try {
+            String isbn = isbns.get(bookId);
+            Book book = isbn == null ? null : byIsbn.get(isbn);
+            if (book != null && bookId.equals(book.getId())) {
+                book.setQuantityAvailable(book.getQuantityAvailable() + delta);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Long bookId) {
+        lock.writeLock().lock();
+        try {
+            removeBook(bookId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /** Looks up a book by an already normalised ISBN-13. */
+    public Optional<Book> find(String isbn13) {
+        lock.readLock().lock();
+        try {
+            return Optional.ofNullable(byIsbn.get(isbn13)).map(BookSearchIndex::copy);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void add(Book book) {
+        Isbn.normalize(book.getISBN()).ifPresent(isbn -> {
+            byIsbn.put(isbn, BookSearchIndex.copy(book));
+            isbns.put(book.getId(), isbn);
+        });
+    }
+
+    private void removeBook(Long bookId) {
+        String isbn = isbns.remove(bookId);
+        if (isbn != null) {
+            Book current = byIsbn.get(isbn);
+            if (current != null && bookId.equals(current.getId())) {
+                byIsbn.remove(isbn);
+            }
+        }
+    }
+}
@@ -0,0 +1,458 @@
+package com.x00179223.librarybackend.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Supplier;
+
+/**
+ * Immutable item-item collaborative filtering model built from user ratings.
+ * <p>
+ * Ratings are packed into compressed sparse row arrays by user and by book, similarities
+ * are adjusted cosine (ratings centred on each user's mean) damped by the number of
+ * co-raters, and only the top neighbours of each book are kept. Every user's top-N list is
+ * precomputed from those neighbours, so serving a recommendation is a binary search and
+ * an array copy. Both passes split their rows across a {@link ForkJoinPool}; the scratch
+ * arrays sized to the catalogue are allocated once per worker thread, not once per task.
+ */
+public final class ItemSimilarityModel {
+
+    public static final ItemSimilarityModel EMPTY = new ItemSimilarityModel(new long[0], new long[0], 1, new int[0], new int[0], 0);
+
+    // Midpoint of the 1-5 scale: a 3 is neither a like nor a dislike and recommends nothing.
+    private static final float NEUTRAL_RATING = 3f;
+    private static final int ROWS_PER_TASK = 256;
+
+    private final long[] bookIds;
+    private final long[] userIds;
+    private final int stride;
+    private final int[] recommendations;
+    private final int[] recommendationCounts;
+    private final long ratingCount;
+
+    private ItemSimilarityModel(long[] bookIds, long[] userIds, int stride, int[] recommendations,
+                                int[] recommendationCounts, long ratingCount) {
+        this.bookIds = bookIds;
+        this.userIds = userIds;
+        this.stride = stride;
+        this.recommendations = recommendations;
+        this.recommendationCounts = recommendationCounts;
+        this.ratingCount = ratingCount;
+    }
+
+    public static Builder builder(int neighbours, int recommendations, int maxRatingsPerUser, int shrinkage) {
+        return new Builder(neighbours, recommendations, maxRatingsPerUser, shrinkage);
+    }
+
+    public List<Long> recommendationsFor(long userId, int limit) {
+        int user = Arrays.binarySearch(userIds, userId);
+        if (user < 0 || limit <= 0) {
+            return new ArrayList<>();
+        }
+        int count = Math.min(recommendationCounts[user], limit);
+        List<Long> result = new ArrayList<>(count);
+        for (int k = 0; k < count; k++) {
+            result.add(bookIds[recommendations[user * stride + k]]);
+        }
+        return result;
+    }
+
+    public int userCount() {
+        return userIds.length;
+    }
+
+    public int bookCount() {
+        return bookIds.length;
+    }
+
+    public long ratingCount() {
+        return ratingCount;
+    }
+
+    public static final class Builder {
+
+        private final int neighbours;
+        private final int recommendationsPerUser;
+        private final int maxRatingsPerUser;
+        private final int shrinkage;
+        private long[] users = new long[1024];
+        private long[] books = new long[1024];
+        private float[] ratings = new float[1024];
+        private int size;
+
+        private Builder(int neighbours, int recommendationsPerUser, int maxRatingsPerUser, int shrinkage) {
+            this.neighbours = neighbours;
+            this.recommendationsPerUser = recommendationsPerUser;
+            this.maxRatingsPerUser = maxRatingsPerUser;
+            this.shrinkage = shrinkage;
+        }
+
+        public void add(long userId, long bookId, float rating) {
+            if (size == users.length) {
+                int capacity = size * 2;
+                users = Arrays.copyOf(users, capacity);
+                books = Arrays.copyOf(books, capacity);
+                ratings = Arrays.copyOf(ratings, capacity);
+            }
+            users[size] = userId;
+            books[size] = bookId;
+            ratings[size] = rating;
+            size++;
+        }
+
+        public ItemSimilarityModel build(ForkJoinPool pool) {
+            if (size == 0) {
+                return EMPTY;
+            }
+            long[] userIds = distinctSorted(users, size);
+            long[] bookIds = distinctSorted(books, size);
+            int userCount = userIds.length;
+            int bookCount = bookIds.length;
+
+            int[] userOf = new int[size];
+            int[] bookOf = new int[size];
+            int[] userOffsets = new int[userCount + 1];
+            int[] bookOffsets = new int[bookCount + 1];
+            for (int r = 0; r < size; r++) {
+                userOf[r] = Arrays.binarySearch(userIds, users[r]);
+                bookOf[r] = Arrays.binarySearch(bookIds, books[r]);
+                userOffsets[userOf[r] + 1]++;
+                bookOffsets[bookOf[r] + 1]++;
+            }
+            for (int u = 0; u < userCount; u++) {
+                userOffsets[u + 1] += userOffsets[u];
+            }
+            for (int b = 0; b < bookCount; b++) {
+                bookOffsets[b + 1] += bookOffsets[b];
+            }
+
+            // Rows of the rating matrix by user, with raw and mean-centred values.
+            int[] userBooks = new int[size];
+            float[] userRatings = new float[size];
+            int[] cursor = Arrays.copyOf(userOffsets, userCount);
+            for (int r = 0; r < size; r++) {
+                int at = cursor[userOf[r]]++;
+                userBooks[at] = bookOf[r];
+                userRatings[at] = ratings[r];
+            }
+            float[] centred = new float[size];
+            for (int u = 0; u < userCount; u++) {
+                float sum = 0;
+                for (int at = userOffsets[u]; at < userOffsets[u + 1]; at++) {
+                    sum += userRatings[at];
+                }
+                float mean = sum / (userOffsets[u + 1] - userOffsets[u]);
+                for (int at = userOffsets[u]; at < userOffsets[u + 1]; at++) {
+                    centred[at] = userRatings[at] - mean;
+                }
+            }
+
+            // Columns by book, the transpose of the user rows.
+            int[] bookUsers = new int[size];
+            float[] bookValues = new float[size];
+            float[] norms = new float[bookCount];
+            cursor = Arrays.copyOf(bookOffsets, bookCount);
+            for (int u = 0; u < userCount; u++) {
+                for (int at = userOffsets[u]; at < userOffsets[u + 1]; at++) {
+                    int book = userBooks[at];
+                    int to = cursor[book]++;
+                    bookUsers[to] = u;
+                    bookValues[to] = centred[at];
+                    norms[book] += centred[at] * centred[at];
+                }
+            }
+            for (int b = 0; b < bookCount; b++) {
+                norms[b] = (float) Math.sqrt(norms[b]);
+            }
+
+            RatingMatrix matrix = new RatingMatrix(userOffsets, userBooks, userRatings, centred, bookOffsets, bookUsers, bookValues, norms);
+            int[] neighbourBooks = new int[bookCount * neighbours];
+            float[] neighbourScores = new float[bookCount * neighbours];
+            int[] neighbourCounts = new int[bookCount];
+            PerWorker<Scratch> similarityScratch = new PerWorker<>(() -> new Scratch(bookCount, neighbours));
+            pool.invoke(new SimilarityTask(matrix, 0, bookCount, neighbourBooks, neighbourScores, neighbourCounts, similarityScratch));
+
+            int[] recommendations = new int[userCount * recommendationsPerUser];
+            int[] recommendationCounts = new int[userCount];
+            PerWorker<Scratch> recommendationScratch = new PerWorker<>(() -> new Scratch(bookCount, recommendationsPerUser));
+            pool.invoke(new RecommendationTask(matrix, 0, userCount, neighbourBooks, neighbourScores, neighbourCounts,
+                    recommendations, recommendationCounts, recommendationScratch));
+            return new ItemSimilarityModel(bookIds, userIds, recommendationsPerUser, recommendations, recommendationCounts, size);
+        }
+
+        private static long[] distinctSorted(long[] values, int size) {
+            long[] sorted = Arrays.copyOf(values, size);
+            Arrays.parallelSort(sorted);
+            int distinct = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                if (i == 0 || sorted[i] != sorted[i - 1]) {
+                    sorted[distinct++] = sorted[i];
+                }
+            }
+            return Arrays.copyOf(sorted, distinct);
+        }
+
+        // Every leaf leaves the arrays as it found them: entries it touched are reset or stamped per row.
+        private record Scratch(float[] values, int[] marks, int[] touched, TopK top) {
+            Scratch(int bookCount, int keep) {
+                this(new float[bookCount], new int[bookCount], new int[bookCount], new TopK(keep));
+            }
+        }
+
+        private static final class PerWorker<T> {
+            private final Map<Thread, T> byThread = new ConcurrentHashMap<>();
+            private final Supplier<T> factory;
+
+            private PerWorker(Supplier<T> factory) {
+                this.factory = factory;
+            }
+
+            T get() {
+                return byThread.computeIfAbsent(Thread.currentThread(), thread -> factory.get());
+            }
+        }
+
+        private record RatingMatrix(int[] userOffsets, int[] userBooks, float[] userRatings, float[] centred,
+                                    int[] bookOffsets, int[] bookUsers, float[] bookValues, float[] norms) {
+        }
+
+        private final class SimilarityTask extends RecursiveAction {
+            private final RatingMatrix m;
+            private final int from;
+            private final int to;
+            private final int[] neighbourBooks;
+            private final float[] neighbourScores;
+            private final int[] neighbourCounts;
+            private final PerWorker<Scratch> scratch;
+
+            private SimilarityTask(RatingMatrix m, int from, int to, int[] neighbourBooks, float[] neighbourScores, int[] neighbourCounts,
+                                   PerWorker<Scratch> scratch) {
+                this.m = m;
+                this.from = from;
+                this.to = to;
+                this.neighbourBooks = neighbourBooks;
+                this.neighbourScores = neighbourScores;
+                this.neighbourCounts = neighbourCounts;
+                this.scratch = scratch;
+            }
+
+            @Override
+            protected void compute() {
+                if (to - from > ROWS_PER_TASK) {
+                    int mid = (from + to) >>> 1;
+                    invokeAll(new SimilarityTask(m, from, mid, neighbourBooks, neighbourScores, neighbourCounts, scratch),
+                            new SimilarityTask(m, mid, to, neighbourBooks, neighbourScores, neighbourCounts, scratch));
+                    return;
+                }
+                Scratch arrays = scratch.get();
+                float[] dot = arrays.values();
+                int[] coRaters = arrays.marks();
+                int[] touched = arrays.touched();
+                TopK top = arrays.top();
+                for (int book = from; book < to; book++) {
+                    if (m.norms[book] == 0) {
+                        continue;
+                    }
+                    int touchedCount = 0;
+                    for (int at = m.bookOffsets[book]; at < m.bookOffsets[book + 1]; at++) {
+                        int user = m.bookUsers[at];
+                        float value = m.bookValues[at];
+                        if (m.userOffsets[user + 1] - m.userOffsets[user] > maxRatingsPerUser) {
+                            continue;
+                        }
+                        for (int other = m.userOffsets[user]; other < m.userOffsets[user + 1]; other++) {
+                            int candidate = m.userBooks[other];
+                            if (candidate == book) {
+                                continue;
+                            }
+                            if (coRaters[candidate]++ == 0) {
+                                touched[touchedCount++] = candidate;
+                            }
+                            dot[candidate] += value * m.centred[other];
+                        }
+                    }
+                    top.clear();
+                    for (int i = 0; i < touchedCount; i++) {
+                        int candidate = touched[i];
+                        if (dot[candidate] > 0 && m.norms[candidate] > 0) {
+                            float cosine = dot[candidate] / (m.norms[book] * m.norms[candidate]);
+                            top.offer(candidate, cosine * coRaters[candidate] / (coRaters[candidate] + shrinkage));
+                        }
+                        dot[candidate] = 0;
+                        coRaters[candidate] = 0;
+                    }
+                    neighbourCounts[book] = top.drainDescending(neighbourBooks, neighbourScores, book * neighbours);
+                }
+            }
+        }
+
+        private final class RecommendationTask extends RecursiveAction {
+            private final RatingMatrix m;
+            private final int from;
+            private final int to;
+            private final int[] neighbourBooks;
+            private final float[] neighbourScores;
+            private final int[] neighbourCounts;
+            private final int[] recommendations;
+            private final int[] recommendationCounts;
+            private final PerWorker<Scratch> scratch;
+
+            private RecommendationTask(RatingMatrix m, int from, int to, int[] neighbourBooks, float[] neighbourScores,
+                                       int[] neighbourCounts, int[] recommendations, int[] recommendationCounts, PerWorker<Scratch> scratch) {
+                this.m = m;
+                this.from = from;
+                this.to = to;
+                this.neighbourBooks = neighbourBooks;
+                this.neighbourScores = neighbourScores;
+                this.neighbourCounts = neighbourCounts;
+                this.recommendations = recommendations;
+                this.recommendationCounts = recommendationCounts;
+                this.scratch = scratch;
+            }
+
+            @Override
+            protected void compute() {
+                if (to - from > ROWS_PER_TASK) {
+                    int mid = (from + to) >>> 1;
+                    invokeAll(new RecommendationTask(m, from, mid, neighbourBooks, neighbourScores, neighbourCounts, recommendations,
+                                    recommendationCounts, scratch),
+                            new RecommendationTask(m, mid, to, neighbourBooks, neighbourScores, neighbourCounts, recommendations,
+                                    recommendationCounts, scratch));
+                    return;
+                }
+                Scratch arrays = scratch.get();
+                float[] scores = arrays.values();
+                int[] seenBy = arrays.marks();
+                int[] touched = arrays.touched();
+                TopK top = arrays.top();
+                for (int user = from; user < to; user++) {
+                    int stamp = user + 1;
+                    for (int at = m.userOffsets[user]; at < m.userOffsets[user + 1]; at++) {
+                        seenBy[m.userBooks[at]] = -stamp;
+                    }
+                    int touchedCount = 0;
+                    // Books rated above the neutral midpoint pull their neighbours up, low ratings push them down.
+                    for (int at = m.userOffsets[user]; at < m.userOffsets[user + 1]; at++) {
+                        int book = m.userBooks[at];
+                        float weight = m.userRatings[at] - NEUTRAL_RATING;
+                        int base = book * neighbours;
+                        for (int k = 0; k < neighbourCounts[book]; k++) {
+                            int candidate = neighbourBooks[base + k];
+                            if (seenBy[candidate] == -stamp) {
+                                continue;
+                            }
+                            if (seenBy[candidate] != stamp) {
+                                seenBy[candidate] = stamp;
+                                scores[candidate] = 0;
+                                touched[touchedCount++] = candidate;
+                            }
+                            scores[candidate] += weight * neighbourScores[base + k];
+                        }
+                    }
+                    top.clear();
+                    for (int i = 0; i < touchedCount; i++) {
+                        int candidate = touched[i];
+                        if (scores[candidate] > 0) {
+                            top.offer(candidate, scores[candidate]);
+                        }
+                    }
+                    recommendationCounts[user] = top.drainDescending(recommendations, null, user * recommendationsPerUser);
+                }
+            }
+        }
+    }
+
+    /** Bounded min-heap of (index, score) pairs on primitive arrays; ties prefer the lower index. */
+    static final class TopK {
+        private final int[] items;
+        private final float[] scores;
+        private int size;
+
+        TopK(int capacity) {
+            items = new int[capacity];
+            scores = new float[capacity];
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        void offer(int item, float score) {
+            if (items.length == 0) {
+                return;
+            }
+            if (size < items.length) {
+                items[size] = item;
+                scores[size] = score;
+                siftUp(size++);
+            } else if (better(item, score, items[0], scores[0])) {
+                items[0] = item;
+                scores[0] = score;
+                siftDown(0);
+            }
+        }
+
+        /** Writes the kept entries best first starting at {@code offset} and returns how many there were. */
+        int drainDescending(int[] outItems, float[] outScores, int offset) {
+            int count = size;
+            while (size > 0) {
+                int last = --size;
+                outItems[offset + last] = items[0];
+                if (outScores != null) {
+                    outScores[offset + last] = scores[0];
+                }
+                items[0] = items[last];
+                scores[0] = scores[last];
+                siftDown(0);
+            }
+            return count;
+        }
+
+        private static boolean better(int item, float score, int otherItem, float otherScore) {
+            return score > otherScore || (score == otherScore && item < otherItem);
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!better(items[parent], scores[parent], items[i], scores[i])) {
+                    break;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int left = 2 * i + 1;
+                if (left >= size) {
+                    return;
+                }
+                int worst = left;
+                int right = left + 1;
+                if (right < size && better(items[left], scores[left], items[right], scores[right])) {
+                    worst = right;
+                }
+                if (!better(items[i], scores[i], items[worst], scores[worst])) {
+                    return;
+                }
+                swap(i, worst);
+                i = worst;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int item = items[a];
+            items[a] = items[b];
+            items[b] = item;
+            float score = scores[a];
+            scores[a] = scores[b];
+            scores[b] = score;
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package com.x00179223.librarybackend.index;
+
+import com.x00179223.librarybackend.model.Book;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * TF-IDF vectors over book title, author and genre, held in primitive arrays and
+ * compared by cosine similarity. Each term keeps a posting list of (slot, weight), so
+ * finding neighbours only touches books that share at least one term with the source.
+ * Field prefixes keep an author called "London" apart from a title containing "london".
+ * <p>
+ * IDF depends on the whole catalogue, but one save barely moves it, so single updates only
+ * weigh the changed book against the current IDF and the full refresh waits until about one
+ * percent of the catalogue has changed. Saves that leave title, author and genre untouched,
+ * such as stock changes, are skipped.
+ */
+@Component
+public class SimilarityIndex implements CatalogueIndex {
+
+    public static final int MAX_NEIGHBOURS = 50;
+    private static final float TITLE_WEIGHT = 1.0f;
+    private static final float AUTHOR_WEIGHT = 2.0f;
+    private static final float GENRE_WEIGHT = 1.5f;
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int REFRESH_DIVISOR = 100;
+
+    private final Map<String, Integer> termIds = new HashMap<>();
+    private int[][] postingSlots = new int[INITIAL_CAPACITY][];
+    private float[][] postingWeights = new float[INITIAL_CAPACITY][];
+    private int[] postingSizes = new int[INITIAL_CAPACITY];
+    private float[] idf = new float[INITIAL_CAPACITY];
+    private int termCount;
+
+    private final Map<Long, Integer> slots = new HashMap<>();
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+    private long[] bookIds = new long[INITIAL_CAPACITY];
+    private int[][] documentTerms = new int[INITIAL_CAPACITY][];
+    private float[][] documentWeights = new float[INITIAL_CAPACITY][];
+    private float[] norms = new float[INITIAL_CAPACITY];
+    private Fields[] documentFields = new Fields[INITIAL_CAPACITY];
+    private int slotCount;
+    private int pendingChanges;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean ready;
+
+    @Override
+    public void rebuild(Collection<Book> books) {
+        lock.writeLock().lock();
+        try {
+            termIds.clear();
+            postingSlots = new int[INITIAL_CAPACITY][];
+            postingWeights = new float[INITIAL_CAPACITY][];
+            postingSizes = new int[INITIAL_CAPACITY];
+            idf = new float[INITIAL_CAPACITY];
+            termCount = 0;
+            slots.clear();
+            freeSlots.clear();
+            bookIds = new long[INITIAL_CAPACITY];
+            documentTerms = new int[INITIAL_CAPACITY][];
+            documentWeights = new float[INITIAL_CAPACITY][];
+            norms = new float[INITIAL_CAPACITY];
+            documentFields = new Fields[INITIAL_CAPACITY];
+            slotCount = 0;
+            for (Book book : books) {
+                add(book);
+            }
+            refreshWeights();
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void index(Book book) {
+        if (book == null || book.getId() == null) {
+            return;
+        }
+        indexAll(List.of(book));
+    }
+
+    @Override
+    public void indexAll(Collection<Book> books) {
+        lock.writeLock().lock();
+        try {
+            List<Integer> added = new ArrayList<>();
+            for (Book book : books) {
+                if (book == null || book.getId() == null) {
+                    continue;
+                }
+                Integer slot = slots.get(book.getId());
+                if (slot != null && documentFields[slot].equals(Fields.of(book))) {
+                    continue;
+                }
+                removeDocument(book.getId());
+                added.add(add(book));
+            }
+            if (!added.isEmpty()) {
+                changed(added);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Long bookId) {
+        lock.writeLock().lock();
+        try {
+            if (removeDocument(bookId)) {
+                changed(List.of());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public boolean contains(Long bookId) {
+        lock.readLock().lock();
+        try {
+            return slots.containsKey(bookId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ids of the {@code limit} books most similar to {@code bookId}, best first.
+     * Books sharing no term with the source are never returned.
+     */
+    public List<Long> similar(Long bookId, int limit) {
+        int size = Math.min(Math.max(limit, 0), MAX_NEIGHBOURS);
+        lock.readLock().lock();
+        try {
+            Integer source = slots.get(bookId);
+            if (source == null || size == 0 || norms[source] == 0) {
+                return new ArrayList<>();
+            }
+            float[] dot = new float[slotCount];
+            int[] terms = documentTerms[source];
+            float[] weights = documentWeights[source];
+            for (int i = 0; i < terms.length; i++) {
+                int term = terms[i];
+                float queryWeight = weights[i] * idf[term] * idf[term];
+                int[] candidates = postingSlots[term];
+                float[] candidateWeights = postingWeights[term];
+                for (int j = 0; j < postingSizes[term]; j++) {
+                    dot[candidates[j]] += queryWeight * candidateWeights[j];
+                }
+            }
+            PriorityQueue<Neighbour> top = new PriorityQueue<>(size + 1, Neighbour.WORST_FIRST);
+            for (int slot = 0; slot < slotCount; slot++) {
+                if (slot == source || dot[slot] == 0 || norms[slot] == 0) {
+                    continue;
+                }
+                Neighbour neighbour = new Neighbour(bookIds[slot], dot[slot] / (norms[source] * norms[slot]));
+                if (top.size() < size) {
+                    top.offer(neighbour);
+                } else if (Neighbour.WORST_FIRST.compare(neighbour, top.peek()) > 0) {
+                    top.poll();
+                    top.offer(neighbour);
+                }
+            }
+            List<Neighbour> ranked = new ArrayList<>(top);
+            ranked.sort(Neighbour.WORST_FIRST.reversed());
+            return ranked.stream().map(Neighbour::bookId).toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int add(Book book) {
+        Fields fields = Fields.of(book);
+        Map<String, Float> frequencies = termFrequencies(fields);
+        int slot = freeSlots.isEmpty() ? slotCount++ : freeSlots.pop();
+        ensureSlotCapacity(slot);
+        int[] terms = new int[frequencies.size()];
+        float[] weights = new float[frequencies.size()];
+        int i = 0;
+        for (Map.Entry<String, Float> entry : frequencies.entrySet()) {
+            int term = termId(entry.getKey());
+            terms[i] = term;
+            weights[i] = entry.getValue();
+            appendPosting(term, slot, entry.getValue());
+            i++;
+        }
+        bookIds[slot] = book.getId();
+        documentTerms[slot] = terms;
+        documentWeights[slot] = weights;
+        documentFields[slot] = fields;
+        slots.put(book.getId(), slot);
+        return slot;
+    }
+
+    private boolean removeDocument(Long bookId) {
+        Integer slot = slots.remove(bookId);
+        if (slot == null) {
+            return false;
+        }
+        for (int term : documentTerms[slot]) {
+            int[] postings = postingSlots[term];
+            int last = postingSizes[term] - 1;
+            for (int j = 0; j <= last; j++) {
+                if (postings[j] == slot) {
+                    postings[j] = postings[last];
+                    postingWeights[term][j] = postingWeights[term][last];
+                    postingSizes[term] = last;
+                    break;
+                }
+            }
+        }
+        documentTerms[slot] = null;
+        documentWeights[slot] = null;
+        documentFields[slot] = null;
+        norms[slot] = 0;
+        freeSlots.push(slot);
+        return true;
+    }
+
+    // Until the next full refresh, terms new to the catalogue get the IDF of a single document.
+    private void changed(List<Integer> added) {
+        pendingChanges += Math.max(added.size(), 1);
+        if (pendingChanges >= Math.max(slots.size() / REFRESH_DIVISOR, 1)) {
+            refreshWeights();
+            return;
+        }
+        double documentCount = slots.size();
+        for (int slot : added) {
+            for (int term : documentTerms[slot]) {
+                if (idf[term] == 0) {
+                    idf[term] = (float) (Math.log((documentCount + 1) / 2) + 1);
+                }
+            }
+            norms[slot] = norm(slot);
+        }
+    }
+
+    private void refreshWeights() {
+        double documentCount = slots.size();
+        for (int term = 0; term < termCount; term++) {
+            int df = postingSizes[term];
+            idf[term] = df == 0 ? 0 : (float) (Math.log((documentCount + 1) / (df + 1)) + 1);
+        }
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (documentTerms[slot] != null) {
+                norms[slot] = norm(slot);
+            }
+        }
+        pendingChanges = 0;
+    }
+
+    private float norm(int slot) {
+        int[] terms = documentTerms[slot];
+        double sum = 0;
+        for (int i = 0; i < terms.length; i++) {
+            double weight = documentWeights[slot][i] * idf[terms[i]];
+            sum += weight * weight;
+        }
+        return (float) Math.sqrt(sum);
+    }
+
+    private int termId(String term) {
+        Integer existing = termIds.get(term);
+        if (existing != null) {
+            return existing;
+        }
+        int id = termCount++;
+        if (id == postingSizes.length) {
+            int capacity = id * 2;
+            postingSlots = Arrays.copyOf(postingSlots, capacity);
+            postingWeights = Arrays.copyOf(postingWeights, capacity);
+            postingSizes = Arrays.copyOf(postingSizes, capacity);
+            idf = Arrays.copyOf(idf, capacity);
+        }
+        postingSlots[id] = new int[4];
+        postingWeights[id] = new float[4];
+        termIds.put(term, id);
+        return id;
+    }
+
+    private void appendPosting(int term, int slot, float weight) {
+        int size = postingSizes[term];
+        if (size == postingSlots[term].length) {
+            postingSlots[term] = Arrays.copyOf(postingSlots[term], size * 2);
+            postingWeights[term] = Arrays.copyOf(postingWeights[term], size * 2);
+        }
+        postingSlots[term][size] = slot;
+        postingWeights[term][size] = weight;
+        postingSizes[term] = size + 1;
+    }
+
+    private void ensureSlotCapacity(int slot) {
+        if (slot < bookIds.length) {
+            return;
+        }
+        int capacity = bookIds.length * 2;
+        bookIds = Arrays.copyOf(bookIds, capacity);
+        documentTerms = Arrays.copyOf(documentTerms, capacity);
+        documentWeights = Arrays.copyOf(documentWeights, capacity);
+        norms = Arrays.copyOf(norms, capacity);
+        documentFields = Arrays.copyOf(documentFields, capacity);
+    }
+
+    private static Map<String, Float> termFrequencies(Fields fields) {
+        Map<String, Float> frequencies = new HashMap<>();
+        for (String token : TextTokenizer.tokenize(fields.title())) {
+            frequencies.merge("t:" + token, TITLE_WEIGHT, Float::sum);
+        }
+        for (String token : TextTokenizer.tokenize(fields.author())) {
+            frequencies.merge("a:" + token, AUTHOR_WEIGHT, Float::sum);
+        }
+        String genre = String.join(" ", TextTokenizer.tokenize(fields.genre()));
+        if (!genre.isEmpty()) {
+            frequencies.merge("g:" + genre, GENRE_WEIGHT, Float::sum);
+        }
+        return frequencies;
+    }
+
+    private record Fields(String title, String author, String genre) {
+        static Fields of(Book book) {
+            return new Fields(book.getTitle(), book.getAuthor(), book.getGenre());
+        }
+    }
+
+    private record Neighbour(long bookId, float score) {
+        private static final Comparator<Neighbour> WORST_FIRST = Comparator.comparingDouble(Neighbour::score)
+                .thenComparing(Comparator.comparingLong(Neighbour::bookId).reversed());
+    }
+}
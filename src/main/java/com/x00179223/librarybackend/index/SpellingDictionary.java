@@ -0,0 +1,240 @@
+package com.x00179223.librarybackend.index;
+
+import com.x00179223.librarybackend.model.Book;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Symmetric-delete (SymSpell) spelling dictionary built from catalogue tokens.
+ * Each term is stored under every variant of its prefix with up to two characters
+ * deleted, so a lookup only generates deletes of the input instead of scanning the vocabulary.
+ */
+@Component
+public class SpellingDictionary implements CatalogueIndex {
+
+    private static final int MAX_EDIT_DISTANCE = 2;
+    private static final int PREFIX_LENGTH = 7;
+    private static final int MIN_TERM_LENGTH = 2;
+    private static final int CANDIDATES_PER_TOKEN = 3;
+
+    private final Map<String, Integer> termCounts = new HashMap<>();
+    private final Map<String, Set<String>> deletes = new HashMap<>();
+    private final Map<Long, String[]> documentTerms = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @Override
+    public void rebuild(Collection<Book> books) {
+        lock.writeLock().lock();
+        try {
+            termCounts.clear();
+            deletes.clear();
+            documentTerms.clear();
+            for (Book book : books) {
+                add(book);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void index(Book book) {
+        if (book == null || book.getId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeDocument(book.getId());
+            add(book);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Long bookId) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(bookId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<String> lookup(String word, int limit) {
+        lock.readLock().lock();
+        try {
+            return candidates(word).stream().limit(limit).map(Candidate::term).toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns corrected versions of the whole query, best first. Tokens already in the
+     * dictionary are kept as typed; unknown tokens are replaced by their closest terms.
+     */
+    public List<String> suggest(String query, int limit) {
+        List<String> tokens = TextTokenizer.tokenize(query);
+        if (tokens.isEmpty()) {
+            return new ArrayList<>();
+        }
+        lock.readLock().lock();
+        try {
+            List<Suggestion> suggestions = List.of(new Suggestion("", 0, 0));
+            boolean corrected = false;
+            for (String token : tokens) {
+                List<Candidate> candidates = token.length() < MIN_TERM_LENGTH
+                        ? List.of(new Candidate(token, 0, 0))
+                        : candidates(token);
+                if (candidates.isEmpty()) {
+                    return new ArrayList<>();
+                }
+                if (candidates.get(0).distance() > 0) {
+                    corrected = true;
+                }
+                List<Suggestion> next = new ArrayList<>();
+                for (Suggestion suggestion : suggestions) {
+                    for (Candidate candidate : candidates.subList(0, Math.min(CANDIDATES_PER_TOKEN, candidates.size()))) {
+                        next.add(suggestion.append(candidate));
+                    }
+                }
+                next.sort(Comparator.comparingInt(Suggestion::distance).thenComparing(Suggestion::weight, Comparator.reverseOrder()));
+                suggestions = next.subList(0, Math.min(limit, next.size()));
+            }
+            if (!corrected) {
+                return new ArrayList<>();
+            }
+            return suggestions.stream().map(Suggestion::text).toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Candidate> candidates(String word) {
+        List<Candidate> candidates = new ArrayList<>();
+        if (word == null || word.isEmpty()) {
+            return candidates;
+        }
+        Integer exactCount = termCounts.get(word);
+        if (exactCount != null) {
+            candidates.add(new Candidate(word, 0, exactCount));
+            return candidates;
+        }
+        Set<String> seen = new HashSet<>();
+        for (String variant : deleteVariants(word)) {
+            for (String term : deletes.getOrDefault(variant, Collections.emptySet())) {
+                if (seen.add(term)) {
+                    int distance = editDistance(word, term, MAX_EDIT_DISTANCE);
+                    if (distance <= MAX_EDIT_DISTANCE) {
+                        candidates.add(new Candidate(term, distance, termCounts.get(term)));
+                    }
+                }
+            }
+        }
+        candidates.sort(Comparator.comparingInt(Candidate::distance)
+                .thenComparing(Candidate::count, Comparator.reverseOrder())
+                .thenComparing(Candidate::term));
+        return candidates;
+    }
+
+    private void add(Book book) {
+        Set<String> terms = new HashSet<>();
+        terms.addAll(TextTokenizer.tokenize(book.getTitle()));
+        terms.addAll(TextTokenizer.tokenize(book.getAuthor()));
+        terms.addAll(TextTokenizer.tokenize(book.getGenre()));
+        terms.removeIf(term -> term.length() < MIN_TERM_LENGTH);
+        for (String term : terms) {
+            if (termCounts.merge(term, 1, Integer::sum) == 1) {
+                for (String variant : deleteVariants(term)) {
+                    deletes.computeIfAbsent(variant, key -> new HashSet<>(2)).add(term);
+                }
+            }
+        }
+        documentTerms.put(book.getId(), terms.toArray(new String[0]));
+    }
+
+    private void removeDocument(Long bookId) {
+        String[] terms = documentTerms.remove(bookId);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms) {
+            if (termCounts.merge(term, -1, Integer::sum) == 0) {
+                termCounts.remove(term);
+                for (String variant : deleteVariants(term)) {
+                    Set<String> entries = deletes.get(variant);
+                    if (entries != null) {
+                        entries.remove(term);
+                        if (entries.isEmpty()) {
+                            deletes.remove(variant);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static Set<String> deleteVariants(String word) {
+        String prefix = word.length() > PREFIX_LENGTH ? word.substring(0, PREFIX_LENGTH) : word;
+        Set<String> variants = new HashSet<>();
+        variants.add(prefix);
+        collectDeletes(prefix, MAX_EDIT_DISTANCE, variants);
+        return variants;
+    }
+
+    private static void collectDeletes(String word, int remaining, Set<String> variants) {
+        if (remaining == 0 || word.length() <= 1) {
+            return;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            String variant = word.substring(0, i) + word.substring(i + 1);
+            if (variants.add(variant)) {
+                collectDeletes(variant, remaining - 1, variants);
+            }
+        }
+    }
+
+    // Optimal string alignment distance, abandoned as soon as it exceeds max.
+    static int editDistance(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) {
+            return max + 1;
+        }
+        int[][] d = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            d[i][0] = i;
+        }
+        for (int j = 0; j <= b.length(); j++) {
+            d[0][j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            int rowMin = Integer.MAX_VALUE;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1), d[i - 1][j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    value = Math.min(value, d[i - 2][j - 2] + 1);
+                }
+                d[i][j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+        }
+        return d[a.length()][b.length()];
+    }
+
+    private record Candidate(String term, int distance, int count) {
+    }
+
+    private record Suggestion(String text, int distance, long weight) {
+        Suggestion append(Candidate candidate) {
+            return new Suggestion(text.isEmpty() ? candidate.term() : text + " " + candidate.term(),
+                    distance + candidate.distance(), weight + candidate.count());
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.x00179223.librarybackend.index;
+
+import com.x00179223.librarybackend.repository.ReservationRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+/**
+ * Books ranked by exponentially decayed reservation counts. Scores use forward decay:
+ * a reservation at time t adds e^((t - landmark) / tau) instead of decaying every score
+ * on each tick, so all books age at the same rate and the ranking only changes when a
+ * reservation arrives. When the weights grow large the landmark moves forward, every
+ * score is rescaled and books that have gone cold are dropped.
+ */
+@Component
+public class TrendingIndex {
+
+    public static final int MAX_RESULTS = 100;
+    private static final double RENORMALIZE_EXPONENT = 40;
+    private static final double MIN_SCORE = 1e-6;
+    private static final int HALF_LIVES_TO_REPLAY = 6;
+
+    private static final Comparator<Entry> HOTTEST_FIRST = Comparator.comparingDouble(Entry::score).reversed()
+            .thenComparingLong(Entry::bookId);
+
+    private final ReservationRepository reservationRepository;
+    private final double tauSeconds;
+    private final Duration halfLife;
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private final NavigableSet<Entry> ranking = new TreeSet<>(HOTTEST_FIRST);
+    private long landmark = Long.MIN_VALUE;
+
+    @Autowired
+    public TrendingIndex(ReservationRepository reservationRepository, @Value("${library.trending.half-life-hours:72}") long halfLifeHours) {
+        this.reservationRepository = reservationRepository;
+        this.halfLife = Duration.ofHours(halfLifeHours);
+        this.tauSeconds = halfLife.toSeconds() / Math.log(2);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        LocalDateTime since = LocalDateTime.now().minus(halfLife.multipliedBy(HALF_LIVES_TO_REPLAY));
+        List<Object[]> reservations = reservationRepository.findBookReservationTimesSince(since);
+        synchronized (this) {
+            entries.clear();
+            ranking.clear();
+            landmark = Long.MIN_VALUE;
+            for (Object[] reservation : reservations) {
+                add((Long) reservation[0], (LocalDateTime) reservation[1]);
+            }
+        }
+    }
+
+    public synchronized void recorded(long bookId, LocalDateTime reservedAt) {
+        add(bookId, reservedAt);
+    }
+
+    /** The hottest books first; walks only the first {@code limit} entries of the ranking. */
+    public synchronized List<Long> top(int limit) {
+        int size = Math.min(Math.max(limit, 0), MAX_RESULTS);
+        List<Long> top = new ArrayList<>(Math.min(size, ranking.size()));
+        Iterator<Entry> iterator = ranking.iterator();
+        while (top.size() < size && iterator.hasNext()) {
+            top.add(iterator.next().bookId());
+        }
+        return top;
+    }
+
+    private void add(long bookId, LocalDateTime reservedAt) {
+        long seconds = reservedAt.toEpochSecond(ZoneOffset.UTC);
+        if (landmark == Long.MIN_VALUE) {
+            landmark = seconds;
+        }
+        if ((seconds - landmark) / tauSeconds > RENORMALIZE_EXPONENT) {
+            renormalize(seconds);
+        }
+        double weight = Math.exp((seconds - landmark) / tauSeconds);
+        Entry previous = entries.get(bookId);
+        double score = weight;
+        if (previous != null) {
+            ranking.remove(previous);
+            score += previous.score();
+        }
+        Entry entry = new Entry(bookId, score);
+        entries.put(bookId, entry);
+        ranking.add(entry);
+    }
+
+    private void renormalize(long newLandmark) {
+        double scale = Math.exp((landmark - newLandmark) / tauSeconds);
+        List<Entry> rescaled = new ArrayList<>(entries.size());
+        for (Entry entry : entries.values()) {
+            double score = entry.score() * scale;
+            if (score >= MIN_SCORE) {
+                rescaled.add(new Entry(entry.bookId(), score));
+            }
+        }
+        entries.clear();
+        ranking.clear();
+        for (Entry entry : rescaled) {
+            entries.put(entry.bookId(), entry);
+            ranking.add(entry);
+        }
+        landmark = newLandmark;
+    }
+
+    private record Entry(long bookId, double score) {
+    }
+}
@@ -0,0 +1,39 @@
+package com.x00179223.librarybackend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A patron waiting for a copy of a book with no stock. Holds on a book are served in id
+ * order, so the head of the queue is the first row of the (book_id, id) index. A patron
+ * holds at most one place in each queue.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "holds", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_holds_book_id_user_id", columnNames = {"book_id", "user_id"})
+}, indexes = {
+        @Index(name = "idx_holds_book_id_id", columnList = "book_id, id"),
+        @Index(name = "idx_holds_user_id", columnList = "user_id")
+})
+public class Hold {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "book_id")
+    private Book book;
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id")
+    private User user;
+    private LocalDateTime placedAt;
+}
@@ -0,0 +1,37 @@
+package com.x00179223.librarybackend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Copies of a book escrowed by one node. The row is decremented in the same transaction as
+ * each reservation served from it, so books.quantityAvailable plus every lease always adds
+ * up to the stock, even after the owning node dies. Owners renew their rows periodically;
+ * rows that stop being renewed are handed back to the books row by another node.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "inventory_leases", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_inventory_leases_node_book_id", columnNames = {"node", "bookId"})
+}, indexes = {
+        @Index(name = "idx_inventory_leases_renewed_at", columnList = "renewedAt")
+})
+public class InventoryLease {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Column(length = 64)
+    private String node;
+    private Long bookId;
+    private int copies;
+    private LocalDateTime renewedAt;
+}
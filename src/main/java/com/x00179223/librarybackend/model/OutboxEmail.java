@@ -0,0 +1,56 @@
+package com.x00179223.librarybackend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * An email waiting to be sent. Rows are written in the same transaction as the change they
+ * report and delivered later by {@code EmailOutboxDispatcher}, so a slow or unavailable mail
+ * server never blocks that transaction and a failed delivery is retried instead of lost.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "email_outbox", indexes = {
+        @Index(name = "idx_email_outbox_status_next_attempt_id", columnList = "status, nextAttemptAt, id"),
+        @Index(name = "idx_email_outbox_claim_token", columnList = "claimToken"),
+        @Index(name = "idx_email_outbox_status_sent_at", columnList = "status, sentAt")
+})
+public class OutboxEmail {
+
+    public enum Status {
+        PENDING, SENT, FAILED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "email_outbox_seq")
+    @SequenceGenerator(name = "email_outbox_seq", sequenceName = "email_outbox_seq", allocationSize = 50)
+    private Long id;
+    private String recipient;
+    private String subject;
+    @Column(length = 4000)
+    private String body;
+    // Set instead of subject and body for notifications that are merged into a per-patron digest.
+    @Column(length = 32)
+    private String notification;
+    @Column(length = 1000)
+    private String arguments;
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16)
+    private Status status;
+    private int attempts;
+    private LocalDateTime createdAt;
+    private LocalDateTime nextAttemptAt;
+    private LocalDateTime sentAt;
+    @Column(length = 36)
+    private String claimToken;
+    @Column(length = 500)
+    private String lastError;
+}
@@ -14,16 +14,20 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "reservations")
+@Table(name = "reservations", indexes = {
+        @Index(name = "idx_reservations_reserved_at_id", columnList = "reservedAt, id"),
+        @Index(name = "idx_reservations_pick_up_by", columnList = "pickUpBy"),
+        @Index(name = "idx_reservations_due_date", columnList = "dueDate")
+})
 public class Reservation {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "book_id")
     private Book book;
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     private User user;
     private LocalDateTime reservedAt;
@@ -32,5 +36,7 @@ public class Reservation {
     private LocalDateTime dueDate;
     private LocalDate lastFineAddedAt;
     private boolean returned;
+    private LocalDateTime returnedAt;
+    private LocalDateTime fineSettledAt;
 
 }
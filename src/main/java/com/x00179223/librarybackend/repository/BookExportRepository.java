@@ -0,0 +1,74 @@
+package com.x00179223.librarybackend.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Reads the books table through a forward-only cursor with a bounded fetch size, handing
+ * each row to the caller as it arrives instead of loading entities into a persistence context.
+ */
+@Repository
+public class BookExportRepository {
+
+    /** Exportable columns, keyed by the property name used in the JSON representation of a book. */
+    public static final Map<String, String> COLUMNS;
+
+    static {
+        Map<String, String> columns = new LinkedHashMap<>();
+        columns.put("id", "id");
+        columns.put("title", "title");
+        columns.put("author", "author");
+        columns.put("isbn", "isbn");
+        columns.put("genre", "genre");
+        columns.put("publicationYear", "publication_year");
+        columns.put("quantityAvailable", "quantity_available");
+        columns.put("rating", "rating");
+        columns.put("ratingCount", "rating_count");
+        columns.put("ratingTotal", "rating_total");
+        COLUMNS = Collections.unmodifiableMap(columns);
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int fetchSize;
+
+    @Autowired
+    public BookExportRepository(JdbcTemplate jdbcTemplate, @Value("${library.export.fetch-size:1000}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.fetchSize = fetchSize;
+    }
+
+    public void streamBooks(List<String> columns, Consumer<Object[]> rows) {
+        String sql = columns.stream()
+                .map(column -> {
+                    String name = COLUMNS.get(column);
+                    if (name == null) {
+                        throw new IllegalArgumentException("Unknown column " + column);
+                    }
+                    return name;
+                })
+                .collect(Collectors.joining(", ", "SELECT ", " FROM books ORDER BY id"));
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            return statement;
+        }, (RowCallbackHandler) resultSet -> {
+            Object[] row = new Object[columns.size()];
+            for (int i = 0; i < row.length; i++) {
+                row[i] = resultSet.getObject(i + 1);
+            }
+            rows.accept(row);
+        });
+    }
+}
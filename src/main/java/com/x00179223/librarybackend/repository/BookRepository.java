@@ -1,22 +1,30 @@
 package com.x00179223.librarybackend.repository;
 
+import com.x00179223.librarybackend.dto.BookSummary;
 import com.x00179223.librarybackend.model.Book;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.web.bind.annotation.RequestBody;
 
 import java.util.Collections;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 @Repository
 public interface BookRepository extends JpaRepository<Book, Long> {
+    String SUMMARY = "SELECT new com.x00179223.librarybackend.dto.BookSummary(b.id, b.title, b.author, b.ISBN, b.genre, "
+            + "b.publicationYear, b.quantityAvailable, b.rating) FROM Book b";
+
     @Query("SELECT b FROM Book b WHERE lower(concat(b.title, ' ', b.author, ' ', b.genre)) LIKE lower(concat('%', :query, '%'))")
-    List<Book> searchByTitleOrAuthorOrGenre(@Param("query") String query);
+    Slice<Book> searchByTitleOrAuthorOrGenre(@Param("query") String query, Pageable pageable);
 
     @Query("SELECT b.genre as genre, COUNT(b) as count FROM Book b GROUP BY b.genre")
     List<Map<String, Object>> countBooksByGenre();
@@ -24,5 +32,40 @@ public interface BookRepository extends JpaRepository<Book, Long> {
     @Query("SELECT DISTINCT b.genre FROM Book b")
     List<String> findDistinctGenres();
 
-    Page<Book> findByGenre(String genre, Pageable pageable);
+    @Query(value = SUMMARY, countQuery = "SELECT COUNT(b) FROM Book b")
+    Page<BookSummary> findAllSummaries(Pageable pageable);
+
+    @Query(value = SUMMARY + " WHERE b.genre = :genre", countQuery = "SELECT COUNT(b) FROM Book b WHERE b.genre = :genre")
+    Page<BookSummary> findSummariesByGenre(@Param("genre") String genre, Pageable pageable);
+
+    // Stock check and decrement in one statement, so concurrent reservations cannot oversell a copy.
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Book b SET b.quantityAvailable = b.quantityAvailable - 1 WHERE b.id = :id AND b.quantityAvailable > 0")
+    int takeCopy(@Param("id") Long id);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Book b SET b.quantityAvailable = b.quantityAvailable + 1 WHERE b.id = :id")
+    int returnCopy(@Param("id") Long id);
+
+    // Moves a whole block of copies into a node's escrow, or nothing if fewer than :count remain.
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Book b SET b.quantityAvailable = b.quantityAvailable - :count WHERE b.id = :id AND b.quantityAvailable >= :count")
+    int leaseCopies(@Param("id") Long id, @Param("count") int count);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Book b SET b.quantityAvailable = b.quantityAvailable + :count WHERE b.id = :id")
+    int returnCopies(@Param("id") Long id, @Param("count") int count);
+
+    @Query("SELECT b FROM Book b WHERE b.ISBN = :isbn")
+    Optional<Book> findByISBN(@Param("isbn") String isbn);
+
+    @Query("SELECT b.ISBN FROM Book b WHERE b.ISBN IN :isbns")
+    List<String> findExistingIsbns(@Param("isbns") Collection<String> isbns);
+
+    @Query("SELECT b.id, b.ISBN FROM Book b WHERE b.ISBN IS NOT NULL ORDER BY b.id")
+    List<Object[]> findIsbns();
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Book b SET b.ISBN = :isbn WHERE b.id = :id")
+    int updateIsbn(@Param("id") Long id, @Param("isbn") String isbn);
 }
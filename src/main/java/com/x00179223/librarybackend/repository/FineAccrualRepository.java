@@ -0,0 +1,97 @@
+package com.x00179223.librarybackend.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongConsumer;
+
+/**
+ * Set-based overdue fines. Candidates are streamed by id, then each chunk is fined with three
+ * statements whatever its size: lock the loans still due a fine today, add the fine to their
+ * patrons capped in SQL, and stamp the loans so the same day is never charged twice.
+ */
+@Repository
+public class FineAccrualRepository {
+
+    private static final String DUE_A_FINE = "r.checked_out_at IS NOT NULL AND r.returned = FALSE AND r.due_date < :now "
+            + "AND (r.last_fine_added_at IS NULL OR r.last_fine_added_at < :today)";
+
+    private static final String STREAM_SQL = "SELECT r.id FROM reservations r WHERE r.checked_out_at IS NOT NULL "
+            + "AND r.returned = FALSE AND r.due_date < ? AND (r.last_fine_added_at IS NULL OR r.last_fine_added_at < ?) "
+            + "AND r.user_id IS NOT NULL ORDER BY r.id";
+
+    // The title comes from a subquery so the lock does not extend to the books rows.
+    private static final String LOCK_SQL = "SELECT r.id, u.email, (SELECT b.title FROM books b WHERE b.id = r.book_id) "
+            + "FROM reservations r JOIN user u ON u.id = r.user_id WHERE r.id IN (:ids) AND " + DUE_A_FINE + " FOR UPDATE";
+
+    private static final String FINE_USERS_SQL = "UPDATE user u SET fine = LEAST(u.fine + CAST(:amount AS DECIMAL(10, 2)) * "
+            + "(SELECT COUNT(*) FROM reservations r WHERE r.user_id = u.id AND r.id IN (:ids)), CAST(:cap AS DECIMAL(10, 2))) "
+            + "WHERE u.id IN (SELECT r.user_id FROM reservations r WHERE r.id IN (:ids))";
+
+    private static final String STAMP_SQL = "UPDATE reservations SET last_fine_added_at = :today WHERE id IN (:ids)";
+
+    public record FinedLoan(long reservationId, String email, String title) {
+    }
+
+    public record ChunkResult(List<FinedLoan> fined, int usersUpdated) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final int fetchSize;
+
+    @Autowired
+    public FineAccrualRepository(JdbcTemplate jdbcTemplate, @Value("${library.export.fetch-size:1000}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.fetchSize = fetchSize;
+    }
+
+    public void streamDue(LocalDateTime now, LocalDate today, LongConsumer reservationIds) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(STREAM_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            statement.setTimestamp(1, Timestamp.valueOf(now));
+            statement.setDate(2, Date.valueOf(today));
+            return statement;
+        }, (RowCallbackHandler) resultSet -> reservationIds.accept(resultSet.getLong(1)));
+    }
+
+    /** Must run inside a transaction so the row locks hold until the fines are stamped. */
+    public ChunkResult fine(List<Long> reservationIds, LocalDateTime now, LocalDate today, double amount, double cap) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("ids", reservationIds)
+                .addValue("now", Timestamp.valueOf(now))
+                .addValue("today", Date.valueOf(today));
+        List<FinedLoan> fined = namedJdbcTemplate.query(LOCK_SQL, params,
+                (resultSet, row) -> new FinedLoan(resultSet.getLong(1), resultSet.getString(2), resultSet.getString(3)));
+        if (fined.isEmpty()) {
+            return new ChunkResult(fined, 0);
+        }
+        List<Long> ids = new ArrayList<>(fined.size());
+        for (FinedLoan loan : fined) {
+            ids.add(loan.reservationId());
+        }
+        MapSqlParameterSource update = new MapSqlParameterSource()
+                .addValue("ids", ids)
+                .addValue("amount", amount)
+                .addValue("cap", cap)
+                .addValue("today", Date.valueOf(today));
+        int users = namedJdbcTemplate.update(FINE_USERS_SQL, update);
+        namedJdbcTemplate.update(STAMP_SQL, update);
+        return new ChunkResult(fined, users);
+    }
+}
@@ -0,0 +1,37 @@
+package com.x00179223.librarybackend.repository;
+
+import com.x00179223.librarybackend.model.Hold;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface HoldRepository extends JpaRepository<Hold, Long> {
+
+    @Override
+    @EntityGraph(attributePaths = {"book", "user"})
+    Optional<Hold> findById(Long id);
+
+    @EntityGraph(attributePaths = {"book", "user"})
+    @Query("SELECT h FROM Hold h WHERE h.book.id = :bookId ORDER BY h.id")
+    List<Hold> findQueueHead(@Param("bookId") Long bookId, Pageable pageable);
+
+    @Query("SELECT h FROM Hold h WHERE h.book.id = :bookId AND h.user.id = :userId")
+    Optional<Hold> findByBookIdAndUserId(@Param("bookId") Long bookId, @Param("userId") Long userId);
+
+    @Query("SELECT COUNT(h) FROM Hold h WHERE h.book.id = :bookId AND h.id <= :holdId")
+    long countAhead(@Param("bookId") Long bookId, @Param("holdId") Long holdId);
+
+    // Claims a hold for promotion; 0 means another node promoted or the patron withdrew it first.
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM Hold h WHERE h.id = :id")
+    int claim(@Param("id") Long id);
+
+    @Query("SELECT DISTINCT h.book.id FROM Hold h WHERE h.book.quantityAvailable > 0")
+    List<Long> findBookIdsWithStock();
+}
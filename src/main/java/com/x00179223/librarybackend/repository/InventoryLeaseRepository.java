@@ -0,0 +1,57 @@
+package com.x00179223.librarybackend.repository;
+
+import com.x00179223.librarybackend.model.InventoryLease;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface InventoryLeaseRepository extends JpaRepository<InventoryLease, Long> {
+
+    // A locking read, so a lease committed after this transaction's snapshot is still found.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT l FROM InventoryLease l WHERE l.node = :node AND l.bookId = :bookId")
+    Optional<InventoryLease> findForUpdate(@Param("node") String node, @Param("bookId") Long bookId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT l FROM InventoryLease l WHERE l.id = :id")
+    Optional<InventoryLease> findByIdForUpdate(@Param("id") Long id);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE InventoryLease l SET l.copies = l.copies - 1 WHERE l.id = :id AND l.copies > 0")
+    int takeCopy(@Param("id") Long id);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE InventoryLease l SET l.copies = l.copies + :count, l.renewedAt = :now WHERE l.id = :id")
+    int credit(@Param("id") Long id, @Param("count") int count, @Param("now") LocalDateTime now);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE InventoryLease l SET l.copies = l.copies - :count WHERE l.id = :id AND l.copies >= :count")
+    int release(@Param("id") Long id, @Param("count") int count);
+
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM InventoryLease l WHERE l.id = :id AND l.copies = 0")
+    int deleteIfEmpty(@Param("id") Long id);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE InventoryLease l SET l.renewedAt = :now WHERE l.node = :node")
+    int renew(@Param("node") String node, @Param("now") LocalDateTime now);
+
+    @Query("SELECT l.id FROM InventoryLease l WHERE l.renewedAt < :cutoff")
+    List<Long> findStaleIds(@Param("cutoff") LocalDateTime cutoff);
+
+    @Query("SELECT l.id FROM InventoryLease l WHERE l.node = :node")
+    List<Long> findIdsByNode(@Param("node") String node);
+
+    @Query("SELECT COALESCE(SUM(l.copies), 0) FROM InventoryLease l WHERE l.bookId = :bookId")
+    long sumCopies(@Param("bookId") Long bookId);
+
+    @Query("SELECT l.bookId, SUM(l.copies) FROM InventoryLease l WHERE l.copies > 0 GROUP BY l.bookId")
+    List<Object[]> sumCopiesByBookId();
+}
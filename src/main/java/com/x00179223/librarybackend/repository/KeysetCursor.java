@@ -0,0 +1,30 @@
+package com.x00179223.librarybackend.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque {@code after} token for keyset pages: the sort the page was read with plus the
+ * sort value and id of its last row. A null sort value is encoded by leaving the value
+ * segment out, so it cannot be confused with a row whose value is the string "null".
+ */
+public record KeysetCursor(String sortField, String sortDirection, String value, long id) {
+
+    public String encode() {
+        String raw = sortField + "|" + sortDirection + "|" + id + (value == null ? "" : "|" + value);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static KeysetCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", 4);
+            if (parts.length < 3) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new KeysetCursor(parts[0], parts[1], parts.length == 4 ? parts[3] : null, Long.parseLong(parts[2]));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.x00179223.librarybackend.repository;
+
+import com.x00179223.librarybackend.dto.KeysetPage;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.*;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Seek pagination over any entity with a {@code Long id}: each page continues strictly
+ * after the (sort value, id) of the previous page's last row, so reading page N costs
+ * the same as page 1 and no count query is issued. Nulls in the sort field are taken to
+ * sort lowest, as MySQL and H2 order them, so they lead ascending pages and trail
+ * descending ones.
+ */
+@Repository
+public class KeysetRepository {
+
+    private static final String ID = "id";
+    private static final int MAX_PAGE_SIZE = 100;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public <T> KeysetPage<T> findPage(Class<T> type, Set<String> sortableFields, String sortField, String sortDirection,
+                                      String after, int size) {
+        return findPage(type, sortableFields, sortField, sortDirection, after, size, Set.of());
+    }
+
+    /**
+     * Same as {@link #findPage(Class, Set, String, String, String, int)} but fetch-joins the
+     * given to-one associations, so mapping the page does not lazily load them row by row.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public <T> KeysetPage<T> findPage(Class<T> type, Set<String> sortableFields, String sortField, String sortDirection,
+                                      String after, int size, Set<String> fetch) {
+        if (!sortableFields.contains(sortField)) {
+            throw new IllegalArgumentException("Cannot page by " + sortField + "; allowed fields are " + sortableFields);
+        }
+        size = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        boolean descending = "desc".equals(sortDirection);
+        String direction = descending ? "desc" : "asc";
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<T> query = cb.createQuery(type);
+        Root<T> root = query.from(type);
+        for (String association : fetch) {
+            root.fetch(association, JoinType.INNER);
+        }
+        Path<Comparable> sortPath = root.get(sortField);
+        Path<Long> idPath = root.get(ID);
+
+        if (after != null && !after.isBlank()) {
+            KeysetCursor cursor = KeysetCursor.decode(after);
+            if (!cursor.sortField().equals(sortField) || !cursor.sortDirection().equals(direction)) {
+                throw new IllegalArgumentException("Cursor was issued for a different sort order");
+            }
+            Predicate idAfter = descending ? cb.lessThan(idPath, cursor.id()) : cb.greaterThan(idPath, cursor.id());
+            if (ID.equals(sortField)) {
+                query.where(idAfter);
+            } else if (cursor.value() == null) {
+                Predicate nullsAfter = cb.and(cb.isNull(sortPath), idAfter);
+                query.where(descending ? nullsAfter : cb.or(nullsAfter, cb.isNotNull(sortPath)));
+            } else {
+                Comparable value = parse(cursor.value(), sortPath.getJavaType());
+                Predicate valueAfter = descending ? cb.lessThan(sortPath, value) : cb.greaterThan(sortPath, value);
+                Predicate rowAfter = cb.or(valueAfter, cb.and(cb.equal(sortPath, value), idAfter));
+                query.where(descending ? cb.or(rowAfter, cb.isNull(sortPath)) : rowAfter);
+            }
+        }
+        if (ID.equals(sortField)) {
+            query.orderBy(descending ? cb.desc(idPath) : cb.asc(idPath));
+        } else {
+            query.orderBy(descending ? cb.desc(sortPath) : cb.asc(sortPath), descending ? cb.desc(idPath) : cb.asc(idPath));
+        }
+
+        List<T> rows = entityManager.createQuery(query).setMaxResults(size + 1).getResultList();
+        boolean hasNext = rows.size() > size;
+        List<T> content = hasNext ? rows.subList(0, size) : rows;
+        String next = null;
+        if (hasNext) {
+            BeanWrapper last = PropertyAccessorFactory.forBeanPropertyAccess(content.get(content.size() - 1));
+            Object value = last.getPropertyValue(sortField);
+            next = new KeysetCursor(sortField, direction, value == null ? null : value.toString(), (Long) last.getPropertyValue(ID)).encode();
+        }
+        return KeysetPage.<T>builder()
+                .content(List.copyOf(content))
+                .size(size)
+                .hasNext(hasNext)
+                .next(next)
+                .build();
+    }
+
+    private static Comparable<?> parse(String value, Class<?> type) {
+        try {
+            if (type == String.class) {
+                return value;
+            } else if (type == Integer.class || type == int.class) {
+                return Integer.valueOf(value);
+            } else if (type == Long.class || type == long.class) {
+                return Long.valueOf(value);
+            } else if (type == Double.class || type == double.class) {
+                return Double.valueOf(value);
+            } else if (type == LocalDateTime.class) {
+                return LocalDateTime.parse(value);
+            } else if (type == LocalDate.class) {
+                return LocalDate.parse(value);
+            }
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+        throw new IllegalArgumentException("Unsupported keyset sort type " + type.getSimpleName());
+    }
+}
@@ -0,0 +1,43 @@
+package com.x00179223.librarybackend.repository;
+
+import com.x00179223.librarybackend.model.OutboxEmail;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface OutboxEmailRepository extends JpaRepository<OutboxEmail, Long> {
+
+    @Query("SELECT e.id FROM OutboxEmail e WHERE e.status = :status AND e.nextAttemptAt <= :now ORDER BY e.id")
+    List<Long> findDueIds(@Param("status") OutboxEmail.Status status, @Param("now") LocalDateTime now, Pageable pageable);
+
+    // Leases due rows to one dispatcher; rows another node claimed in the meantime no longer match.
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE OutboxEmail e SET e.claimToken = :token, e.nextAttemptAt = :leaseUntil "
+            + "WHERE e.id IN :ids AND e.status = :status AND e.nextAttemptAt <= :now")
+    int claim(@Param("ids") Collection<Long> ids, @Param("status") OutboxEmail.Status status, @Param("token") String token,
+              @Param("now") LocalDateTime now, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    // Pulls a patron's other queued notifications into the same lease so they share one digest.
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE OutboxEmail e SET e.claimToken = :token, e.nextAttemptAt = :leaseUntil "
+            + "WHERE e.recipient IN :recipients AND e.status = :status AND e.notification IS NOT NULL AND e.claimToken IS NULL")
+    int claimNotificationsFor(@Param("recipients") Collection<String> recipients, @Param("status") OutboxEmail.Status status,
+                              @Param("token") String token, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    List<OutboxEmail> findByClaimTokenOrderById(String claimToken);
+
+    @Query("SELECT e.id FROM OutboxEmail e WHERE e.status = :status AND e.sentAt < :before")
+    List<Long> findIdsSentBefore(@Param("status") OutboxEmail.Status status, @Param("before") LocalDateTime before, Pageable pageable);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM OutboxEmail e WHERE e.id IN :ids")
+    int deleteByIds(@Param("ids") Collection<Long> ids);
+
+    long countByStatus(OutboxEmail.Status status);
+}
@@ -0,0 +1,43 @@
+package com.x00179223.librarybackend.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+/**
+ * Streams every user/book rating as primitives through a forward-only cursor, so the
+ * recommendation job can read millions of rows without materialising entities.
+ */
+@Repository
+public class RatingMatrixRepository {
+
+    private static final String SQL = "SELECT user_id, book_id, rating FROM user_book_rating "
+            + "WHERE user_id IS NOT NULL AND book_id IS NOT NULL";
+
+    @FunctionalInterface
+    public interface RatingConsumer {
+        void accept(long userId, long bookId, float rating);
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int fetchSize;
+
+    @Autowired
+    public RatingMatrixRepository(JdbcTemplate jdbcTemplate, @Value("${library.export.fetch-size:1000}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.fetchSize = fetchSize;
+    }
+
+    public void streamRatings(RatingConsumer ratings) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            return statement;
+        }, (RowCallbackHandler) resultSet -> ratings.accept(resultSet.getLong(1), resultSet.getLong(2), resultSet.getFloat(3)));
+    }
+}
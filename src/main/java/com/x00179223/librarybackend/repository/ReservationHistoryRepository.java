@@ -0,0 +1,43 @@
+package com.x00179223.librarybackend.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+/**
+ * Streams (user, book) pairs from the reservations table ordered by user, so each
+ * patron's history arrives as one contiguous group.
+ */
+@Repository
+public class ReservationHistoryRepository {
+
+    private static final String SQL = "SELECT user_id, book_id FROM reservations "
+            + "WHERE user_id IS NOT NULL AND book_id IS NOT NULL ORDER BY user_id";
+
+    @FunctionalInterface
+    public interface ReservationConsumer {
+        void accept(long userId, long bookId);
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int fetchSize;
+
+    @Autowired
+    public ReservationHistoryRepository(JdbcTemplate jdbcTemplate, @Value("${library.export.fetch-size:1000}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.fetchSize = fetchSize;
+    }
+
+    public void streamByUser(ReservationConsumer reservations) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            return statement;
+        }, (RowCallbackHandler) resultSet -> reservations.accept(resultSet.getLong(1), resultSet.getLong(2)));
+    }
+}
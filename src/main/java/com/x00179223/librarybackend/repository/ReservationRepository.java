@@ -1,30 +1,96 @@
 package com.x00179223.librarybackend.repository;
 
 
+import com.x00179223.librarybackend.dto.ReservationSummary;
 import com.x00179223.librarybackend.model.Book;
 import com.x00179223.librarybackend.model.Reservation;
 import com.x00179223.librarybackend.model.User;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 public interface ReservationRepository extends JpaRepository<Reservation, Long> {
+    // Summaries only cover reservations that still have a book and a patron; the count must join the same way.
+    String SUMMARY_FROM = "FROM Reservation r JOIN r.book b JOIN r.user u";
+    String SUMMARY = "SELECT new com.x00179223.librarybackend.dto.ReservationSummary(r.id, b.id, b.title, b.author, "
+            + "u.id, u.firstname, u.lastname, u.email, r.reservedAt, r.pickUpBy, r.checkedOutAt, r.dueDate, r.returned) "
+            + SUMMARY_FROM;
+
+    @Override
+    @EntityGraph(attributePaths = {"book", "user"})
+    Optional<Reservation> findById(Long id);
+
+    @Query(value = SUMMARY, countQuery = "SELECT COUNT(r) " + SUMMARY_FROM)
+    Page<ReservationSummary> findAllSummaries(Pageable pageable);
+
+    @Query(SUMMARY + " WHERE u.id = :userId")
+    List<ReservationSummary> findSummariesByUserId(@Param("userId") Long userId);
+
     List<Reservation> findByUser(User user);
     List<Reservation> findByBook(Book book);
 
+    @EntityGraph(attributePaths = {"book", "user"})
     @Query("SELECT r FROM Reservation r WHERE r.pickUpBy < :now AND r.checkedOutAt IS NULL")
-    List<Reservation> findAllByPickUpByBeforeAndCheckedOutAtIsNull(LocalDateTime now);
+    List<Reservation> findAllByPickUpByBeforeAndCheckedOutAtIsNull(@Param("now") LocalDateTime now);
+
+    @Query("SELECT r.id, r.pickUpBy FROM Reservation r WHERE r.checkedOutAt IS NULL AND r.pickUpBy IS NOT NULL")
+    List<Object[]> findPickUpDeadlines();
+
+    @Query("SELECT r.id, r.dueDate FROM Reservation r WHERE r.checkedOutAt IS NOT NULL AND r.returned = false AND r.dueDate IS NOT NULL")
+    List<Object[]> findDueDates();
+
+    // Only deletes the reservation if it is still uncollected and past its pick-up date, so two nodes
+    // expiring it at once release the copy only once.
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM Reservation r WHERE r.id = :id AND r.checkedOutAt IS NULL AND r.pickUpBy < :now")
+    int deleteExpiredPickUp(@Param("id") Long id, @Param("now") LocalDateTime now);
 
+    @Query("SELECT r.book.id, r.reservedAt FROM Reservation r WHERE r.reservedAt >= :since AND r.book IS NOT NULL")
+    List<Object[]> findBookReservationTimesSince(@Param("since") LocalDateTime since);
+
+    @Query("SELECT r.book.id FROM Reservation r WHERE r.user.id = :userId AND r.book IS NOT NULL ORDER BY r.id DESC")
+    List<Long> findRecentBookIdsByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"book", "user"})
     @Query("SELECT r FROM Reservation r WHERE r.user.id = :userId")
-    List<Reservation> findReservationsByUserId(Long userId);
+    List<Reservation> findReservationsByUserId(@Param("userId") Long userId);
 
+    @EntityGraph(attributePaths = {"book", "user"})
     @Query("SELECT r FROM Reservation r WHERE r.checkedOutAt IS NOT NULL AND r.dueDate < :currentDateTime AND r.returned = false")
     List<Reservation> findAllByCheckedOutAtIsNotNullAndDueDateBeforeAndReturnedIsFalse(@Param("currentDateTime") LocalDateTime currentDateTime);
 
+    @Query("SELECT r.dueDate, r.returned, r.returnedAt, r.fineSettledAt FROM Reservation r "
+            + "WHERE r.user.id = :userId AND r.checkedOutAt IS NOT NULL AND r.dueDate IS NOT NULL")
+    List<Object[]> findLoanTermsByUserId(@Param("userId") Long userId);
+
+    @Query("SELECT r.user.id, r.dueDate, r.returned, r.returnedAt, r.fineSettledAt FROM Reservation r "
+            + "WHERE r.user.id IN :userIds AND r.checkedOutAt IS NOT NULL AND r.dueDate IS NOT NULL")
+    List<Object[]> findLoanTermsByUserIds(@Param("userIds") Collection<Long> userIds);
+
+    // Never moves a settlement point backwards, e.g. past the end of a day already charged by the stored model.
+    @Modifying
+    @Query("UPDATE Reservation r SET r.fineSettledAt = CASE WHEN r.fineSettledAt > :settledAt THEN r.fineSettledAt ELSE :settledAt END "
+            + "WHERE r.user.id = :userId AND r.checkedOutAt IS NOT NULL")
+    int settleFines(@Param("userId") Long userId, @Param("settledAt") LocalDateTime settledAt);
+
+    @Query("SELECT r.id, r.lastFineAddedAt, r.fineSettledAt FROM Reservation r "
+            + "WHERE r.checkedOutAt IS NOT NULL AND r.lastFineAddedAt IS NOT NULL")
+    List<Object[]> findStoredFineStamps();
+
+    @Modifying
+    @Query("UPDATE Reservation r SET r.fineSettledAt = :settledAt WHERE r.id IN :ids")
+    int settleLoans(@Param("ids") Collection<Long> ids, @Param("settledAt") LocalDateTime settledAt);
+
     @Query(value = "SELECT DATE(reserved_at - INTERVAL (DAYOFWEEK(reserved_at) - 1) DAY) AS startDateOfWeek, COUNT(*) AS count FROM reservations WHERE reserved_at >= DATE_SUB(CURDATE(), INTERVAL 3 MONTH) GROUP BY startDateOfWeek ORDER BY startDateOfWeek", nativeQuery = true)
     List<Map<String, Object>> findReservationsCountByWeek();
 
@@ -1,10 +1,16 @@
 package com.x00179223.librarybackend.repository;
 
+import com.x00179223.librarybackend.dto.UserSummary;
 import com.x00179223.librarybackend.model.Role;
 import com.x00179223.librarybackend.model.User;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,4 +23,11 @@ public interface UserRepository extends JpaRepository <User, Long>{
 
     Optional<User> findById(Long id);
 
+    @Query(value = "SELECT new com.x00179223.librarybackend.dto.UserSummary(u.id, u.firstname, u.lastname, u.email, u.role, u.fine) FROM User u",
+            countQuery = "SELECT COUNT(u) FROM User u")
+    Page<UserSummary> findAllSummaries(Pageable pageable);
+
+    @Query("SELECT u.id, u.fine FROM User u WHERE u.id IN :ids")
+    List<Object[]> findFinesByIds(@Param("ids") Collection<Long> ids);
+
 }
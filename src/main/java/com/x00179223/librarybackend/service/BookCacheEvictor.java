@@ -0,0 +1,131 @@
+package com.x00179223.librarybackend.service;
+
+import com.x00179223.librarybackend.config.CacheConfig;
+import com.x00179223.librarybackend.index.CatalogueIndex;
+import com.x00179223.librarybackend.model.Book;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Evicts cached catalogue reads for a book whenever the catalogue indexes see it change.
+ * Remembers each book's genre so that moving a book between genres drops the pages of both.
+ */
+@Component
+public class BookCacheEvictor implements CatalogueIndex {
+
+    private final CacheManager cacheManager;
+    private final Map<Long, String> genres = new ConcurrentHashMap<>();
+
+    @Autowired
+    public BookCacheEvictor(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    @Override
+    public void rebuild(Collection<Book> books) {
+        genres.clear();
+        for (Book book : books) {
+            if (book.getId() != null) {
+                genres.put(book.getId(), genreOf(book));
+            }
+        }
+        for (String name : List.of(CacheConfig.BOOKS, CacheConfig.BOOK_GENRES, CacheConfig.BOOKS_BY_GENRE, CacheConfig.BOOK_SEARCHES)) {
+            clear(name);
+        }
+    }
+
+    @Override
+    public void index(Book book) {
+        if (book == null || book.getId() == null) {
+            return;
+        }
+        String genre = genreOf(book);
+        String previousGenre = genres.put(book.getId(), genre);
+        evict(book.getId(), previousGenre);
+        if (!genre.equals(previousGenre)) {
+            evictGenrePages(genre);
+            clear(CacheConfig.BOOK_GENRES);
+        }
+    }
+
+    @Override
+    public void indexAll(Collection<Book> books) {
+        Set<String> touchedGenres = new HashSet<>();
+        Cache cached = cacheManager.getCache(CacheConfig.BOOKS);
+        for (Book book : books) {
+            if (book.getId() == null) {
+                continue;
+            }
+            String genre = genreOf(book);
+            String previousGenre = genres.put(book.getId(), genre);
+            touchedGenres.add(genre);
+            if (previousGenre != null) {
+                touchedGenres.add(previousGenre);
+            }
+            if (cached != null) {
+                cached.evict(book.getId());
+            }
+        }
+        touchedGenres.forEach(this::evictGenrePages);
+        clear(CacheConfig.BOOK_GENRES);
+        clear(CacheConfig.BOOK_SEARCHES);
+    }
+
+    // Search and genre pages are left to expire; dropping them on every reservation would empty them.
+    @Override
+    public void stockChanged(Long bookId, int delta) {
+        Cache books = cacheManager.getCache(CacheConfig.BOOKS);
+        if (books != null) {
+            books.evict(bookId);
+        }
+    }
+
+    @Override
+    public void remove(Long bookId) {
+        String previousGenre = genres.remove(bookId);
+        evict(bookId, previousGenre);
+        clear(CacheConfig.BOOK_GENRES);
+    }
+
+    private void evict(Long bookId, String genre) {
+        Cache books = cacheManager.getCache(CacheConfig.BOOKS);
+        if (books != null) {
+            books.evict(bookId);
+        }
+        evictGenrePages(genre);
+        clear(CacheConfig.BOOK_SEARCHES);
+    }
+
+    // Genre pages are keyed by {genre, page, size, sortField, sortDirection}.
+    private void evictGenrePages(String genre) {
+        Cache pages = cacheManager.getCache(CacheConfig.BOOKS_BY_GENRE);
+        if (genre == null || pages == null) {
+            return;
+        }
+        if (pages.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> caffeine) {
+            caffeine.asMap().keySet().removeIf(key -> key instanceof List<?> parts && !parts.isEmpty() && genre.equals(parts.get(0) == null ? "" : parts.get(0)));
+        } else {
+            pages.clear();
+        }
+    }
+
+    private void clear(String name) {
+        Cache cache = cacheManager.getCache(name);
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    private static String genreOf(Book book) {
+        return book.getGenre() == null ? "" : book.getGenre();
+    }
+}
@@ -0,0 +1,15 @@
+package com.x00179223.librarybackend.service;
+
+import com.x00179223.librarybackend.dto.ImportReport;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public interface BookImportService {
+
+    enum Format {
+        CSV, NDJSON
+    }
+
+    ImportReport importBooks(InputStream input, Format format, Integer batchSize) throws IOException;
+}
@@ -0,0 +1,364 @@
+package com.x00179223.librarybackend.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.x00179223.librarybackend.dto.ImportReport;
+import com.x00179223.librarybackend.dto.ImportRowError;
+import com.x00179223.librarybackend.index.CatalogueIndexer;
+import com.x00179223.librarybackend.index.Isbn;
+import com.x00179223.librarybackend.model.Book;
+import com.x00179223.librarybackend.repository.BookRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Year;
+import java.util.*;
+
+/**
+ * Reads CSV or NDJSON rows one at a time and persists them in batches, each batch in its
+ * own transaction followed by a flush and clear, so memory stays flat however large the
+ * upload is. Combined with {@code hibernate.jdbc.batch_size} and the pooled book id
+ * sequence, a batch costs a handful of round trips instead of two per row.
+ * <p>
+ * ISBNs are unique, so rows repeating an ISBN earlier in the batch or already in the
+ * catalogue are rejected before the batch is written. If a batch still fails, it is retried
+ * one row per transaction so that only the rows at fault are rejected.
+ */
+@Service
+public class BookImportServiceImpl implements BookImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(BookImportServiceImpl.class);
+    private static final int MAX_BATCH_SIZE = 5000;
+    private static final int MAX_REPORTED_ERRORS = 100;
+    private static final String MALFORMED = "\0malformed";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final TransactionTemplate transactionTemplate;
+    private final BookRepository bookRepository;
+    private final CatalogueIndexer catalogueIndexer;
+    private final ObjectMapper objectMapper;
+    private final int defaultBatchSize;
+
+    @Autowired
+    public BookImportServiceImpl(PlatformTransactionManager transactionManager, BookRepository bookRepository,
+                                 CatalogueIndexer catalogueIndexer, ObjectMapper objectMapper,
+                                 @Value("${library.import.batch-size:500}") int defaultBatchSize) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.bookRepository = bookRepository;
+        this.catalogueIndexer = catalogueIndexer;
+        this.objectMapper = objectMapper;
+        this.defaultBatchSize = defaultBatchSize;
+    }
+
+    @Override
+    public ImportReport importBooks(InputStream input, Format format, Integer batchSize) throws IOException {
+        int size = Math.max(1, Math.min(batchSize == null ? defaultBatchSize : batchSize, MAX_BATCH_SIZE));
+        long started = System.currentTimeMillis();
+        Progress progress = new Progress();
+        List<Row> batch = new ArrayList<>(size);
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        RowSource rows = format == Format.NDJSON ? new NdjsonRows(reader, objectMapper) : new CsvRows(reader);
+        Map<String, String> row;
+        while ((row = rows.next()) != null) {
+            long rowNumber = ++progress.rowsRead;
+            try {
+                batch.add(new Row(rowNumber, toBook(row)));
+            } catch (IllegalArgumentException e) {
+                progress.reject(rowNumber, e.getMessage());
+            }
+            if (batch.size() == size) {
+                flush(batch, progress);
+            }
+        }
+        flush(batch, progress);
+
+        return ImportReport.builder()
+                .rowsRead(progress.rowsRead)
+                .imported(progress.imported)
+                .rejected(progress.rejected)
+                .errors(progress.errors)
+                .elapsedMillis(System.currentTimeMillis() - started)
+                .build();
+    }
+
+    private void flush(List<Row> batch, Progress progress) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<Book> books = withoutDuplicateIsbns(batch, progress);
+        try {
+            persist(books);
+            catalogueIndexer.indexedAll(books);
+            progress.imported += books.size();
+        } catch (RuntimeException e) {
+            retryRowByRow(batch, books, progress);
+        }
+        log.info("Book import: {} rows read, {} imported, {} rejected", progress.rowsRead, progress.imported, progress.rejected);
+        batch.clear();
+    }
+
+    private List<Book> withoutDuplicateIsbns(List<Row> batch, Progress progress) {
+        Set<String> isbns = new HashSet<>();
+        for (Row row : batch) {
+            if (row.book().getISBN() != null) {
+                isbns.add(row.book().getISBN());
+            }
+        }
+        Set<String> taken = isbns.isEmpty() ? new HashSet<>() : new HashSet<>(bookRepository.findExistingIsbns(isbns));
+        Set<String> seen = new HashSet<>();
+        List<Book> books = new ArrayList<>(batch.size());
+        for (Row row : batch) {
+            String isbn = row.book().getISBN();
+            if (isbn != null && taken.contains(isbn)) {
+                progress.reject(row.number(), "ISBN " + isbn + " is already in the catalogue");
+            } else if (isbn != null && !seen.add(isbn)) {
+                progress.reject(row.number(), "ISBN " + isbn + " is repeated in this import");
+            } else {
+                books.add(row.book());
+            }
+        }
+        return books;
+    }
+
+    // Ids handed out by the rolled-back attempt are dropped so each book can be persisted afresh.
+    private void retryRowByRow(List<Row> batch, List<Book> books, Progress progress) {
+        Set<Book> pending = Collections.newSetFromMap(new IdentityHashMap<>());
+        pending.addAll(books);
+        List<Book> imported = new ArrayList<>(books.size());
+        for (Row row : batch) {
+            if (!pending.contains(row.book())) {
+                continue;
+            }
+            row.book().setId(null);
+            try {
+                persist(List.of(row.book()));
+                imported.add(row.book());
+            } catch (RuntimeException e) {
+                progress.reject(row.number(), "Could not be saved: " + e.getMessage());
+            }
+        }
+        if (!imported.isEmpty()) {
+            catalogueIndexer.indexedAll(imported);
+            progress.imported += imported.size();
+        }
+    }
+
+    private void persist(List<Book> books) {
+        if (books.isEmpty()) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            for (Book book : books) {
+                entityManager.persist(book);
+            }
+            entityManager.flush();
+            entityManager.clear();
+        });
+    }
+
+    private static Book toBook(Map<String, String> row) {
+        if (row.containsKey(MALFORMED)) {
+            throw new IllegalArgumentException("Malformed row: " + row.get(MALFORMED));
+        }
+        String title = trimToNull(row.get("title"));
+        String author = trimToNull(row.get("author"));
+        if (title == null) {
+            throw new IllegalArgumentException("title is required");
+        }
+        if (author == null) {
+            throw new IllegalArgumentException("author is required");
+        }
+        int publicationYear = parseInt(row, "publicationyear", 0);
+        if (publicationYear < 0 || publicationYear > Year.now().getValue() + 1) {
+            throw new IllegalArgumentException("publicationYear " + publicationYear + " is out of range");
+        }
+        int quantityAvailable = parseInt(row, "quantityavailable", 0);
+        if (quantityAvailable < 0) {
+            throw new IllegalArgumentException("quantityAvailable must not be negative");
+        }
+        return Book.builder()
+                .title(title)
+                .author(author)
+                .ISBN(isbn(row.get("isbn")))
+                .genre(trimToNull(row.get("genre")))
+                .publicationYear(publicationYear)
+                .quantityAvailable(quantityAvailable)
+                .build();
+    }
+
+    private static String isbn(String value) {
+        String isbn = trimToNull(value);
+        if (isbn == null) {
+            return null;
+        }
+        return Isbn.normalize(isbn).orElseThrow(() -> new IllegalArgumentException("ISBN " + isbn + " is not valid"));
+    }
+
+    private static int parseInt(Map<String, String> row, String column, int defaultValue) {
+        String value = trimToNull(row.get(column));
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(column + " is not a number: " + value);
+        }
+    }
+
+    private static String trimToNull(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        return value.trim();
+    }
+
+    private record Row(long number, Book book) {
+    }
+
+    private static final class Progress {
+        private long rowsRead;
+        private long imported;
+        private long rejected;
+        private final List<ImportRowError> errors = new ArrayList<>();
+
+        private void reject(long row, String message) {
+            rejected++;
+            error(row, message);
+        }
+
+        private void error(long row, String message) {
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(ImportRowError.builder().row(row).message(message).build());
+            }
+        }
+    }
+
+    private interface RowSource {
+        /** Next row keyed by lower-case column name, or null at end of input. */
+        Map<String, String> next() throws IOException;
+    }
+
+    private static final class NdjsonRows implements RowSource {
+        private final BufferedReader reader;
+        private final ObjectMapper objectMapper;
+
+        private NdjsonRows(BufferedReader reader, ObjectMapper objectMapper) {
+            this.reader = reader;
+            this.objectMapper = objectMapper;
+        }
+
+        @Override
+        public Map<String, String> next() throws IOException {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                JsonNode node;
+                try {
+                    node = objectMapper.readTree(line);
+                } catch (IOException e) {
+                    return Map.of(MALFORMED, "invalid JSON");
+                }
+                if (node == null || !node.isObject()) {
+                    return Map.of(MALFORMED, "expected a JSON object");
+                }
+                Map<String, String> row = new HashMap<>();
+                node.fields().forEachRemaining(field -> row.put(field.getKey().toLowerCase(Locale.ROOT),
+                        field.getValue().isNull() ? null : field.getValue().asText()));
+                return row;
+            }
+            return null;
+        }
+    }
+
+    private static final class CsvRows implements RowSource {
+        private final BufferedReader reader;
+        private List<String> header;
+
+        private CsvRows(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public Map<String, String> next() throws IOException {
+            if (header == null) {
+                List<String> names = readRecord();
+                if (names == null) {
+                    return null;
+                }
+                header = names.stream().map(name -> name.trim().toLowerCase(Locale.ROOT)).toList();
+            }
+            List<String> fields;
+            do {
+                fields = readRecord();
+            } while (fields != null && fields.size() == 1 && fields.get(0).isBlank());
+            if (fields == null) {
+                return null;
+            }
+            Map<String, String> row = new HashMap<>();
+            for (int i = 0; i < header.size() && i < fields.size(); i++) {
+                row.put(header.get(i), fields.get(i));
+            }
+            return row;
+        }
+
+        // RFC 4180: quoted fields may contain commas, doubled quotes and line breaks.
+        private List<String> readRecord() throws IOException {
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            boolean read = false;
+            int c;
+            while ((c = reader.read()) != -1) {
+                read = true;
+                if (quoted) {
+                    if (c == '"') {
+                        reader.mark(1);
+                        int next = reader.read();
+                        if (next == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            if (next != -1) {
+                                reader.reset();
+                            }
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n') {
+                    break;
+                } else if (c != '\r') {
+                    field.append((char) c);
+                }
+            }
+            if (!read) {
+                return null;
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.x00179223.librarybackend.service;
 
+import com.x00179223.librarybackend.index.CatalogueIndexer;
 import com.x00179223.librarybackend.model.Book;
 import com.x00179223.librarybackend.model.User;
 import com.x00179223.librarybackend.model.UserBookRating;
@@ -16,12 +17,14 @@ public class BookRatingServiceImpl implements BookRatingService  {
     private final BookRatingRepository bookRatingRepository;
     private final BookRepository bookRepository;
     private final UserService userService;
+    private final CatalogueIndexer catalogueIndexer;
 
     @Autowired
-    public BookRatingServiceImpl(BookRatingRepository bookRatingRepository, BookRepository bookRepository, UserService userService) {
+    public BookRatingServiceImpl(BookRatingRepository bookRatingRepository, BookRepository bookRepository, UserService userService, CatalogueIndexer catalogueIndexer) {
         this.bookRatingRepository = bookRatingRepository;
         this.bookRepository = bookRepository;
         this.userService = userService;
+        this.catalogueIndexer = catalogueIndexer;
     }
 
     @Override
@@ -57,6 +60,8 @@ public class BookRatingServiceImpl implements BookRatingService  {
         book.setRating(newRating);
         book.setRatingTotal(newRatingTotal);
         book.setRatingCount(newRatingCount);
-        return bookRepository.save(book);
+        Book savedBook = bookRepository.save(book);
+        catalogueIndexer.indexed(savedBook);
+        return savedBook;
     }
 }
@@ -4,16 +4,35 @@ import java.util.List;
 import java.util.Optional;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.x00179223.librarybackend.dto.BookBatchResponse;
+import com.x00179223.librarybackend.dto.BookSummary;
+import com.x00179223.librarybackend.dto.BookFilter;
+import com.x00179223.librarybackend.dto.FacetQuery;
+import com.x00179223.librarybackend.dto.FacetedSearchResponse;
+import com.x00179223.librarybackend.dto.KeysetPage;
 import com.x00179223.librarybackend.model.Book;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 
 public interface BookService {
     Optional<Book> findById(Long id);
-    Page<Book> findAll(int page, int size, String sortField, String sortDirection);
+    Optional<Book> findByIsbn(String isbn);
+    BookBatchResponse findAllById(List<Long> ids);
+    List<Book> findSimilar(Long id, int limit);
+    List<Book> findAlsoReserved(Long id, int limit);
+    List<Book> findTrending(int limit);
+    Page<BookSummary> findAll(int page, int size, String sortField, String sortDirection);
+    KeysetPage<BookSummary> findAllAfter(String after, int size, String sortField, String sortDirection);
     Book save(Book book);
     void delete(Long id);
+    Optional<Book> takeCopy(Long id);
+    Book returnCopy(Long id);
     Book update(Long id, Book book);
-    List<Book> searchByTitleOrAuthorOrGenre(String query) throws JsonProcessingException;
+    Slice<Book> searchByTitleOrAuthorOrGenre(String query, int page, int size) throws JsonProcessingException;
+    List<String> suggestCorrections(String query);
+    List<String> suggestCompletions(String prefix, int limit);
+    FacetedSearchResponse browse(FacetQuery query, int page, int size);
+    FacetedSearchResponse filter(BookFilter filter, int page, int size);
     List<String> findDistinctGenres();
-    Page<Book> findByGenre(String genre, int page, int size, String sortField, String sortDirection);
+    Page<BookSummary> findByGenre(String genre, int page, int size, String sortField, String sortDirection);
 }
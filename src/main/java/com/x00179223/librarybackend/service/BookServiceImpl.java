@@ -1,34 +1,133 @@
 package com.x00179223.librarybackend.service;
 
+import com.x00179223.librarybackend.config.CacheConfig;
+import com.x00179223.librarybackend.dto.BookBatchResponse;
+import com.x00179223.librarybackend.dto.BookSummary;
+import com.x00179223.librarybackend.dto.BookFilter;
+import com.x00179223.librarybackend.dto.FacetQuery;
+import com.x00179223.librarybackend.dto.FacetedSearchResponse;
+import com.x00179223.librarybackend.dto.KeysetPage;
+import com.x00179223.librarybackend.index.AutocompleteIndex;
+import com.x00179223.librarybackend.index.BookSearchIndex;
+import com.x00179223.librarybackend.index.CatalogueIndexer;
+import com.x00179223.librarybackend.index.CoReservationIndex;
+import com.x00179223.librarybackend.index.FacetIndex;
+import com.x00179223.librarybackend.index.Isbn;
+import com.x00179223.librarybackend.index.IsbnIndex;
+import com.x00179223.librarybackend.index.SimilarityIndex;
+import com.x00179223.librarybackend.index.SpellingDictionary;
+import com.x00179223.librarybackend.index.TrendingIndex;
 import com.x00179223.librarybackend.model.Book;
 import com.x00179223.librarybackend.repository.BookRepository;
+import com.x00179223.librarybackend.repository.KeysetRepository;
 import jakarta.persistence.EntityNotFoundException;
+import org.roaringbitmap.RoaringBitmap;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class BookServiceImpl implements BookService {
+    private static final int MAX_SUGGESTIONS = 5;
+    private static final int MAX_SEARCH_PAGE_SIZE = 100;
+    private static final int MAX_SEARCH_RESULTS = 1000;
+    private static final int MAX_BATCH_IDS = 500;
+    private static final Set<String> KEYSET_SORT_FIELDS = Set.of("id", "title", "author", "publicationYear", "rating");
+
     private final BookRepository bookRepository;
+    private final BookSearchIndex bookSearchIndex;
+    private final SpellingDictionary spellingDictionary;
+    private final AutocompleteIndex autocompleteIndex;
+    private final FacetIndex facetIndex;
+    private final IsbnIndex isbnIndex;
+    private final SimilarityIndex similarityIndex;
+    private final CoReservationIndex coReservationIndex;
+    private final TrendingIndex trendingIndex;
+    private final CatalogueIndexer catalogueIndexer;
+    private final KeysetRepository keysetRepository;
+    private final InventoryEscrow inventoryEscrow;
+    private final Cache searches;
 
     @Autowired
-    public BookServiceImpl(BookRepository bookRepository) {
+    public BookServiceImpl(BookRepository bookRepository, BookSearchIndex bookSearchIndex, SpellingDictionary spellingDictionary,
+                           AutocompleteIndex autocompleteIndex, FacetIndex facetIndex, IsbnIndex isbnIndex,
+                           SimilarityIndex similarityIndex, CoReservationIndex coReservationIndex, TrendingIndex trendingIndex,
+                           CatalogueIndexer catalogueIndexer, KeysetRepository keysetRepository, InventoryEscrow inventoryEscrow,
+                           CacheManager cacheManager) {
         this.bookRepository = bookRepository;
+        this.bookSearchIndex = bookSearchIndex;
+        this.spellingDictionary = spellingDictionary;
+        this.autocompleteIndex = autocompleteIndex;
+        this.facetIndex = facetIndex;
+        this.isbnIndex = isbnIndex;
+        this.similarityIndex = similarityIndex;
+        this.coReservationIndex = coReservationIndex;
+        this.trendingIndex = trendingIndex;
+        this.catalogueIndexer = catalogueIndexer;
+        this.keysetRepository = keysetRepository;
+        this.inventoryEscrow = inventoryEscrow;
+        this.searches = cacheManager.getCache(CacheConfig.BOOK_SEARCHES);
     }
 
     @Override
     public Book save(Book book) {
-        return bookRepository.save(book);
+        Isbn.normalize(book.getISBN()).ifPresent(book::setISBN);
+        Book savedBook = bookRepository.save(book);
+        catalogueIndexer.indexed(savedBook);
+        return savedBook;
+    }
+
+    /**
+     * Atomically takes one available copy. Returns the updated book, or empty when
+     * no copy was left at the moment of the update.
+     */
+    @Override
+    @Transactional
+    public Optional<Book> takeCopy(Long id) {
+        if (!inventoryEscrow.take(id)) {
+            return Optional.empty();
+        }
+        catalogueIndexer.stockChanged(id, -1);
+        return Optional.of(reload(id));
+    }
+
+    @Override
+    @Transactional
+    public Book returnCopy(Long id) {
+        if (!inventoryEscrow.giveBack(id) && bookRepository.returnCopy(id) == 0) {
+            throw new EntityNotFoundException("Book not found");
+        }
+        catalogueIndexer.stockChanged(id, 1);
+        return reload(id);
+    }
+
+    // Only the one-copy change reaches the indexes, after commit. Whether the copy came from the
+    // books row or from an escrow lease, the copies on the shelf change by exactly one.
+    private Book reload(Long id) {
+        return bookRepository.findById(id).orElseThrow(() -> new EntityNotFoundException("Book not found"));
     }
 
     @Override
     public void delete(Long id) {
         bookRepository.deleteById(id);
+        catalogueIndexer.removed(id);
     }
 
     @Override
@@ -40,16 +139,93 @@ public class BookServiceImpl implements BookService {
         existingBook.setQuantityAvailable(book.getQuantityAvailable());
         existingBook.setPublicationYear(book.getPublicationYear());
         existingBook.setRating(book.getRating());
-        return bookRepository.save(existingBook);
+        if (book.getISBN() != null) {
+            existingBook.setISBN(Isbn.normalize(book.getISBN()).orElse(book.getISBN()));
+        }
+        Book savedBook = bookRepository.save(existingBook);
+        catalogueIndexer.indexed(savedBook);
+        return savedBook;
+    }
+
+    /**
+     * Only the ranked ids of a page are cached; each call resolves them to fresh copies from the index,
+     * so callers never share a cached {@link Book} and always see the current stock.
+     */
+    @Override
+    public Slice<Book> searchByTitleOrAuthorOrGenre(String query, int page, int size) {
+        Pageable pageable = PageRequest.of(page, Math.min(size, MAX_SEARCH_PAGE_SIZE));
+        if (pageable.getOffset() >= MAX_SEARCH_RESULTS) {
+            return new SliceImpl<>(List.of(), pageable, false);
+        }
+        int offset = (int) pageable.getOffset();
+        // The last page before the cap is cut short so no page reaches past result MAX_SEARCH_RESULTS.
+        int limit = Math.min(pageable.getPageSize(), MAX_SEARCH_RESULTS - offset);
+        if (bookSearchIndex.isReady()) {
+            SearchHits hits = searches.get(Arrays.asList(query, page, size), () -> {
+                List<Book> books = bookSearchIndex.search(query, offset, limit + 1);
+                boolean hasNext = books.size() > limit && offset + limit < MAX_SEARCH_RESULTS;
+                return new SearchHits(books.stream().limit(limit).map(Book::getId).toList(), hasNext);
+            });
+            List<Book> books = new ArrayList<>(hits.bookIds().size());
+            for (Long bookId : hits.bookIds()) {
+                bookSearchIndex.document(bookId).ifPresent(books::add);
+            }
+            return new SliceImpl<>(books, pageable, hits.hasNext());
+        }
+        Slice<Book> books = bookRepository.searchByTitleOrAuthorOrGenre(query, pageable);
+        if (limit == pageable.getPageSize()) {
+            return books;
+        }
+        List<Book> content = books.getContent();
+        return new SliceImpl<>(content.subList(0, Math.min(content.size(), limit)), pageable, false);
+    }
+
+    @Override
+    public List<String> suggestCorrections(String query) {
+        return spellingDictionary.suggest(query, MAX_SUGGESTIONS).stream()
+                .filter(suggestion -> !bookSearchIndex.isReady() || !bookSearchIndex.search(suggestion, 0, 1).isEmpty())
+                .toList();
     }
 
     @Override
-    public List<Book> searchByTitleOrAuthorOrGenre(String query) {
-        return bookRepository.searchByTitleOrAuthorOrGenre(query);
+    public List<String> suggestCompletions(String prefix, int limit) {
+        return autocompleteIndex.suggest(prefix, limit);
     }
 
     @Override
-    public Page<Book> findAll(int page, int size, String sortField, String sortDirection) {
+    public FacetedSearchResponse browse(FacetQuery query, int page, int size) {
+        Pageable pageable = PageRequest.of(page, Math.min(size, MAX_SEARCH_PAGE_SIZE));
+        RoaringBitmap candidates = query.getQuery() == null || query.getQuery().isBlank() ? null : bookSearchIndex.matches(query.getQuery());
+        FacetIndex.Result result = facetIndex.query(query, candidates, (int) pageable.getOffset(), pageable.getPageSize());
+        return facetedResponse(result, pageable);
+    }
+
+    @Override
+    public FacetedSearchResponse filter(BookFilter filter, int page, int size) {
+        Pageable pageable = PageRequest.of(page, Math.min(size, MAX_SEARCH_PAGE_SIZE));
+        FacetIndex.Result result = facetIndex.filter(filter, (int) pageable.getOffset(), pageable.getPageSize());
+        return facetedResponse(result, pageable);
+    }
+
+    private FacetedSearchResponse facetedResponse(FacetIndex.Result result, Pageable pageable) {
+        List<Book> books = result.bookIds().stream()
+                .map(bookSearchIndex::document)
+                .flatMap(Optional::stream)
+                .toList();
+        return FacetedSearchResponse.builder()
+                .books(books)
+                .page(pageable.getPageNumber())
+                .size(pageable.getPageSize())
+                .totalElements(result.totalElements())
+                .genres(result.genres())
+                .publicationYears(result.publicationYears())
+                .ratings(result.ratings())
+                .availability(result.availability())
+                .build();
+    }
+
+    @Override
+    public Page<BookSummary> findAll(int page, int size, String sortField, String sortDirection) {
         Sort sort = Sort.by(sortField);
         if ("desc".equals(sortDirection)) {
             sort = sort.descending();
@@ -57,29 +233,121 @@ public class BookServiceImpl implements BookService {
 
         Pageable pageable = PageRequest.of(page, size, sort);
 
-        return bookRepository.findAll(pageable);
+        return bookRepository.findAllSummaries(pageable);
     }
 
     @Override
+    public KeysetPage<BookSummary> findAllAfter(String after, int size, String sortField, String sortDirection) {
+        return keysetRepository.findPage(Book.class, KEYSET_SORT_FIELDS, sortField, sortDirection, after, size)
+                .map(BookSummary::from);
+    }
+
+    @Override
+    @Cacheable(cacheNames = CacheConfig.BOOKS, key = "#p0", unless = "#result == null")
     public Optional<Book> findById(Long id) {
         return bookRepository.findById(id);
     }
 
+    /**
+     * Resolves every id from the in-memory catalogue first and loads whatever is left with a
+     * single IN query. Books come back in request order with duplicates dropped, and ids that
+     * matched nothing are listed in {@code missing}.
+     */
+    @Override
+    public BookBatchResponse findAllById(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return new BookBatchResponse(List.of(), List.of());
+        }
+        Set<Long> requested = new LinkedHashSet<>(ids);
+        requested.remove(null);
+        if (requested.size() > MAX_BATCH_IDS) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_IDS + " ids can be requested at once");
+        }
+        Map<Long, Book> found = new HashMap<>();
+        if (bookSearchIndex.isReady()) {
+            for (Long id : requested) {
+                bookSearchIndex.document(id).ifPresent(book -> found.put(id, book));
+            }
+        }
+        if (found.size() < requested.size()) {
+            List<Long> remaining = requested.stream().filter(id -> !found.containsKey(id)).toList();
+            for (Book book : bookRepository.findAllById(remaining)) {
+                found.put(book.getId(), book);
+            }
+        }
+        List<Book> books = new ArrayList<>(found.size());
+        List<Long> missing = new ArrayList<>();
+        for (Long id : requested) {
+            Book book = found.get(id);
+            if (book != null) {
+                books.add(book);
+            } else {
+                missing.add(id);
+            }
+        }
+        return new BookBatchResponse(books, missing);
+    }
+
+    @Override
+    public List<Book> findSimilar(Long id, int limit) {
+        if (!similarityIndex.isReady()) {
+            return List.of();
+        }
+        if (!similarityIndex.contains(id)) {
+            throw new EntityNotFoundException("Book not found");
+        }
+        return findAllById(similarityIndex.similar(id, limit)).getBooks();
+    }
+
     @Override
+    public List<Book> findAlsoReserved(Long id, int limit) {
+        if (!(bookSearchIndex.isReady() && bookSearchIndex.contains(id)) && !bookRepository.existsById(id)) {
+            throw new EntityNotFoundException("Book not found");
+        }
+        List<Long> bookIds = coReservationIndex.alsoReserved(id, limit);
+        if (bookIds.isEmpty()) {
+            return List.of();
+        }
+        return findAllById(bookIds).getBooks();
+    }
+
+    @Override
+    public List<Book> findTrending(int limit) {
+        List<Long> bookIds = trendingIndex.top(limit);
+        if (bookIds.isEmpty()) {
+            return List.of();
+        }
+        return findAllById(bookIds).getBooks();
+    }
+
+    @Override
+    public Optional<Book> findByIsbn(String isbn) {
+        String isbn13 = Isbn.normalize(isbn).orElseThrow(() -> new IllegalArgumentException("Invalid ISBN " + isbn));
+        if (isbnIndex.isReady()) {
+            return isbnIndex.find(isbn13);
+        }
+        return bookRepository.findByISBN(isbn13);
+    }
+
+    @Override
+    @Cacheable(CacheConfig.BOOK_GENRES)
     public List<String> findDistinctGenres() {
         return bookRepository.findDistinctGenres();
     }
 
     @Override
-    public Page<Book> findByGenre(String genre, int page, int size, String sortField, String sortDirection) {
+    @Cacheable(cacheNames = CacheConfig.BOOKS_BY_GENRE, key = "{#p0, #p1, #p2, #p3, #p4}")
+    public Page<BookSummary> findByGenre(String genre, int page, int size, String sortField, String sortDirection) {
         Sort sort = Sort.by(sortField);
         if ("desc".equals(sortDirection)) {
             sort = sort.descending();
         }
 
         Pageable pageable = PageRequest.of(page, size, sort);
-        return bookRepository.findByGenre(genre, pageable);
+        return bookRepository.findSummariesByGenre(genre, pageable);
     }
 
+    private record SearchHits(List<Long> bookIds, boolean hasNext) {
+    }
 
 }
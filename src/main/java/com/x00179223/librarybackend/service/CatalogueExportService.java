@@ -0,0 +1,15 @@
+package com.x00179223.librarybackend.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+public interface CatalogueExportService {
+
+    enum Format {
+        JSON, NDJSON, CSV
+    }
+
+    List<String> resolveColumns(List<String> requested);
+    void exportBooks(Format format, List<String> columns, OutputStream out) throws IOException;
+}
@@ -0,0 +1,120 @@
+package com.x00179223.librarybackend.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.x00179223.librarybackend.repository.BookExportRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+@Service
+public class CatalogueExportServiceImpl implements CatalogueExportService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final BookExportRepository bookExportRepository;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public CatalogueExportServiceImpl(BookExportRepository bookExportRepository, ObjectMapper objectMapper) {
+        this.bookExportRepository = bookExportRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public List<String> resolveColumns(List<String> requested) {
+        if (requested == null || requested.isEmpty()) {
+            return new ArrayList<>(BookExportRepository.COLUMNS.keySet());
+        }
+        List<String> columns = new ArrayList<>();
+        for (String column : requested) {
+            String name = BookExportRepository.COLUMNS.keySet().stream()
+                    .filter(candidate -> candidate.equalsIgnoreCase(column.trim()))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Unknown column " + column
+                            + "; allowed columns are " + BookExportRepository.COLUMNS.keySet()));
+            if (!columns.contains(name)) {
+                columns.add(name);
+            }
+        }
+        return columns;
+    }
+
+    @Override
+    public void exportBooks(Format format, List<String> columns, OutputStream out) throws IOException {
+        OutputStream buffered = new BufferedOutputStream(out, BUFFER_SIZE);
+        try {
+            if (format == Format.CSV) {
+                writeCsv(columns, new BufferedWriter(new OutputStreamWriter(buffered, StandardCharsets.UTF_8), BUFFER_SIZE));
+            } else {
+                writeJson(format == Format.NDJSON, columns, buffered);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        buffered.flush();
+    }
+
+    private void writeJson(boolean newlineDelimited, List<String> columns, OutputStream out) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        if (newlineDelimited) {
+            generator.setRootValueSeparator(null);
+        } else {
+            generator.writeStartArray();
+        }
+        bookExportRepository.streamBooks(columns, row -> {
+            try {
+                generator.writeStartObject();
+                for (int i = 0; i < row.length; i++) {
+                    generator.writeFieldName(columns.get(i));
+                    generator.writeObject(row[i]);
+                }
+                generator.writeEndObject();
+                if (newlineDelimited) {
+                    generator.writeRaw('\n');
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        if (!newlineDelimited) {
+            generator.writeEndArray();
+        }
+        generator.flush();
+    }
+
+    private void writeCsv(List<String> columns, Writer writer) throws IOException {
+        writer.write(String.join(",", columns));
+        writer.write("\r\n");
+        bookExportRepository.streamBooks(columns, row -> {
+            try {
+                for (int i = 0; i < row.length; i++) {
+                    if (i > 0) {
+                        writer.write(',');
+                    }
+                    writer.write(csvValue(row[i]));
+                }
+                writer.write("\r\n");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        writer.flush();
+    }
+
+    private static String csvValue(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return "\"" + text.replace("\"", "\"\"") + "\"";
+    }
+}
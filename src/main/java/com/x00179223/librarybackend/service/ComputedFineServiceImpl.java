@@ -0,0 +1,221 @@
+package com.x00179223.librarybackend.service;
+
+import com.x00179223.librarybackend.config.CacheConfig;
+import com.x00179223.librarybackend.exception.ResourceNotFoundException;
+import com.x00179223.librarybackend.model.User;
+import com.x00179223.librarybackend.repository.ReservationRepository;
+import com.x00179223.librarybackend.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+
+/**
+ * Fines derived from loan dates when they are read, so nothing has to be written on a timer.
+ * A loan is charged {@link #FINE_PER_DAY} as soon as it passes its due date and again every
+ * 24 hours until it is returned; paying a fine stamps {@code fineSettledAt} on the patron's
+ * loans and only charges after that moment count. The total is capped at {@link #MAX_FINE}.
+ * <p>
+ * {@code User.fine} is carried over as it stands, so on startup every loan the stored model has
+ * charged is settled up to the end of its last charged day; from then on only this model charges
+ * it and nothing already on {@code User.fine} is counted a second time.
+ * <p>
+ * Each patron's loan terms are cached, not the balance, so a cached entry stays exact as time
+ * passes and only has to be dropped when the patron's loans change.
+ */
+@Service
+@ConditionalOnProperty(name = "library.fines.mode", havingValue = "computed")
+public class ComputedFineServiceImpl implements FineService {
+
+    private static final Logger log = LoggerFactory.getLogger(ComputedFineServiceImpl.class);
+    private static final long DAY_SECONDS = Duration.ofDays(1).toSeconds();
+    private static final int ADOPT_CHUNK = 500;
+
+    private final ReservationRepository reservationRepository;
+    private final UserRepository userRepository;
+    private final UserService userService;
+    private final Cache ledgers;
+
+    @Autowired
+    public ComputedFineServiceImpl(ReservationRepository reservationRepository, UserRepository userRepository,
+                                   UserService userService, CacheManager cacheManager) {
+        this.reservationRepository = reservationRepository;
+        this.userRepository = userRepository;
+        this.userService = userService;
+        this.ledgers = cacheManager.getCache(CacheConfig.FINES);
+    }
+
+    @Override
+    public double balance(Long userId) {
+        return balanceAt(userId, LocalDateTime.now());
+    }
+
+    public double balanceAt(Long userId, LocalDateTime now) {
+        Ledger ledger = ledgers.get(userId, () -> load(userId));
+        return ledger.balanceAt(now);
+    }
+
+    @Override
+    public Map<Long, Double> balances(Collection<Long> userIds) {
+        return balancesAt(userIds, LocalDateTime.now());
+    }
+
+    /** Cached ledgers are used as they are; the rest are loaded with one query for fines and one for loans. */
+    public Map<Long, Double> balancesAt(Collection<Long> userIds, LocalDateTime now) {
+        Map<Long, Ledger> found = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long userId : userIds) {
+            Ledger ledger = ledgers.get(userId, Ledger.class);
+            if (ledger != null) {
+                found.put(userId, ledger);
+            } else {
+                missing.add(userId);
+            }
+        }
+        if (!missing.isEmpty()) {
+            Map<Long, List<Object[]>> terms = new HashMap<>();
+            for (Object[] row : reservationRepository.findLoanTermsByUserIds(missing)) {
+                terms.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add(Arrays.copyOfRange(row, 1, row.length));
+            }
+            for (Object[] fine : userRepository.findFinesByIds(missing)) {
+                Long userId = (Long) fine[0];
+                Ledger ledger = ledger((Double) fine[1], terms.getOrDefault(userId, List.of()));
+                ledgers.putIfAbsent(userId, ledger);
+                found.put(userId, ledger);
+            }
+        }
+        Map<Long, Double> balances = new LinkedHashMap<>();
+        for (Long userId : userIds) {
+            Ledger ledger = found.get(userId);
+            if (ledger != null) {
+                balances.put(userId, ledger.balanceAt(now));
+            }
+        }
+        return balances;
+    }
+
+    @Override
+    @Transactional
+    public void settle(Long userId) {
+        User user = user(userId);
+        reservationRepository.settleFines(userId, LocalDateTime.now());
+        if (user.getFine() != 0.0) {
+            user.setFine(0.0);
+            userService.addFine(user);
+        }
+        evictAfterCommit(userId);
+    }
+
+    @Override
+    public boolean computesCharges() {
+        return true;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void adoptStoredFines() {
+        Map<LocalDate, List<Long>> byLastCharge = new TreeMap<>();
+        for (Object[] stamps : reservationRepository.findStoredFineStamps()) {
+            LocalDate lastFineAddedAt = (LocalDate) stamps[1];
+            LocalDateTime settledAt = (LocalDateTime) stamps[2];
+            if (settledAt == null || settledAt.isBefore(lastFineAddedAt.atStartOfDay())) {
+                byLastCharge.computeIfAbsent(lastFineAddedAt, day -> new ArrayList<>()).add((Long) stamps[0]);
+            }
+        }
+        int adopted = 0;
+        for (Map.Entry<LocalDate, List<Long>> day : byLastCharge.entrySet()) {
+            List<Long> ids = day.getValue();
+            for (int from = 0; from < ids.size(); from += ADOPT_CHUNK) {
+                adopted += reservationRepository.settleLoans(ids.subList(from, Math.min(from + ADOPT_CHUNK, ids.size())),
+                        day.getKey().atTime(LocalTime.MAX));
+            }
+        }
+        if (adopted > 0) {
+            ledgers.clear();
+            log.info("Fines of {} loans charged by the stored model carried over", adopted);
+        }
+    }
+
+    @Override
+    public void loansChanged(Long userId) {
+        if (userId != null) {
+            evictAfterCommit(userId);
+        }
+    }
+
+    // A read between the eviction and the commit would cache the old loans again, so evict once more after commit.
+    private void evictAfterCommit(Long userId) {
+        ledgers.evict(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    ledgers.evict(userId);
+                }
+            });
+        }
+    }
+
+    private Ledger load(Long userId) {
+        return ledger(user(userId).getFine(), reservationRepository.findLoanTermsByUserId(userId));
+    }
+
+    private static Ledger ledger(double carried, List<Object[]> loans) {
+        List<Loan> open = new ArrayList<>();
+        long closedDays = 0;
+        for (Object[] terms : loans) {
+            LocalDateTime dueDate = (LocalDateTime) terms[0];
+            boolean returned = Boolean.TRUE.equals(terms[1]);
+            LocalDateTime returnedAt = (LocalDateTime) terms[2];
+            LocalDateTime settledAt = (LocalDateTime) terms[3];
+            if (!returned) {
+                open.add(new Loan(dueDate, settledAt));
+            } else if (returnedAt != null) {
+                closedDays += new Loan(dueDate, settledAt).chargedDays(returnedAt);
+            }
+        }
+        return new Ledger(carried + closedDays * FINE_PER_DAY, open);
+    }
+
+    private User user(Long userId) {
+        return userService.findById(userId).orElseThrow(() -> new ResourceNotFoundException("User not found"));
+    }
+
+    private record Ledger(double fixed, List<Loan> open) {
+        double balanceAt(LocalDateTime now) {
+            long days = 0;
+            for (Loan loan : open) {
+                days += loan.chargedDays(now);
+            }
+            return Math.min(fixed + days * FINE_PER_DAY, MAX_FINE);
+        }
+    }
+
+    private record Loan(LocalDateTime dueDate, LocalDateTime settledAt) {
+        // Charges fall at dueDate, dueDate + 1 day, ...; count those after settledAt and up to end.
+        long chargedDays(LocalDateTime end) {
+            return Math.max(chargesUpTo(end) - (settledAt == null ? 0 : chargesUpTo(settledAt)), 0);
+        }
+
+        private long chargesUpTo(LocalDateTime time) {
+            if (!time.isAfter(dueDate)) {
+                return 0;
+            }
+            return Duration.between(dueDate, time).toSeconds() / DAY_SECONDS + 1;
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.x00179223.librarybackend.service;
+
+import com.x00179223.librarybackend.model.OutboxEmail;
+import com.x00179223.librarybackend.repository.OutboxEmailRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Drains the email outbox. Each batch is leased with a claim token so nodes never pick up
+ * the same rows, then handed to the mail sender in one call so the whole batch shares a
+ * single SMTP connection. Once any notification for a patron is due, all of that patron's
+ * queued notifications are leased with it and rendered into a single digest, so mail volume
+ * follows patrons rather than reservations. Failed deliveries back off exponentially and are given up after
+ * {@link #MAX_ATTEMPTS}. Each recipient gets at most {@code per-recipient-per-hour} emails
+ * an hour from this node; anything over that is pushed back until the window frees up.
+ * Delivered rows are kept for {@code retention-days} and then purged in batches.
+ */
+@Component
+public class EmailOutboxDispatcher {
+
+    static final int MAX_ATTEMPTS = 8;
+    private static final Logger log = LoggerFactory.getLogger(EmailOutboxDispatcher.class);
+    private static final Duration BASE_BACKOFF = Duration.ofSeconds(30);
+    private static final Duration MAX_BACKOFF = Duration.ofHours(2);
+    private static final Duration CLAIM_TIMEOUT = Duration.ofMinutes(5);
+    private static final Duration RATE_WINDOW = Duration.ofHours(1);
+    private static final int MAX_BATCHES_PER_RUN = 20;
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private final OutboxEmailRepository outboxEmailRepository;
+    private final JavaMailSender mailSender;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int perRecipientPerHour;
+    private final Duration retention;
+    private final Map<String, Deque<LocalDateTime>> recentlySent = new HashMap<>();
+
+    @Autowired
+    public EmailOutboxDispatcher(OutboxEmailRepository outboxEmailRepository, JavaMailSender mailSender, PlatformTransactionManager transactionManager,
+                                 @Value("${library.mail.outbox.batch-size:50}") int batchSize,
+                                 @Value("${library.mail.outbox.per-recipient-per-hour:20}") int perRecipientPerHour,
+                                 @Value("${library.mail.outbox.retention-days:30}") int retentionDays) {
+        this.outboxEmailRepository = outboxEmailRepository;
+        this.mailSender = mailSender;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = Math.max(batchSize, 1);
+        this.perRecipientPerHour = Math.max(perRecipientPerHour, 1);
+        this.retention = Duration.ofDays(Math.max(retentionDays, 1));
+    }
+
+    @Scheduled(initialDelayString = "${library.mail.outbox.poll-ms:5000}", fixedDelayString = "${library.mail.outbox.poll-ms:5000}")
+    public void dispatch() {
+        dispatch(LocalDateTime.now());
+    }
+
+    /** Returns the number of emails delivered. */
+    public int dispatch(LocalDateTime now) {
+        int sent = 0;
+        for (int batch = 0; batch < MAX_BATCHES_PER_RUN; batch++) {
+            List<OutboxEmail> claimed = claim(now);
+            if (claimed.isEmpty()) {
+                break;
+            }
+            sent += deliver(claimed, now);
+            transactionTemplate.executeWithoutResult(status -> outboxEmailRepository.saveAll(claimed));
+        }
+        if (sent > 0) {
+            log.info("Delivered {} queued emails", sent);
+        }
+        return sent;
+    }
+
+    @Scheduled(initialDelayString = "${library.mail.outbox.purge-interval-ms:3600000}",
+            fixedDelayString = "${library.mail.outbox.purge-interval-ms:3600000}")
+    public void purge() {
+        purge(LocalDateTime.now());
+    }
+
+    /** Deletes emails delivered more than the retention period before {@code now}; returns how many. */
+    public int purge(LocalDateTime now) {
+        LocalDateTime before = now.minus(retention);
+        int purged = 0;
+        int deleted;
+        do {
+            deleted = Objects.requireNonNull(transactionTemplate.execute(status -> {
+                List<Long> ids = outboxEmailRepository.findIdsSentBefore(OutboxEmail.Status.SENT, before, PageRequest.of(0, batchSize));
+                return ids.isEmpty() ? 0 : outboxEmailRepository.deleteByIds(ids);
+            }));
+            purged += deleted;
+        } while (deleted > 0);
+        if (purged > 0) {
+            log.info("Purged {} delivered emails older than {}", purged, before);
+        }
+        return purged;
+    }
+
+    private List<OutboxEmail> claim(LocalDateTime now) {
+        String token = UUID.randomUUID().toString();
+        return transactionTemplate.execute(status -> {
+            List<Long> ids = outboxEmailRepository.findDueIds(OutboxEmail.Status.PENDING, now, PageRequest.of(0, batchSize));
+            LocalDateTime leaseUntil = now.plus(CLAIM_TIMEOUT);
+            if (ids.isEmpty() || outboxEmailRepository.claim(ids, OutboxEmail.Status.PENDING, token, now, leaseUntil) == 0) {
+                return List.of();
+            }
+            Set<String> recipients = new HashSet<>();
+            for (OutboxEmail email : outboxEmailRepository.findByClaimTokenOrderById(token)) {
+                if (email.getNotification() != null) {
+                    recipients.add(email.getRecipient());
+                }
+            }
+            if (!recipients.isEmpty()) {
+                outboxEmailRepository.claimNotificationsFor(recipients, OutboxEmail.Status.PENDING, token, leaseUntil);
+            }
+            return outboxEmailRepository.findByClaimTokenOrderById(token);
+        });
+    }
+
+    private int deliver(List<OutboxEmail> claimed, LocalDateTime now) {
+        List<SimpleMailMessage> messages = new ArrayList<>();
+        List<List<OutboxEmail>> sources = new ArrayList<>();
+        for (List<OutboxEmail> rows : compose(claimed)) {
+            LocalDateTime slot = reserveSlot(rows.get(0).getRecipient(), now);
+            if (slot.isAfter(now)) {
+                rows.forEach(email -> email.setNextAttemptAt(slot));
+                continue;
+            }
+            messages.add(render(rows));
+            sources.add(rows);
+        }
+        if (messages.isEmpty()) {
+            return 0;
+        }
+        Map<Object, Exception> failures = Map.of();
+        Exception failure = null;
+        try {
+            mailSender.send(messages.toArray(new SimpleMailMessage[0]));
+        } catch (MailSendException e) {
+            failures = e.getFailedMessages();
+            failure = failures.isEmpty() ? e : null;
+        } catch (MailException e) {
+            failure = e;
+        }
+        int sent = 0;
+        for (int i = 0; i < messages.size(); i++) {
+            Exception error = failure != null ? failure : failures.get(messages.get(i));
+            for (OutboxEmail email : sources.get(i)) {
+                if (error == null) {
+                    email.setStatus(OutboxEmail.Status.SENT);
+                    email.setSentAt(now);
+                } else {
+                    retryLater(email, error, now);
+                }
+            }
+            if (error == null) {
+                sent++;
+            }
+        }
+        return sent;
+    }
+
+    // One group per plain email, plus one per recipient holding all of their notifications.
+    private static List<List<OutboxEmail>> compose(List<OutboxEmail> claimed) {
+        List<List<OutboxEmail>> groups = new ArrayList<>();
+        Map<String, List<OutboxEmail>> digests = new LinkedHashMap<>();
+        for (OutboxEmail email : claimed) {
+            email.setClaimToken(null);
+            if (email.getNotification() == null) {
+                groups.add(List.of(email));
+            } else {
+                digests.computeIfAbsent(email.getRecipient(), recipient -> new ArrayList<>()).add(email);
+            }
+        }
+        groups.addAll(digests.values());
+        return groups;
+    }
+
+    private static SimpleMailMessage render(List<OutboxEmail> rows) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setTo(rows.get(0).getRecipient());
+        if (rows.get(0).getNotification() == null) {
+            message.setSubject(rows.get(0).getSubject());
+            message.setText(rows.get(0).getBody());
+            return message;
+        }
+        List<Notification.Pending> pending = new ArrayList<>(rows.size());
+        for (OutboxEmail email : rows) {
+            pending.add(new Notification.Pending(Notification.valueOf(email.getNotification()), Notification.decode(email.getArguments())));
+        }
+        message.setSubject(Notification.digestSubject(pending));
+        message.setText(Notification.digestBody(pending));
+        return message;
+    }
+
+    private void retryLater(OutboxEmail email, Exception error, LocalDateTime now) {
+        int attempts = email.getAttempts() + 1;
+        email.setAttempts(attempts);
+        String message = String.valueOf(error.getMessage());
+        email.setLastError(message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message);
+        if (attempts >= MAX_ATTEMPTS) {
+            email.setStatus(OutboxEmail.Status.FAILED);
+            log.warn("Giving up on email {} to {} after {} attempts: {}", email.getId(), email.getRecipient(), attempts, message);
+            return;
+        }
+        Duration backoff = BASE_BACKOFF.multipliedBy(1L << Math.min(attempts - 1, 20));
+        email.setNextAttemptAt(now.plus(backoff.compareTo(MAX_BACKOFF) > 0 ? MAX_BACKOFF : backoff));
+    }
+
+    // Sliding-window limit: returns now if the recipient has room, otherwise when the oldest send leaves the window.
+    private synchronized LocalDateTime reserveSlot(String recipient, LocalDateTime now) {
+        Deque<LocalDateTime> sent = recentlySent.computeIfAbsent(recipient, key -> new ArrayDeque<>());
+        LocalDateTime windowStart = now.minus(RATE_WINDOW);
+        while (!sent.isEmpty() && !sent.peekFirst().isAfter(windowStart)) {
+            sent.pollFirst();
+        }
+        if (sent.size() >= perRecipientPerHour) {
+            return sent.peekFirst().plus(RATE_WINDOW);
+        }
+        sent.addLast(now);
+        if (recentlySent.size() > 10_000) {
+            recentlySent.values().removeIf(times -> times.isEmpty() || !times.peekLast().isAfter(windowStart));
+        }
+        return now;
+    }
+}
@@ -1,8 +1,7 @@
 package com.x00179223.librarybackend.service;
 
-import com.x00179223.librarybackend.model.User;
-import org.springframework.stereotype.Service;
-
 public interface EmailService {
     void sendOverdueEmail(String to, String subject, String body);
+
+    void notify(String to, Notification notification, String... arguments);
 }
@@ -1,24 +1,59 @@
 package com.x00179223.librarybackend.service;
 
+import com.x00179223.librarybackend.model.OutboxEmail;
+import com.x00179223.librarybackend.repository.OutboxEmailRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
+import java.time.Duration;
+import java.time.LocalDateTime;
 
+/**
+ * Queues emails in the outbox as part of the caller's transaction; {@link EmailOutboxDispatcher}
+ * delivers them once that transaction has committed. Notifications wait out the digest window
+ * so that everything a patron is told within it goes out as one email, unless they are
+ * {@link Notification#urgent() urgent}.
+ */
 @Service
 public class EmailServiceImpl implements EmailService {
 
+    private final OutboxEmailRepository outboxEmailRepository;
+    private final Duration digestWindow;
+
     @Autowired
-    private JavaMailSender mailSender;
+    public EmailServiceImpl(OutboxEmailRepository outboxEmailRepository,
+                            @Value("${library.mail.digest-window-ms:900000}") long digestWindowMillis) {
+        this.outboxEmailRepository = outboxEmailRepository;
+        this.digestWindow = Duration.ofMillis(Math.max(digestWindowMillis, 0));
+    }
 
     @Override
+    @Transactional
     public void sendOverdueEmail(String to, String subject, String body) {
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setTo(to);
-        message.setSubject(subject);
-        message.setText(body);
+        LocalDateTime now = LocalDateTime.now();
+        outboxEmailRepository.save(OutboxEmail.builder()
+                .recipient(to)
+                .subject(subject)
+                .body(body)
+                .status(OutboxEmail.Status.PENDING)
+                .createdAt(now)
+                .nextAttemptAt(now)
+                .build());
+    }
 
-        mailSender.send(message);
+    @Override
+    @Transactional
+    public void notify(String to, Notification notification, String... arguments) {
+        LocalDateTime now = LocalDateTime.now();
+        outboxEmailRepository.save(OutboxEmail.builder()
+                .recipient(to)
+                .notification(notification.name())
+                .arguments(Notification.encode(arguments))
+                .status(OutboxEmail.Status.PENDING)
+                .createdAt(now)
+                .nextAttemptAt(notification.urgent() ? now : now.plus(digestWindow))
+                .build());
     }
-}
\ No newline at end of file
+}
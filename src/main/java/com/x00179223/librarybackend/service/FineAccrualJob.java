@@ -0,0 +1,113 @@
+package com.x00179223.librarybackend.service;
+
+import com.x00179223.librarybackend.repository.FineAccrualRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Charges the daily overdue fine on every loan past its due date. Overdue ids are streamed
+ * and fined a chunk at a time, each chunk in its own short transaction, so a run costs a few
+ * statements per chunk rather than several round trips and an email per loan. The emails are
+ * queued in the outbox inside each chunk's transaction. Only runs with the stored fine model.
+ */
+@Component
+@ConditionalOnProperty(name = "library.fines.mode", havingValue = "stored", matchIfMissing = true)
+public class FineAccrualJob {
+
+    private static final String FINE_AMOUNT = "50c";
+    private static final Logger log = LoggerFactory.getLogger(FineAccrualJob.class);
+
+    private final FineAccrualRepository fineAccrualRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final EmailService emailService;
+    private final int chunkSize;
+    private final Timer duration;
+    private final Counter reservationsFined;
+    private final Counter usersFined;
+
+    @Autowired
+    public FineAccrualJob(FineAccrualRepository fineAccrualRepository, PlatformTransactionManager transactionManager,
+                          EmailService emailService, MeterRegistry meterRegistry,
+                          @Value("${library.fines.chunk-size:500}") int chunkSize) {
+        this.fineAccrualRepository = fineAccrualRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.emailService = emailService;
+        this.chunkSize = Math.max(chunkSize, 1);
+        this.duration = Timer.builder("library.fines.accrual.duration")
+                .description("Time taken by one overdue fine accrual run")
+                .register(meterRegistry);
+        this.reservationsFined = Counter.builder("library.fines.accrual.reservations")
+                .description("Overdue loans charged a daily fine")
+                .register(meterRegistry);
+        this.usersFined = Counter.builder("library.fines.accrual.users")
+                .description("Patron rows updated by fine accrual")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(initialDelayString = "${library.fines.initial-delay-ms:60000}",
+            fixedDelayString = "${library.fines.accrual-interval-ms:14400000}")
+    public void accrue() {
+        duration.record(() -> accrue(LocalDateTime.now()));
+    }
+
+    /** Returns the number of loans fined. */
+    public long accrue(LocalDateTime now) {
+        LocalDate today = now.toLocalDate();
+        List<Long> chunk = new ArrayList<>(chunkSize);
+        long[] fined = new long[1];
+        fineAccrualRepository.streamDue(now, today, reservationId -> {
+            chunk.add(reservationId);
+            if (chunk.size() == chunkSize) {
+                fined[0] += fineChunk(chunk, now, today).fined().size();
+                chunk.clear();
+            }
+        });
+        if (!chunk.isEmpty()) {
+            fined[0] += fineChunk(chunk, now, today).fined().size();
+        }
+        log.info("Overdue fines charged on {} loans", fined[0]);
+        return fined[0];
+    }
+
+    /** Fines just the given loans, e.g. as their due dates pass; returns the ids actually fined. */
+    public List<Long> accrue(List<Long> reservationIds, LocalDateTime now) {
+        List<Long> fined = new ArrayList<>(reservationIds.size());
+        for (int from = 0; from < reservationIds.size(); from += chunkSize) {
+            List<Long> chunk = reservationIds.subList(from, Math.min(from + chunkSize, reservationIds.size()));
+            for (FineAccrualRepository.FinedLoan loan : fineChunk(chunk, now, now.toLocalDate()).fined()) {
+                fined.add(loan.reservationId());
+            }
+        }
+        return fined;
+    }
+
+    private FineAccrualRepository.ChunkResult fineChunk(List<Long> reservationIds, LocalDateTime now, LocalDate today) {
+        FineAccrualRepository.ChunkResult result = transactionTemplate.execute(status -> {
+            FineAccrualRepository.ChunkResult chunk = fineAccrualRepository.fine(reservationIds, now, today, FineService.FINE_PER_DAY, FineService.MAX_FINE);
+            for (FineAccrualRepository.FinedLoan loan : chunk.fined()) {
+                if (loan.email() != null) {
+                    emailService.notify(loan.email(), Notification.FINE_ISSUED, FINE_AMOUNT, loan.title());
+                }
+            }
+            return chunk;
+        });
+        reservationsFined.increment(result.fined().size());
+        usersFined.increment(result.usersUpdated());
+        return result;
+    }
+}
@@ -0,0 +1,30 @@
+package com.x00179223.librarybackend.service;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public interface FineService {
+    double FINE_PER_DAY = 0.50;
+    double MAX_FINE = 50.0;
+
+    double balance(Long userId);
+
+    /** Balances of several patrons, keyed by id. */
+    default Map<Long, Double> balances(Collection<Long> userIds) {
+        Map<Long, Double> balances = new LinkedHashMap<>();
+        for (Long userId : userIds) {
+            balances.put(userId, balance(userId));
+        }
+        return balances;
+    }
+
+    void settle(Long userId);
+
+    void loansChanged(Long userId);
+
+    /** True when charges are derived from loan dates, so nothing may be added to {@code User.fine} per loan. */
+    default boolean computesCharges() {
+        return false;
+    }
+}
@@ -0,0 +1,308 @@
+package com.x00179223.librarybackend.service;
+
+import com.x00179223.librarybackend.model.InventoryLease;
+import com.x00179223.librarybackend.repository.BookRepository;
+import com.x00179223.librarybackend.repository.InventoryLeaseRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands out book copies for reservations. With escrow disabled every copy is taken from the
+ * {@code books} row directly. With escrow enabled this node leases a block of copies from the
+ * row in one conditional update and serves later reservations from its own
+ * {@link InventoryLease} row, so a hot title only touches the shared row once per block and
+ * nodes never wait on each other's reservations. A local counter mirrors each lease so an
+ * exhausted one is skipped without a query. Unused copies go back to the row once a lease has
+ * been idle for a while, and on shutdown, and the emptied lease is dropped.
+ * <p>
+ * Lease rows change in the same transaction as the reservation they serve, so the books row
+ * plus every lease always adds up to the stock. Each node renews its rows on every idle sweep;
+ * rows that go unrenewed for {@code library.inventory.escrow.orphan-ms}, because their node
+ * died, are returned to the books row by whichever node notices first. A node started with a
+ * fixed {@code library.inventory.escrow.node-id} reclaims its own rows straight away.
+ */
+@Component
+public class InventoryEscrow {
+
+    private static final Logger log = LoggerFactory.getLogger(InventoryEscrow.class);
+
+    private final BookRepository bookRepository;
+    private final InventoryLeaseRepository leaseRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final String node;
+    private final boolean fixedNode;
+    private final boolean enabled;
+    private final int blockSize;
+    private final long idleMillis;
+    private final long orphanMillis;
+    private final Map<Long, Lease> leases = new ConcurrentHashMap<>();
+
+    @Autowired
+    public InventoryEscrow(BookRepository bookRepository, InventoryLeaseRepository leaseRepository,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${library.inventory.escrow.node-id:}") String nodeId,
+                           @Value("${library.inventory.escrow.enabled:false}") boolean enabled,
+                           @Value("${library.inventory.escrow.block-size:5}") int blockSize,
+                           @Value("${library.inventory.escrow.idle-ms:60000}") long idleMillis,
+                           @Value("${library.inventory.escrow.orphan-ms:300000}") long orphanMillis) {
+        this.bookRepository = bookRepository;
+        this.leaseRepository = leaseRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.fixedNode = nodeId != null && !nodeId.isBlank();
+        this.node = fixedNode ? nodeId : UUID.randomUUID().toString();
+        this.enabled = enabled;
+        this.blockSize = Math.max(blockSize, 1);
+        this.idleMillis = idleMillis;
+        this.orphanMillis = orphanMillis;
+    }
+
+    /** Takes one copy for the current transaction; false when none is available. */
+    public boolean take(long bookId) {
+        if (!enabled) {
+            return bookRepository.takeCopy(bookId) == 1;
+        }
+        while (true) {
+            Lease lease = leases.computeIfAbsent(bookId, id -> new Lease());
+            if (takeLeased(lease)) {
+                return true;
+            }
+            synchronized (lease) {
+                if (lease.retired) {
+                    continue;
+                }
+                if (takeLeased(lease)) {
+                    return true;
+                }
+                if (blockSize > 1 && bookRepository.leaseCopies(bookId, blockSize) == 1) {
+                    long leaseId = creditRow(bookId, blockSize - 1);
+                    afterCommit(() -> lease.credit(leaseId, blockSize - 1));
+                    return true;
+                }
+            }
+            // Fewer copies left than a block: take them one at a time straight from the row.
+            return bookRepository.takeCopy(bookId) == 1;
+        }
+    }
+
+    /** Puts a copy back; false when it could not be kept in a lease and has to go back to the row. */
+    public boolean giveBack(long bookId) {
+        if (!enabled) {
+            return false;
+        }
+        Lease lease = leases.get(bookId);
+        Long leaseId = lease == null ? null : lease.id;
+        if (leaseId == null || leaseRepository.credit(leaseId, 1, LocalDateTime.now()) == 0) {
+            return false;
+        }
+        afterCommit(lease::give);
+        return true;
+    }
+
+    /** Copies this node holds for the book. */
+    public int leased(long bookId) {
+        Lease lease = leases.get(bookId);
+        return lease == null ? 0 : lease.remaining.get();
+    }
+
+    /** Copies of the book held in escrow by any node, which are still available to patrons. */
+    public long escrowed(long bookId) {
+        return enabled ? leaseRepository.sumCopies(bookId) : 0;
+    }
+
+    @Scheduled(initialDelayString = "${library.inventory.escrow.idle-ms:60000}",
+            fixedDelayString = "${library.inventory.escrow.idle-ms:60000}")
+    public void releaseIdle() {
+        release(System.currentTimeMillis() - idleMillis);
+        if (!leases.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> leaseRepository.renew(node, LocalDateTime.now()));
+        }
+        reclaim(leaseRepository.findStaleIds(orphanCutoff()), false);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reclaimOnStartup() {
+        if (fixedNode) {
+            reclaim(leaseRepository.findIdsByNode(node), true);
+        }
+        reclaim(leaseRepository.findStaleIds(orphanCutoff()), false);
+    }
+
+    @PreDestroy
+    public void releaseAll() {
+        release(Long.MAX_VALUE);
+    }
+
+    // The local counter is only a hint; the lease row decides, and a mismatch falls through to a new block.
+    private boolean takeLeased(Lease lease) {
+        if (!lease.tryTake()) {
+            return false;
+        }
+        if (lease.id != null && leaseRepository.takeCopy(lease.id) == 1) {
+            afterRollback(lease::give);
+            return true;
+        }
+        return false;
+    }
+
+    // Runs with the books row locked by leaseCopies, which serialises every block taken for the book,
+    // so the locking read below sees any lease row committed since this transaction began.
+    private long creditRow(long bookId, int copies) {
+        LocalDateTime now = LocalDateTime.now();
+        Optional<InventoryLease> row = leaseRepository.findForUpdate(node, bookId);
+        if (row.isPresent()) {
+            leaseRepository.credit(row.get().getId(), copies, now);
+            return row.get().getId();
+        }
+        return leaseRepository.save(InventoryLease.builder().node(node).bookId(bookId).copies(copies).renewedAt(now).build()).getId();
+    }
+
+    private void release(long idleSince) {
+        int returned = 0;
+        for (Map.Entry<Long, Lease> entry : leases.entrySet()) {
+            Lease lease = entry.getValue();
+            if (lease.lastUsed > idleSince) {
+                continue;
+            }
+            synchronized (lease) {
+                if (lease.id == null) {
+                    retire(entry.getKey(), lease);
+                    continue;
+                }
+                try {
+                    Integer copies = transactionTemplate.execute(status -> {
+                        Optional<InventoryLease> row = leaseRepository.findByIdForUpdate(lease.id);
+                        lease.remaining.set(0);
+                        if (row.isEmpty()) {
+                            return 0;
+                        }
+                        int unused = row.get().getCopies();
+                        if (unused > 0) {
+                            bookRepository.returnCopies(entry.getKey(), unused);
+                            leaseRepository.release(lease.id, unused);
+                        }
+                        leaseRepository.deleteIfEmpty(lease.id);
+                        return unused;
+                    });
+                    returned += copies == null ? 0 : copies;
+                    retire(entry.getKey(), lease);
+                } catch (RuntimeException e) {
+                    log.warn("Could not return escrowed copies of book {}; the next sweep will retry", entry.getKey(), e);
+                }
+            }
+        }
+        if (returned > 0) {
+            log.info("Returned {} escrowed copies to stock", returned);
+        }
+    }
+
+    private void retire(long bookId, Lease lease) {
+        lease.retired = true;
+        leases.remove(bookId, lease);
+    }
+
+    private void reclaim(List<Long> leaseIds, boolean own) {
+        LocalDateTime cutoff = orphanCutoff();
+        int reclaimed = 0;
+        for (Long leaseId : leaseIds) {
+            try {
+                Integer copies = transactionTemplate.execute(status -> {
+                    Optional<InventoryLease> row = leaseRepository.findByIdForUpdate(leaseId);
+                    if (row.isEmpty() || !own && !row.get().getRenewedAt().isBefore(cutoff)) {
+                        return 0;
+                    }
+                    if (row.get().getCopies() > 0) {
+                        bookRepository.returnCopies(row.get().getBookId(), row.get().getCopies());
+                    }
+                    leaseRepository.delete(row.get());
+                    return row.get().getCopies();
+                });
+                reclaimed += copies == null ? 0 : copies;
+            } catch (RuntimeException e) {
+                log.warn("Could not reclaim abandoned lease {}", leaseId, e);
+            }
+        }
+        if (reclaimed > 0) {
+            log.info("Reclaimed {} copies from abandoned escrow leases", reclaimed);
+        }
+    }
+
+    private LocalDateTime orphanCutoff() {
+        return LocalDateTime.now().minus(orphanMillis, ChronoUnit.MILLIS);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static void afterRollback(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    action.run();
+                }
+            }
+        });
+    }
+
+    private static final class Lease {
+        private final AtomicInteger remaining = new AtomicInteger();
+        private volatile Long id;
+        private volatile boolean retired;
+        private volatile long lastUsed = System.currentTimeMillis();
+
+        boolean tryTake() {
+            int current;
+            do {
+                current = remaining.get();
+                if (current <= 0) {
+                    return false;
+                }
+            } while (!remaining.compareAndSet(current, current - 1));
+            lastUsed = System.currentTimeMillis();
+            return true;
+        }
+
+        void give() {
+            remaining.incrementAndGet();
+        }
+
+        void credit(long leaseId, int copies) {
+            id = leaseId;
+            remaining.addAndGet(copies);
+            lastUsed = System.currentTimeMillis();
+        }
+    }
+}
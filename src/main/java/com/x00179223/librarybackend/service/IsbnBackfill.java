@@ -0,0 +1,97 @@
+package com.x00179223.librarybackend.service;
+
+import com.x00179223.librarybackend.index.Isbn;
+import com.x00179223.librarybackend.repository.BookRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+
+/**
+ * Rewrites ISBNs stored before they were normalised into the ISBN-13 form that lookups use.
+ * Rows whose ISBN-10 and ISBN-13 spellings name the same book would collide on the unique
+ * ISBN index, so one row per ISBN keeps it, preferring a row already in ISBN-13 form and then
+ * the oldest, and the others have their ISBN cleared and are logged to be merged by hand.
+ * Values that are not valid ISBNs are left alone. Runs before the catalogue indexes are built
+ * and does nothing once every row is normalised; if duplicates kept the unique index from
+ * being created, the next schema update adds it.
+ */
+@Component
+public class IsbnBackfill {
+
+    private static final int CHUNK = 500;
+    private static final Logger log = LoggerFactory.getLogger(IsbnBackfill.class);
+
+    private final BookRepository bookRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public IsbnBackfill(BookRepository bookRepository, PlatformTransactionManager transactionManager) {
+        this.bookRepository = bookRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void backfill() {
+        Map<String, List<Object[]>> byIsbn13 = new HashMap<>();
+        int invalid = 0;
+        for (Object[] row : bookRepository.findIsbns()) {
+            Optional<String> isbn13 = Isbn.normalize((String) row[1]);
+            if (isbn13.isPresent()) {
+                byIsbn13.computeIfAbsent(isbn13.get(), isbn -> new ArrayList<>(1)).add(row);
+            } else {
+                invalid++;
+            }
+        }
+        List<Long> duplicates = new ArrayList<>();
+        Map<Long, String> rewrites = new LinkedHashMap<>();
+        for (Map.Entry<String, List<Object[]>> entry : byIsbn13.entrySet()) {
+            Object[] keeper = keeper(entry.getKey(), entry.getValue());
+            for (Object[] row : entry.getValue()) {
+                if (row != keeper) {
+                    duplicates.add((Long) row[0]);
+                }
+            }
+            if (!entry.getKey().equals(keeper[1])) {
+                rewrites.put((Long) keeper[0], entry.getKey());
+            }
+        }
+        // Duplicates give up their ISBN first so no rewrite collides with a row still holding the old spelling.
+        for (int from = 0; from < duplicates.size(); from += CHUNK) {
+            List<Long> chunk = duplicates.subList(from, Math.min(from + CHUNK, duplicates.size()));
+            transactionTemplate.executeWithoutResult(status -> chunk.forEach(id -> bookRepository.updateIsbn(id, null)));
+        }
+        List<Map.Entry<Long, String>> pending = new ArrayList<>(rewrites.entrySet());
+        for (int from = 0; from < pending.size(); from += CHUNK) {
+            List<Map.Entry<Long, String>> chunk = pending.subList(from, Math.min(from + CHUNK, pending.size()));
+            transactionTemplate.executeWithoutResult(status -> chunk.forEach(row -> bookRepository.updateIsbn(row.getKey(), row.getValue())));
+        }
+        if (!rewrites.isEmpty()) {
+            log.info("Normalised {} stored ISBNs to ISBN-13", rewrites.size());
+        }
+        if (!duplicates.isEmpty()) {
+            log.warn("Cleared the ISBN of {} books that duplicate another book's ISBN, ids {}", duplicates.size(), duplicates);
+        }
+        if (invalid > 0) {
+            log.warn("{} stored ISBNs are not valid and were left as they are", invalid);
+        }
+    }
+
+    private static Object[] keeper(String isbn13, List<Object[]> rows) {
+        for (Object[] row : rows) {
+            if (isbn13.equals(row[1])) {
+                return row;
+            }
+        }
+        return rows.get(0);
+    }
+}
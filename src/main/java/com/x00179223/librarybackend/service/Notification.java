@@ -0,0 +1,77 @@
+package com.x00179223.librarybackend.service;
+
+import java.util.List;
+
+/**
+ * Patron notifications that can be batched into a digest. Templates are compiled once when
+ * the enum loads; a single pending notification is sent with its own subject, several for the
+ * same patron are merged into one email with a line each. Time-sensitive notifications skip
+ * the digest window and go out on the next dispatch, taking anything already queued with them.
+ */
+public enum Notification {
+    FINE_ISSUED("Overdue Book Return",
+            "A {0} overdue charge was added for \"{1}\".", false),
+    HOLD_READY("Your reserved book is ready",
+            "A copy of \"{0}\" is waiting for you. Please pick it up by {1}.", true);
+
+    private static final NotificationTemplate DIGEST_SUBJECT = NotificationTemplate.compile("{0} updates on your library account");
+    private static final String GREETING = "Hello,\n\n";
+    private static final String SIGN_OFF = "\nThe Library";
+    private static final char SEPARATOR = '\u001F';
+
+    private final String subject;
+    private final NotificationTemplate line;
+    private final boolean urgent;
+
+    Notification(String subject, String line, boolean urgent) {
+        this.subject = subject;
+        this.line = NotificationTemplate.compile(line);
+        this.urgent = urgent;
+    }
+
+    public boolean urgent() {
+        return urgent;
+    }
+
+    public String subject() {
+        return subject;
+    }
+
+    public String line(String... arguments) {
+        return line.render(arguments);
+    }
+
+    public record Pending(Notification notification, String[] arguments) {
+    }
+
+    public static String encode(String... arguments) {
+        StringBuilder encoded = new StringBuilder();
+        for (int i = 0; i < arguments.length; i++) {
+            if (i > 0) {
+                encoded.append(SEPARATOR);
+            }
+            encoded.append(arguments[i] == null ? "" : arguments[i]);
+        }
+        return encoded.toString();
+    }
+
+    public static String[] decode(String arguments) {
+        return arguments == null || arguments.isEmpty() ? new String[0] : arguments.split(String.valueOf(SEPARATOR), -1);
+    }
+
+    public static String digestSubject(List<Pending> pending) {
+        return pending.size() == 1 ? pending.get(0).notification().subject() : DIGEST_SUBJECT.render(String.valueOf(pending.size()));
+    }
+
+    public static String digestBody(List<Pending> pending) {
+        StringBuilder body = new StringBuilder(GREETING);
+        for (Pending item : pending) {
+            if (pending.size() > 1) {
+                body.append("- ");
+            }
+            item.notification().line.renderTo(body, item.arguments());
+            body.append('\n');
+        }
+        return body.append(SIGN_OFF).toString();
+    }
+}
@@ -0,0 +1,53 @@
+package com.x00179223.librarybackend.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A text template with {@code {0}}, {@code {1}}, ... placeholders, split into literal
+ * segments once when it is created. Rendering is then a single pass appending segments and
+ * arguments, with no parsing and no shared mutable state, so one instance serves every thread.
+ */
+public final class NotificationTemplate {
+
+    private final String[] literals;
+    private final int[] arguments;
+
+    private NotificationTemplate(String[] literals, int[] arguments) {
+        this.literals = literals;
+        this.arguments = arguments;
+    }
+
+    public static NotificationTemplate compile(String template) {
+        List<String> literals = new ArrayList<>();
+        List<Integer> arguments = new ArrayList<>();
+        int start = 0;
+        int open;
+        while ((open = template.indexOf('{', start)) >= 0) {
+            int close = template.indexOf('}', open);
+            if (close < 0) {
+                break;
+            }
+            literals.add(template.substring(start, open));
+            arguments.add(Integer.parseInt(template.substring(open + 1, close)));
+            start = close + 1;
+        }
+        literals.add(template.substring(start));
+        return new NotificationTemplate(literals.toArray(new String[0]), arguments.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    public void renderTo(StringBuilder out, String... values) {
+        for (int i = 0; i < arguments.length; i++) {
+            out.append(literals[i]);
+            int argument = arguments[i];
+            out.append(argument < values.length && values[argument] != null ? values[argument] : "");
+        }
+        out.append(literals[arguments.length]);
+    }
+
+    public String render(String... values) {
+        StringBuilder out = new StringBuilder();
+        renderTo(out, values);
+        return out.toString();
+    }
+}
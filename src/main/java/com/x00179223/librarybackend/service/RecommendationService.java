@@ -0,0 +1,10 @@
+package com.x00179223.librarybackend.service;
+
+import com.x00179223.librarybackend.model.Book;
+
+import java.util.List;
+
+public interface RecommendationService {
+    List<Book> recommendFor(Long userId, int limit);
+    void refresh();
+}
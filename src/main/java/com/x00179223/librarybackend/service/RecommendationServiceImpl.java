@@ -0,0 +1,74 @@
+package com.x00179223.librarybackend.service;
+
+import com.x00179223.librarybackend.index.ItemSimilarityModel;
+import com.x00179223.librarybackend.model.Book;
+import com.x00179223.librarybackend.repository.RatingMatrixRepository;
+import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Serves item-item recommendations from an in-memory model that a scheduled job rebuilds
+ * from the full rating table. Requests never touch the ratings; they read the latest
+ * precomputed list and load the books through the batch lookup.
+ */
+@Service
+public class RecommendationServiceImpl implements RecommendationService {
+
+    private static final Logger log = LoggerFactory.getLogger(RecommendationServiceImpl.class);
+    private static final int MAX_RECOMMENDATIONS = 50;
+
+    private final RatingMatrixRepository ratingMatrixRepository;
+    private final BookService bookService;
+    private final UserService userService;
+    private final int neighbours;
+    private final int recommendationsPerUser;
+    private final int maxRatingsPerUser;
+    private final int shrinkage;
+    private volatile ItemSimilarityModel model = ItemSimilarityModel.EMPTY;
+
+    @Autowired
+    public RecommendationServiceImpl(RatingMatrixRepository ratingMatrixRepository, BookService bookService, UserService userService,
+                                     @Value("${library.recommendations.neighbours:50}") int neighbours,
+                                     @Value("${library.recommendations.per-user:20}") int recommendationsPerUser,
+                                     @Value("${library.recommendations.max-ratings-per-user:2000}") int maxRatingsPerUser,
+                                     @Value("${library.recommendations.shrinkage:10}") int shrinkage) {
+        this.ratingMatrixRepository = ratingMatrixRepository;
+        this.bookService = bookService;
+        this.userService = userService;
+        this.neighbours = neighbours;
+        this.recommendationsPerUser = Math.min(recommendationsPerUser, MAX_RECOMMENDATIONS);
+        this.maxRatingsPerUser = maxRatingsPerUser;
+        this.shrinkage = shrinkage;
+    }
+
+    @Override
+    public List<Book> recommendFor(Long userId, int limit) {
+        userService.findById(userId).orElseThrow(() -> new EntityNotFoundException("User not found"));
+        List<Long> bookIds = model.recommendationsFor(userId, Math.min(limit, recommendationsPerUser));
+        if (bookIds.isEmpty()) {
+            return List.of();
+        }
+        return bookService.findAllById(bookIds).getBooks();
+    }
+
+    @Override
+    @Scheduled(initialDelayString = "${library.recommendations.initial-delay-ms:60000}",
+            fixedDelayString = "${library.recommendations.refresh-interval-ms:21600000}")
+    public void refresh() {
+        long started = System.currentTimeMillis();
+        ItemSimilarityModel.Builder builder = ItemSimilarityModel.builder(neighbours, recommendationsPerUser, maxRatingsPerUser, shrinkage);
+        ratingMatrixRepository.streamRatings(builder::add);
+        ItemSimilarityModel built = builder.build(ForkJoinPool.commonPool());
+        model = built;
+        log.info("Recommendations rebuilt from {} ratings ({} users, {} books) in {} ms",
+                built.ratingCount(), built.userCount(), built.bookCount(), System.currentTimeMillis() - started);
+    }
+}
@@ -0,0 +1,143 @@
+package com.x00179223.librarybackend.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Acts on reservation deadlines as they pass: uncollected reservations are cancelled and
+ * their copy handed on, and overdue loans are fined as soon as they are due and then once a
+ * day after that. Each handler re-checks the reservation in the database, so stale wheel
+ * entries and several nodes firing the same deadline are harmless. Holds left waiting on a
+ * book that has stock are promoted every {@code library.holds.promote-interval-ms}. A slower
+ * reconciliation runs the old table scan and reloads the wheel in case an event was missed.
+ * <p>
+ * The tick runs on its own thread rather than the shared scheduler, so a long recommendation
+ * refresh or accrual run cannot hold deadlines back.
+ */
+@Component
+public class ReservationDeadlineJob {
+
+    private static final Logger log = LoggerFactory.getLogger(ReservationDeadlineJob.class);
+
+    private final ReservationDeadlines reservationDeadlines;
+    private final ReservationService reservationService;
+    private final FineAccrualJob fineAccrualJob;
+    private final long tickMillis;
+    private ScheduledExecutorService ticker;
+
+    @Autowired
+    public ReservationDeadlineJob(ReservationDeadlines reservationDeadlines, ReservationService reservationService,
+                                  ObjectProvider<FineAccrualJob> fineAccrualJob,
+                                  @Value("${library.deadlines.tick-ms:1000}") long tickMillis) {
+        this.reservationDeadlines = reservationDeadlines;
+        this.reservationService = reservationService;
+        this.fineAccrualJob = fineAccrualJob.getIfAvailable();
+        this.tickMillis = Math.max(tickMillis, 1);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (ticker != null) {
+            return;
+        }
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "reservation-deadlines");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleWithFixedDelay(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+            ticker = null;
+        }
+    }
+
+    // A task that throws is never run again by the executor, so nothing may escape a tick.
+    public void tick() {
+        try {
+            fire(LocalDateTime.now());
+        } catch (RuntimeException e) {
+            log.warn("Deadline tick failed; the next tick will retry", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${library.holds.promote-interval-ms:30000}")
+    public void promoteWaitingHolds() {
+        try {
+            int promoted = reservationService.promoteWaitingHolds();
+            if (promoted > 0) {
+                log.info("Promoted {} holds waiting on books with stock", promoted);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not promote waiting holds; the next run will retry", e);
+        }
+    }
+
+    @Scheduled(initialDelayString = "${library.deadlines.reconcile-interval-ms:3600000}",
+            fixedDelayString = "${library.deadlines.reconcile-interval-ms:3600000}")
+    public void reconcile() {
+        reservationService.purgeNonPickedUpReservations();
+        reservationDeadlines.rebuild();
+    }
+
+    /** Returns the number of reservations expired or fined. */
+    public int fire(LocalDateTime now) {
+        int handled = 0;
+        List<ReservationDeadlines.Deadline> overdue = new ArrayList<>();
+        for (ReservationDeadlines.Deadline deadline : reservationDeadlines.expired(now)) {
+            if (deadline.kind() == ReservationDeadlines.Kind.DUE) {
+                overdue.add(deadline);
+                continue;
+            }
+            try {
+                if (reservationService.expirePickUp(deadline.reservationId(), now)) {
+                    handled++;
+                }
+            } catch (RuntimeException e) {
+                log.warn("Could not expire reservation {}; the reconciliation scan will retry", deadline.reservationId(), e);
+            }
+        }
+        if (!overdue.isEmpty() && fineAccrualJob != null) {
+            handled += fineOverdue(overdue, now);
+        }
+        return handled;
+    }
+
+    // Fined or not (already charged today, or returned on another node), each loan is re-armed for
+    // its next daily charge; the wheel is reloaded on reconciliation, which drops returned loans.
+    private int fineOverdue(List<ReservationDeadlines.Deadline> overdue, LocalDateTime now) {
+        List<Long> ids = new ArrayList<>(overdue.size());
+        for (ReservationDeadlines.Deadline deadline : overdue) {
+            ids.add(deadline.reservationId());
+        }
+        int fined = 0;
+        try {
+            fined = fineAccrualJob.accrue(ids, now).size();
+        } catch (RuntimeException e) {
+            log.warn("Could not fine {} overdue loans; the accrual run will retry", ids.size(), e);
+        }
+        for (ReservationDeadlines.Deadline deadline : overdue) {
+            reservationDeadlines.dueBy(deadline.reservationId(), ReservationDeadlines.nextCharge(deadline.at(), now));
+        }
+        return fined;
+    }
+}
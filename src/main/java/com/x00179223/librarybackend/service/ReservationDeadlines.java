@@ -0,0 +1,119 @@
+package com.x00179223.librarybackend.service;
+
+import com.x00179223.librarybackend.repository.ReservationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Upcoming pick-up and due-date deadlines of open reservations, held in a {@link TimingWheel}
+ * so {@link ReservationDeadlineJob} can act on each one within a tick of it passing instead
+ * of polling the reservations table. Entries are registered as reservations change and may
+ * outlive a rolled-back or superseded change; whoever handles a deadline re-checks it against
+ * the database. The wheel is rebuilt from the table on startup and on every reconciliation,
+ * which also picks up reservations made on other nodes.
+ */
+@Component
+public class ReservationDeadlines {
+
+    private static final Logger log = LoggerFactory.getLogger(ReservationDeadlines.class);
+    private static final int LEVELS = 4;
+
+    public enum Kind {PICK_UP, DUE}
+
+    public record Deadline(Kind kind, long reservationId, LocalDateTime at) {
+    }
+
+    private record Key(Kind kind, long reservationId) {
+    }
+
+    private final ReservationRepository reservationRepository;
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final TimingWheel<Key> wheel;
+    private final Map<Key, LocalDateTime> deadlines = new HashMap<>();
+
+    @Autowired
+    public ReservationDeadlines(ReservationRepository reservationRepository, @Value("${library.deadlines.tick-ms:1000}") long tickMillis) {
+        this.reservationRepository = reservationRepository;
+        this.wheel = new TimingWheel<>(Math.max(tickMillis, 1), LEVELS, System.currentTimeMillis());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> pickUps = reservationRepository.findPickUpDeadlines();
+        List<Object[]> dueDates = reservationRepository.findDueDates();
+        synchronized (this) {
+            wheel.clear();
+            deadlines.clear();
+            for (Object[] pickUp : pickUps) {
+                schedule(new Key(Kind.PICK_UP, (Long) pickUp[0]), (LocalDateTime) pickUp[1]);
+            }
+            for (Object[] due : dueDates) {
+                LocalDateTime dueDate = (LocalDateTime) due[1];
+                schedule(new Key(Kind.DUE, (Long) due[0]), dueDate.isAfter(now) ? dueDate : nextCharge(dueDate, now));
+            }
+        }
+        log.info("Deadline wheel loaded with {} pick-ups and {} due dates", pickUps.size(), dueDates.size());
+    }
+
+    public synchronized void pickUpBy(long reservationId, LocalDateTime pickUpBy) {
+        schedule(new Key(Kind.PICK_UP, reservationId), pickUpBy);
+    }
+
+    /** The loan replaces the pick-up deadline once the book is checked out. */
+    public synchronized void dueBy(long reservationId, LocalDateTime dueDate) {
+        cancel(new Key(Kind.PICK_UP, reservationId));
+        schedule(new Key(Kind.DUE, reservationId), dueDate);
+    }
+
+    public synchronized void cleared(long reservationId) {
+        cancel(new Key(Kind.PICK_UP, reservationId));
+        cancel(new Key(Kind.DUE, reservationId));
+    }
+
+    public synchronized boolean isScheduled(Kind kind, long reservationId) {
+        return wheel.contains(new Key(kind, reservationId));
+    }
+
+    public synchronized int size() {
+        return wheel.size();
+    }
+
+    /** Removes and returns every deadline at or before {@code now}. */
+    public synchronized List<Deadline> expired(LocalDateTime now) {
+        return wheel.advance(now.atZone(zone).toInstant().toEpochMilli()).stream()
+                .map(key -> new Deadline(key.kind(), key.reservationId(), deadlines.remove(key)))
+                .toList();
+    }
+
+    /** The first moment after {@code now} that falls a whole number of days after the due date. */
+    public static LocalDateTime nextCharge(LocalDateTime dueDate, LocalDateTime now) {
+        return dueDate.plusDays(Math.max(ChronoUnit.DAYS.between(dueDate, now) + 1, 1));
+    }
+
+    private void schedule(Key key, LocalDateTime at) {
+        if (at == null) {
+            cancel(key);
+            return;
+        }
+        deadlines.put(key, at);
+        wheel.schedule(key, at.atZone(zone).toInstant().toEpochMilli());
+    }
+
+    private void cancel(Key key) {
+        wheel.cancel(key);
+        deadlines.remove(key);
+    }
+}
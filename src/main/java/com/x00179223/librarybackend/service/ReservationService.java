@@ -1,7 +1,11 @@
 package com.x00179223.librarybackend.service;
+import com.x00179223.librarybackend.dto.HoldPosition;
+import com.x00179223.librarybackend.dto.KeysetPage;
+import com.x00179223.librarybackend.dto.ReservationSummary;
 import com.x00179223.librarybackend.model.Reservation;
 import org.springframework.data.domain.Page;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface ReservationService {
@@ -13,11 +17,16 @@ public interface ReservationService {
 
     Reservation cancelReservation(Long reservationId);
 
-    Page<Reservation> findAllReservations(int page, int size, String sortField, String sortDirection);
+    HoldPosition findHoldPosition(Long holdId);
+
+    void cancelHold(Long holdId);
+
+    Page<ReservationSummary> findAllReservations(int page, int size, String sortField, String sortDirection);
+    KeysetPage<ReservationSummary> findAllReservationsAfter(String after, int size, String sortField, String sortDirection);
 
     Reservation findReservationById(Long id);
 
-    List<Reservation> findReservationsByUserId(Long userId);
+    List<ReservationSummary> findReservationsByUserId(Long userId);
 
     Reservation extendDueDate(Long reservationId);
 
@@ -25,6 +34,10 @@ public interface ReservationService {
 
     void purgeNonPickedUpReservations();
 
+    boolean expirePickUp(Long reservationId, LocalDateTime now);
+
+    int promoteWaitingHolds();
+
     void addFine(Long reservationId, Long userId);
 
     List<Reservation> findOverduePickups();
@@ -1,94 +1,278 @@
 package com.x00179223.librarybackend.service;
 
+import com.x00179223.librarybackend.dto.HoldPosition;
+import com.x00179223.librarybackend.dto.KeysetPage;
+import com.x00179223.librarybackend.dto.ReservationSummary;
+import com.x00179223.librarybackend.exception.BookUnavailableException;
+import com.x00179223.librarybackend.index.CoReservationIndex;
+import com.x00179223.librarybackend.index.TrendingIndex;
 import com.x00179223.librarybackend.model.Book;
+import com.x00179223.librarybackend.model.Hold;
 import com.x00179223.librarybackend.model.Reservation;
 import com.x00179223.librarybackend.model.User;
+import com.x00179223.librarybackend.repository.HoldRepository;
+import com.x00179223.librarybackend.repository.KeysetRepository;
 import com.x00179223.librarybackend.repository.ReservationRepository;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.Collections;
+import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class ReservationServiceImpl implements ReservationService {
 
+    private static final Set<String> KEYSET_SORT_FIELDS = Set.of("id", "reservedAt");
+    private static final Set<String> SUMMARY_FETCH = Set.of("book", "user");
+    private static final Pageable QUEUE_HEAD = PageRequest.of(0, 1);
+    private static final Pageable CO_RESERVATION_HISTORY = PageRequest.of(0, CoReservationIndex.MAX_BOOKS_PER_PATRON);
+    private static final int MAX_PROMOTION_ATTEMPTS = 5;
+    private static final DateTimeFormatter PICK_UP_BY = DateTimeFormatter.ofPattern("d MMM yyyy");
+
     private final ReservationRepository reservationRepository;
     private final BookService bookService;
     private final UserService userService;
 
     private final EmailService emailService;
+    private final KeysetRepository keysetRepository;
+    private final CoReservationIndex coReservationIndex;
+    private final TrendingIndex trendingIndex;
+    private final HoldRepository holdRepository;
+    private final FineService fineService;
+    private final ReservationDeadlines reservationDeadlines;
+    private final TransactionTemplate transactionTemplate;
 
     @Autowired
-    public ReservationServiceImpl(ReservationRepository reservationRepository, BookService bookService, UserService userService, EmailService emailService) {
+    public ReservationServiceImpl(ReservationRepository reservationRepository, BookService bookService, UserService userService, EmailService emailService,
+                                  KeysetRepository keysetRepository, CoReservationIndex coReservationIndex, TrendingIndex trendingIndex,
+                                  HoldRepository holdRepository, FineService fineService, ReservationDeadlines reservationDeadlines,
+                                  PlatformTransactionManager transactionManager) {
         this.reservationRepository = reservationRepository;
         this.bookService = bookService;
         this.userService = userService;
         this.emailService = emailService;
+        this.keysetRepository = keysetRepository;
+        this.coReservationIndex = coReservationIndex;
+        this.trendingIndex = trendingIndex;
+        this.holdRepository = holdRepository;
+        this.fineService = fineService;
+        this.reservationDeadlines = reservationDeadlines;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
+    /**
+     * Reserves a copy, or queues the patron when none is left. The hold is committed before
+     * the resulting {@link BookUnavailableException} propagates, so the caller can report the
+     * queue position instead of having the patron retry. When two requests from the same
+     * patron race to queue them, the loser's insert trips the unique constraint and its
+     * transaction rolls back; it then reports the winner's hold.
+     */
     @Override
     public Reservation reserveBook(Long bookId, Long userId) {
-        Book book = bookService.findById(bookId).orElseThrow(() -> new EntityNotFoundException("Book not found"));
+        Object outcome;
+        try {
+            outcome = transactionTemplate.execute(status -> reserveOrHold(bookId, userId));
+        } catch (DataIntegrityViolationException e) {
+            Hold hold = holdRepository.findByBookIdAndUserId(bookId, userId).orElseThrow(() -> e);
+            throw new BookUnavailableException(HoldPosition.of(hold, holdRepository.countAhead(bookId, hold.getId())));
+        }
+        if (outcome instanceof HoldPosition hold) {
+            throw new BookUnavailableException(hold);
+        }
+        return (Reservation) outcome;
+    }
+
+    private Object reserveOrHold(Long bookId, Long userId) {
+        Book available = bookService.findById(bookId).orElseThrow(() -> new EntityNotFoundException("Book not found"));
         User user = userService.findById(userId).orElseThrow(() -> new EntityNotFoundException("User not found"));
 
-        if (book.getQuantityAvailable() <= 0) {
-            throw new IllegalArgumentException("Book is not available for reservation");
+        Optional<Book> book = bookService.takeCopy(bookId);
+        if (book.isEmpty()) {
+            return placeHold(available, user);
+        }
+        holdRepository.findByBookIdAndUserId(bookId, userId).ifPresent(hold -> holdRepository.claim(hold.getId()));
+        return reserve(book.get(), user);
+    }
+
+    @Override
+    @Transactional
+    public Reservation cancelReservation(Long reservationId) {
+        Reservation reservation = findReservationById(reservationId);
+        reservationRepository.delete(reservation);
+        reservationDeadlines.cleared(reservationId);
+        if (!reservation.isReturned()) {
+            releaseCopy(reservation.getBook());
+        }
+        fineService.loansChanged(userId(reservation));
+        return reservation;
+    }
+
+    @Override
+    public HoldPosition findHoldPosition(Long holdId) {
+        Hold hold = holdRepository.findById(holdId).orElseThrow(() -> new EntityNotFoundException("Hold not found"));
+        return HoldPosition.of(hold, holdRepository.countAhead(hold.getBook().getId(), hold.getId()));
+    }
+
+    @Override
+    @Transactional
+    public void cancelHold(Long holdId) {
+        if (holdRepository.claim(holdId) == 0) {
+            throw new EntityNotFoundException("Hold not found");
         }
+    }
+
+    private HoldPosition placeHold(Book book, User user) {
+        Hold hold = holdRepository.findByBookIdAndUserId(book.getId(), user.getId())
+                .orElseGet(() -> holdRepository.save(Hold.builder().book(book).user(user).placedAt(LocalDateTime.now()).build()));
+        return HoldPosition.of(hold, holdRepository.countAhead(book.getId(), hold.getId()));
+    }
+
+    private Reservation reserve(Book book, User user) {
         Reservation reservation = Reservation.builder()
                 .book(book)
                 .user(user)
                 .reservedAt(LocalDateTime.now())
                 .pickUpBy(LocalDateTime.now().plusDays(7))
                 .build();
-        book.setQuantityAvailable(book.getQuantityAvailable() - 1);
+        List<Long> previousBookIds = reservationRepository.findRecentBookIdsByUserId(user.getId(), CO_RESERVATION_HISTORY);
         reservationRepository.save(reservation);
-        bookService.save(book);
+        // The in-memory deadline wheel and indexes only hear about reservations that commit.
+        afterCommit(() -> {
+            reservationDeadlines.pickUpBy(reservation.getId(), reservation.getPickUpBy());
+            coReservationIndex.recorded(book.getId(), previousBookIds);
+            trendingIndex.recorded(book.getId(), reservation.getReservedAt());
+        });
         return reservation;
     }
 
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Hands a freed copy straight to the head of the book's hold queue, or puts it back in
+     * stock when nobody is waiting. The copy never passes through quantityAvailable on the
+     * way to a waiting patron, so a reserveBook racing with the release cannot grab it. The
+     * patron's email is queued in the outbox in the same transaction.
+     */
+    private void releaseCopy(Book book) {
+        if (book == null || book.getId() == null) {
+            return;
+        }
+        if (!promoteNext(book)) {
+            bookService.returnCopy(book.getId());
+        }
+    }
+
+    private boolean promoteNext(Book book) {
+        for (int attempt = 0; attempt < MAX_PROMOTION_ATTEMPTS; attempt++) {
+            List<Hold> head = holdRepository.findQueueHead(book.getId(), QUEUE_HEAD);
+            if (head.isEmpty()) {
+                return false;
+            }
+            Hold hold = head.get(0);
+            if (holdRepository.claim(hold.getId()) == 1) {
+                Reservation reservation = reserve(hold.getBook(), hold.getUser());
+                emailService.notify(hold.getUser().getEmail(), Notification.HOLD_READY,
+                        hold.getBook().getTitle(), reservation.getPickUpBy().format(PICK_UP_BY));
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Hands copies sitting in stock to patrons still queued for them: holds placed while a copy
+     * was being returned rather than handed over, and copies that reach the row some other way,
+     * such as escrowed copies going back or a restock. Returns the number of holds promoted.
+     */
     @Override
-    public Reservation cancelReservation(Long reservationId) {
-        Reservation reservation = findReservationById(reservationId);
-        reservation.getBook().setQuantityAvailable(reservation.getBook().getQuantityAvailable() + 1);
-        reservationRepository.delete(reservation);
-        bookService.save(reservation.getBook());
-        return reservation;
+    @Transactional
+    public int promoteWaitingHolds() {
+        int promoted = 0;
+        for (Long bookId : holdRepository.findBookIdsWithStock()) {
+            Optional<Book> copy;
+            while ((copy = bookService.takeCopy(bookId)).isPresent()) {
+                if (!promoteNext(copy.get())) {
+                    bookService.returnCopy(bookId);
+                    break;
+                }
+                promoted++;
+            }
+        }
+        return promoted;
     }
 
     @Override
+    @Transactional
     public Reservation checkOutBook(Long reservationId) {
         Reservation reservation = findReservationById(reservationId);
         reservation.setCheckedOutAt(LocalDateTime.now());
         reservation.setDueDate(LocalDateTime.now().plusDays(14));
         reservation.setReturned(false);
-        return reservationRepository.save(reservation);
+        Reservation saved = reservationRepository.save(reservation);
+        reservationDeadlines.dueBy(reservationId, reservation.getDueDate());
+        fineService.loansChanged(userId(reservation));
+        return saved;
     }
 
     @Override
+    @Transactional
     public Reservation checkInBook(Long reservationId) {
         Reservation reservation = findReservationById(reservationId);
+        boolean alreadyReturned = reservation.isReturned();
         reservation.setReturned(true);
-        return reservationRepository.save(reservation);
+        if (!alreadyReturned) {
+            reservation.setReturnedAt(LocalDateTime.now());
+        }
+        Reservation saved = reservationRepository.save(reservation);
+        reservationDeadlines.cleared(reservationId);
+        if (!alreadyReturned) {
+            releaseCopy(reservation.getBook());
+        }
+        fineService.loansChanged(userId(reservation));
+        return saved;
     }
 
     @Override
-    public Page<Reservation> findAllReservations(int page, int size, String sortField, String sortDirection) {
+    public Page<ReservationSummary> findAllReservations(int page, int size, String sortField, String sortDirection) {
         Sort sort = Sort.by(sortField);
         if ("desc".equals(sortDirection)) {
             sort = sort.descending();
         }
 
         Pageable pageable = PageRequest.of(page, size, sort);
-        return reservationRepository.findAll(pageable);
+        return reservationRepository.findAllSummaries(pageable);
+    }
+
+    @Override
+    public KeysetPage<ReservationSummary> findAllReservationsAfter(String after, int size, String sortField, String sortDirection) {
+        return keysetRepository.findPage(Reservation.class, KEYSET_SORT_FIELDS, sortField, sortDirection, after, size, SUMMARY_FETCH)
+                .map(ReservationSummary::from);
     }
 
     @Override
@@ -97,44 +281,52 @@ public class ReservationServiceImpl implements ReservationService {
     }
 
     @Override
-    public List<Reservation> findReservationsByUserId(Long userId) {
+    public List<ReservationSummary> findReservationsByUserId(Long userId) {
         userService.findById(userId).orElseThrow(() -> new EntityNotFoundException("User not found"));
-        return reservationRepository.findReservationsByUserId(userId);
+        return reservationRepository.findSummariesByUserId(userId);
     }
 
     @Override
+    @Transactional
     public Reservation extendDueDate(Long reservationId) {
         Reservation reservation = findReservationById(reservationId);
         reservation.setDueDate(reservation.getDueDate().plusDays(7));
-        return reservationRepository.save(reservation);
+        Reservation saved = reservationRepository.save(reservation);
+        reservationDeadlines.dueBy(reservationId, reservation.getDueDate());
+        fineService.loansChanged(userId(reservation));
+        return saved;
     }
 
-    @Scheduled(fixedRate = 4 * 60 * 60 * 1000L) // run every 4 hours (1000=1second)
+    // Fines are charged by FineAccrualJob; this only lists the loans currently overdue.
     @Override
+    @Transactional(readOnly = true)
     public List<Reservation> findOverdueCheckins() {
-        try {
-            LocalDateTime now = LocalDateTime.now();
-            List<Reservation> overdueReservations = reservationRepository.findAllByCheckedOutAtIsNotNullAndDueDateBeforeAndReturnedIsFalse(now);
-            for (Reservation reservation : overdueReservations) {
-                User user = reservation.getUser();
-                if (user != null) {
-                    addFine(reservation.getId(), user.getId());
-                }
-            }
-            return overdueReservations;
-        } catch (Exception e) {
-            System.err.println("Error occurred while finding overdue check-ins: " + e.getMessage());
-            return Collections.emptyList();
-        }
+        return reservationRepository.findAllByCheckedOutAtIsNotNullAndDueDateBeforeAndReturnedIsFalse(LocalDateTime.now());
     }
 
     @Override
+    @Transactional
     public void purgeNonPickedUpReservations() {
         LocalDateTime now = LocalDateTime.now();
         List<Reservation> overduePickUps = reservationRepository.findAllByPickUpByBeforeAndCheckedOutAtIsNull(now);
         for (Reservation reservation : overduePickUps) {
-            cancelReservation(reservation.getId());
+            expirePickUp(reservation.getId(), now);
         }
+        promoteWaitingHolds();
+    }
+
+    /** Cancels the reservation if it is still uncollected at {@code now}; false when it was collected or already gone. */
+    @Override
+    @Transactional
+    public boolean expirePickUp(Long reservationId, LocalDateTime now) {
+        Optional<Reservation> reservation = reservationRepository.findById(reservationId);
+        if (reservation.isEmpty() || reservationRepository.deleteExpiredPickUp(reservationId, now) == 0) {
+            return false;
+        }
+        reservationDeadlines.cleared(reservationId);
+        releaseCopy(reservation.get().getBook());
+        fineService.loansChanged(userId(reservation.get()));
+        return true;
     }
     @Override
     public List<Reservation> findOverduePickups() {
@@ -143,10 +335,11 @@ public class ReservationServiceImpl implements ReservationService {
     }
 
     @Override
+    @Transactional
     public void cancelReservationsForUser(Long userId) {
-        User user = userService.findById(userId).orElseThrow(() -> new EntityNotFoundException("User not found"));
+        userService.findById(userId).orElseThrow(() -> new EntityNotFoundException("User not found"));
         List<Reservation> reservations = reservationRepository.findReservationsByUserId(userId);
-        if(user.getFine() > 0.0){
+        if(fineService.balance(userId) > 0.0){
             throw new RuntimeException("Can't delete user with unpaid fine");
         }
         for(Reservation reservation : reservations){
@@ -155,7 +348,12 @@ public class ReservationServiceImpl implements ReservationService {
     }
 
     @Override
+    @Transactional
     public void addFine(Long reservationId, Long userId) {
+        if (fineService.computesCharges()) {
+            // Computed fines already charge the loan; a stored charge on top would count the day twice.
+            return;
+        }
         User user = userService.findById(userId).orElseThrow(() -> new EntityNotFoundException("User not found"));
         Reservation reservation = reservationRepository.findById(reservationId).orElseThrow(() -> new EntityNotFoundException("Reservation not found"));
 
@@ -170,12 +368,17 @@ public class ReservationServiceImpl implements ReservationService {
             fine = 50.0;
         }
 
-        emailService.sendOverdueEmail(user.getEmail(), "Overdue Book Return", "You have been issued a 50c charge for overdue book return.");
+        emailService.notify(user.getEmail(), Notification.FINE_ISSUED, "50c",
+                reservation.getBook() == null ? null : reservation.getBook().getTitle());
         user.setFine(fine);
         userService.addFine(user);
 
         reservation.setLastFineAddedAt(today);
         reservationRepository.save(reservation);
+        fineService.loansChanged(userId);
     }
-}
 
+    private static Long userId(Reservation reservation) {
+        return reservation.getUser() == null ? null : reservation.getUser().getId();
+    }
+}
@@ -0,0 +1,40 @@
+package com.x00179223.librarybackend.service;
+
+import com.x00179223.librarybackend.exception.ResourceNotFoundException;
+import com.x00179223.librarybackend.model.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+/** Fines as accumulated on {@code User.fine} by {@link FineAccrualJob}. */
+@Service
+@ConditionalOnProperty(name = "library.fines.mode", havingValue = "stored", matchIfMissing = true)
+public class StoredFineServiceImpl implements FineService {
+
+    private final UserService userService;
+
+    @Autowired
+    public StoredFineServiceImpl(UserService userService) {
+        this.userService = userService;
+    }
+
+    @Override
+    public double balance(Long userId) {
+        return user(userId).getFine();
+    }
+
+    @Override
+    public void settle(Long userId) {
+        User user = user(userId);
+        user.setFine(0.0);
+        userService.addFine(user);
+    }
+
+    @Override
+    public void loansChanged(Long userId) {
+    }
+
+    private User user(Long userId) {
+        return userService.findById(userId).orElseThrow(() -> new ResourceNotFoundException("User not found"));
+    }
+}
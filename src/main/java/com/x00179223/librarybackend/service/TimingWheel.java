@@ -0,0 +1,144 @@
+package com.x00179223.librarybackend.service;
+
+import java.util.*;
+
+/**
+ * Hierarchical timing wheel. Level 0 has one slot per tick and each level above it covers
+ * {@link #SLOTS} times the span of the one below, so scheduling and cancelling are O(1) and
+ * advancing costs one slot per tick plus the occasional cascade of a higher slot into the
+ * levels below. Deadlines past the top level's span are parked in its furthest slot and
+ * re-placed when it cascades. A key fires on the first tick at or after its deadline.
+ * Not thread-safe; callers synchronise.
+ */
+public final class TimingWheel<K> {
+
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+
+    private final long tickMillis;
+    private final int levels;
+    private final List<Set<Entry<K>>[]> wheels = new ArrayList<>();
+    private final Map<K, Entry<K>> entries = new HashMap<>();
+    private final List<K> due = new ArrayList<>();
+    private long currentTick;
+
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tickMillis, int levels, long startMillis) {
+        if (tickMillis <= 0 || levels <= 0 || levels * BITS >= Long.SIZE - 1) {
+            throw new IllegalArgumentException("Invalid timing wheel size");
+        }
+        this.tickMillis = tickMillis;
+        this.levels = levels;
+        for (int level = 0; level < levels; level++) {
+            wheels.add(new Set[SLOTS]);
+        }
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    /** Schedules {@code key}, replacing any deadline it already had. */
+    public void schedule(K key, long deadlineMillis) {
+        cancel(key);
+        Entry<K> entry = new Entry<>(key, Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis));
+        entries.put(key, entry);
+        place(entry);
+    }
+
+    public boolean cancel(K key) {
+        Entry<K> entry = entries.remove(key);
+        if (entry == null) {
+            return false;
+        }
+        if (entry.level < 0) {
+            due.remove(key);
+        } else {
+            wheels.get(entry.level)[entry.slot].remove(entry);
+        }
+        return true;
+    }
+
+    public boolean contains(K key) {
+        return entries.containsKey(key);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void clear() {
+        for (Set<Entry<K>>[] wheel : wheels) {
+            Arrays.fill(wheel, null);
+        }
+        entries.clear();
+        due.clear();
+    }
+
+    /** Moves the wheel to {@code nowMillis} and returns the keys that fell due, earliest first. */
+    public List<K> advance(long nowMillis) {
+        long target = nowMillis / tickMillis;
+        if (entries.size() == due.size() && target > currentTick) {
+            currentTick = target;
+        }
+        while (currentTick < target) {
+            currentTick++;
+            for (int level = levels - 1; level > 0; level--) {
+                if ((currentTick & ((1L << (level * BITS)) - 1)) == 0) {
+                    cascade(level, (int) ((currentTick >>> (level * BITS)) & MASK));
+                }
+            }
+            cascade(0, (int) (currentTick & MASK));
+        }
+        List<K> fired = new ArrayList<>(due);
+        for (K key : fired) {
+            entries.remove(key);
+        }
+        due.clear();
+        return fired;
+    }
+
+    private void cascade(int level, int slot) {
+        Set<Entry<K>> expiring = wheels.get(level)[slot];
+        if (expiring == null || expiring.isEmpty()) {
+            return;
+        }
+        wheels.get(level)[slot] = null;
+        for (Entry<K> entry : expiring) {
+            place(entry);
+        }
+    }
+
+    private void place(Entry<K> entry) {
+        long delta = entry.tick - currentTick;
+        if (delta <= 0) {
+            entry.level = -1;
+            due.add(entry.key);
+            return;
+        }
+        int level = 0;
+        while (level < levels - 1 && delta >= 1L << ((level + 1) * BITS)) {
+            level++;
+        }
+        long position = delta >= 1L << (levels * BITS)
+                ? (currentTick >>> (level * BITS)) + MASK
+                : entry.tick >>> (level * BITS);
+        entry.level = level;
+        entry.slot = (int) (position & MASK);
+        Set<Entry<K>>[] wheel = wheels.get(level);
+        if (wheel[entry.slot] == null) {
+            wheel[entry.slot] = new LinkedHashSet<>();
+        }
+        wheel[entry.slot].add(entry);
+    }
+
+    private static final class Entry<K> {
+        private final K key;
+        private final long tick;
+        private int level;
+        private int slot;
+
+        private Entry(K key, long tick) {
+            this.key = key;
+            this.tick = tick;
+        }
+    }
+}
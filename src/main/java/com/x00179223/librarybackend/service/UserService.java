@@ -3,6 +3,8 @@ package com.x00179223.librarybackend.service;
 import com.x00179223.librarybackend.model.Book;
 import com.x00179223.librarybackend.dto.BookIdUserIdRequest;
 import com.x00179223.librarybackend.model.User;
+import com.x00179223.librarybackend.dto.KeysetPage;
+import com.x00179223.librarybackend.dto.UserSummary;
 import com.x00179223.librarybackend.dto.UserUpdateRequest;
 import org.springframework.data.domain.Page;
 
@@ -14,7 +16,8 @@ public interface UserService {
     Optional<User> findByEmail(String email);
     User save(User user);
     Optional<User> findById(Long id);
-    Page<User> findAll(int page, int size, String sortField, String sortDirection);
+    Page<UserSummary> findAll(int page, int size, String sortField, String sortDirection);
+    KeysetPage<UserSummary> findAllAfter(String after, int size, String sortField, String sortDirection);
     void deleteById(Long id);
     User updateUser(Long id, UserUpdateRequest request);
     User addFine(User user);
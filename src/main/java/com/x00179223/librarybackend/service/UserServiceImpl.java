@@ -1,10 +1,13 @@
 package com.x00179223.librarybackend.service;
 
 import com.x00179223.librarybackend.dto.BookIdUserIdRequest;
+import com.x00179223.librarybackend.dto.KeysetPage;
+import com.x00179223.librarybackend.dto.UserSummary;
 import com.x00179223.librarybackend.dto.UserUpdateRequest;
 import com.x00179223.librarybackend.exception.ResourceNotFoundException;
 import com.x00179223.librarybackend.model.Book;
 import com.x00179223.librarybackend.model.User;
+import com.x00179223.librarybackend.repository.KeysetRepository;
 import com.x00179223.librarybackend.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -20,13 +23,17 @@ import java.util.Set;
 @Service
 public class UserServiceImpl implements UserService {
 
+    private static final Set<String> KEYSET_SORT_FIELDS = Set.of("id", "email", "lastname");
+
     private final UserRepository userRepository;
     private final BookService bookService;
+    private final KeysetRepository keysetRepository;
 
     @Autowired
-    public UserServiceImpl(UserRepository userRepository, BookService bookService) {
+    public UserServiceImpl(UserRepository userRepository, BookService bookService, KeysetRepository keysetRepository) {
         this.userRepository = userRepository;
         this.bookService = bookService;
+        this.keysetRepository = keysetRepository;
     }
 
     @Override
@@ -48,7 +55,7 @@ public class UserServiceImpl implements UserService {
     }
 
     @Override
-    public Page<User> findAll(int page, int size, String sortField, String sortDirection) {
+    public Page<UserSummary> findAll(int page, int size, String sortField, String sortDirection) {
         Sort sort = Sort.by(sortField);
         if ("desc".equals(sortDirection)) {
             sort = sort.descending();
@@ -56,7 +63,13 @@ public class UserServiceImpl implements UserService {
 
         Pageable pageable = PageRequest.of(page, size, sort);
 
-        return userRepository.findAll(pageable);
+        return userRepository.findAllSummaries(pageable);
+    }
+
+    @Override
+    public KeysetPage<UserSummary> findAllAfter(String after, int size, String sortField, String sortDirection) {
+        return keysetRepository.findPage(User.class, KEYSET_SORT_FIELDS, sortField, sortDirection, after, size)
+                .map(UserSummary::from);
     }
 
     @Override
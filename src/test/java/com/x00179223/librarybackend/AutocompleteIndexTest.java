@@ -0,0 +1,62 @@
+package com.x00179223.librarybackend;
+
+import com.x00179223.librarybackend.index.AutocompleteIndex;
+import com.x00179223.librarybackend.model.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AutocompleteIndexTest {
+
+    private AutocompleteIndex autocompleteIndex;
+
+    @BeforeEach
+    public void setUp() {
+        autocompleteIndex = new AutocompleteIndex();
+        autocompleteIndex.rebuild(List.of(
+                Book.builder().id(1L).title("Harry Potter and the Philosopher's Stone").author("J.K. Rowling").ratingCount(50).build(),
+                Book.builder().id(2L).title("Harry Potter and the Chamber of Secrets").author("J.K. Rowling").ratingCount(20).build(),
+                Book.builder().id(3L).title("Hard Times").author("Charles Dickens").ratingCount(80).build(),
+                Book.builder().id(4L).title("Great Expectations").author("Charles Dickens").ratingCount(5).build()
+        ));
+    }
+
+    @Test
+    public void suggest_ShouldRankCompletionsByPopularity() {
+        assertEquals(List.of("Hard Times", "Harry Potter and the Philosopher's Stone", "Harry Potter and the Chamber of Secrets"),
+                autocompleteIndex.suggest("Har", 10));
+        assertEquals(List.of("Harry Potter and the Philosopher's Stone"), autocompleteIndex.suggest("harry", 1));
+    }
+
+    @Test
+    public void suggest_ShouldCompleteAuthorsWeightedByAllTheirBooks() {
+        assertEquals(List.of("Charles Dickens"), autocompleteIndex.suggest("charles d", 10));
+        assertEquals("Charles Dickens", autocompleteIndex.suggest("c", 1).get(0));
+    }
+
+    @Test
+    public void suggest_ShouldMatchPrefixesLongerThanTheTrieDepth() {
+        assertEquals(List.of("Harry Potter and the Chamber of Secrets"),
+                autocompleteIndex.suggest("harry potter and the chamber of sec", 10));
+    }
+
+    @Test
+    public void index_ShouldRefreshWeightsIncrementally() {
+        autocompleteIndex.index(Book.builder().id(2L).title("Harry Potter and the Chamber of Secrets").author("J.K. Rowling").ratingCount(500).build());
+
+        assertEquals("Harry Potter and the Chamber of Secrets", autocompleteIndex.suggest("h", 1).get(0));
+    }
+
+    @Test
+    public void remove_ShouldDropCompletionsWithNoRemainingBooks() {
+        autocompleteIndex.remove(3L);
+
+        assertEquals(List.of("Harry Potter and the Philosopher's Stone", "Harry Potter and the Chamber of Secrets"),
+                autocompleteIndex.suggest("har", 10));
+        assertEquals(List.of("Charles Dickens"), autocompleteIndex.suggest("charles", 10));
+        assertTrue(autocompleteIndex.suggest("hard", 10).isEmpty());
+    }
+}
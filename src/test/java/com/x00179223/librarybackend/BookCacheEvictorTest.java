@@ -0,0 +1,71 @@
+package com.x00179223.librarybackend;
+
+import com.x00179223.librarybackend.config.CacheConfig;
+import com.x00179223.librarybackend.model.Book;
+import com.x00179223.librarybackend.service.BookCacheEvictor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BookCacheEvictorTest {
+
+    private CaffeineCacheManager cacheManager;
+    private BookCacheEvictor evictor;
+
+    @BeforeEach
+    public void setUp() {
+        cacheManager = new CaffeineCacheManager(CacheConfig.BOOKS, CacheConfig.BOOK_GENRES, CacheConfig.BOOKS_BY_GENRE, CacheConfig.BOOK_SEARCHES);
+        evictor = new BookCacheEvictor(cacheManager);
+        evictor.rebuild(List.of(
+                Book.builder().id(1L).title("Dune").genre("Science Fiction").build(),
+                Book.builder().id(2L).title("Emma").genre("Romance").build()));
+
+        cache(CacheConfig.BOOKS).put(1L, "dune");
+        cache(CacheConfig.BOOKS).put(2L, "emma");
+        cache(CacheConfig.BOOK_GENRES).put("genres", List.of("Romance", "Science Fiction"));
+        cache(CacheConfig.BOOKS_BY_GENRE).put(List.of("Science Fiction", 0, 10, "title", "asc"), "sci-fi page");
+        cache(CacheConfig.BOOKS_BY_GENRE).put(List.of("Romance", 0, 10, "title", "asc"), "romance page");
+        cache(CacheConfig.BOOK_SEARCHES).put(List.of("dune", 0, 10), "search page");
+    }
+
+    @Test
+    public void index_ShouldEvictOnlyTheChangedBookAndItsGenre() {
+        evictor.index(Book.builder().id(1L).title("Dune").genre("Science Fiction").quantityAvailable(0).build());
+
+        assertNull(cache(CacheConfig.BOOKS).get(1L));
+        assertNotNull(cache(CacheConfig.BOOKS).get(2L));
+        assertNull(cache(CacheConfig.BOOKS_BY_GENRE).get(List.of("Science Fiction", 0, 10, "title", "asc")));
+        assertNotNull(cache(CacheConfig.BOOKS_BY_GENRE).get(List.of("Romance", 0, 10, "title", "asc")));
+        assertNotNull(cache(CacheConfig.BOOK_GENRES).get("genres"));
+        assertNull(cache(CacheConfig.BOOK_SEARCHES).get(List.of("dune", 0, 10)));
+    }
+
+    @Test
+    public void index_ShouldEvictOldAndNewGenreWhenGenreChanges() {
+        evictor.index(Book.builder().id(2L).title("Emma").genre("Science Fiction").build());
+
+        assertNull(cache(CacheConfig.BOOKS_BY_GENRE).get(List.of("Romance", 0, 10, "title", "asc")));
+        assertNull(cache(CacheConfig.BOOKS_BY_GENRE).get(List.of("Science Fiction", 0, 10, "title", "asc")));
+        assertNull(cache(CacheConfig.BOOK_GENRES).get("genres"));
+        assertNotNull(cache(CacheConfig.BOOKS).get(1L));
+    }
+
+    @Test
+    public void remove_ShouldEvictBookGenrePagesAndGenreList() {
+        evictor.remove(2L);
+
+        assertNull(cache(CacheConfig.BOOKS).get(2L));
+        assertNull(cache(CacheConfig.BOOKS_BY_GENRE).get(List.of("Romance", 0, 10, "title", "asc")));
+        assertNull(cache(CacheConfig.BOOK_GENRES).get("genres"));
+        assertNotNull(cache(CacheConfig.BOOKS_BY_GENRE).get(List.of("Science Fiction", 0, 10, "title", "asc")));
+    }
+
+    private Cache cache(String name) {
+        return cacheManager.getCache(name);
+    }
+}
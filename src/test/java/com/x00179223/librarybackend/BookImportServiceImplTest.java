@@ -0,0 +1,152 @@
+package com.x00179223.librarybackend;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.x00179223.librarybackend.dto.ImportReport;
+import com.x00179223.librarybackend.dto.ImportRowError;
+import com.x00179223.librarybackend.index.CatalogueIndexer;
+import com.x00179223.librarybackend.model.Book;
+import com.x00179223.librarybackend.repository.BookRepository;
+import com.x00179223.librarybackend.service.BookImportService;
+import com.x00179223.librarybackend.service.BookImportServiceImpl;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+public class BookImportServiceImplTest {
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @Mock
+    private CatalogueIndexer catalogueIndexer;
+
+    @Mock
+    private EntityManager entityManager;
+
+    private BookImportServiceImpl bookImportService;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        bookImportService = new BookImportServiceImpl(transactionManager, bookRepository, catalogueIndexer, new ObjectMapper(), 500);
+        ReflectionTestUtils.setField(bookImportService, "entityManager", entityManager);
+    }
+
+    @Test
+    public void importBooks_ShouldPersistValidCsvRowsInBatches() throws IOException {
+        String csv = "title,author,ISBN,genre,publicationYear,quantityAvailable\n"
+                + "Dune,Frank Herbert,9780441172719,Science Fiction,1965,3\n"
+                + "\"Good Omens, The Nice and Accurate Prophecies\",\"Pratchett \"\"Terry\"\"\",,Fantasy,1990,1\r\n"
+                + "\n"
+                + "Emma,Jane Austen,,Romance,1815,2\n";
+
+        ImportReport report = bookImportService.importBooks(stream(csv), BookImportService.Format.CSV, 2);
+
+        assertEquals(3, report.getRowsRead());
+        assertEquals(3, report.getImported());
+        assertEquals(0, report.getRejected());
+        ArgumentCaptor<Book> persisted = ArgumentCaptor.forClass(Book.class);
+        verify(entityManager, times(3)).persist(persisted.capture());
+        assertEquals("Good Omens, The Nice and Accurate Prophecies", persisted.getAllValues().get(1).getTitle());
+        assertEquals("Pratchett \"Terry\"", persisted.getAllValues().get(1).getAuthor());
+        assertNull(persisted.getAllValues().get(1).getISBN());
+        verify(entityManager, times(2)).flush();
+        verify(entityManager, times(2)).clear();
+        verify(transactionManager, times(2)).commit(any());
+        verify(catalogueIndexer, times(2)).indexedAll(anyList());
+    }
+
+    @Test
+    public void importBooks_ShouldReportInvalidNdjsonRows() throws IOException {
+        String ndjson = "{\"title\":\"Dune\",\"author\":\"Frank Herbert\",\"publicationYear\":1965,\"quantityAvailable\":3}\n"
+                + "{\"title\":\"\",\"author\":\"Nobody\"}\n"
+                + "not json\n"
+                + "{\"title\":\"Emma\",\"author\":\"Jane Austen\",\"quantityAvailable\":-1}\n"
+                + "{\"title\":\"Beloved\",\"author\":\"Toni Morrison\",\"publicationYear\":\"nineteen\"}\n";
+
+        ImportReport report = bookImportService.importBooks(stream(ndjson), BookImportService.Format.NDJSON, null);
+
+        assertEquals(5, report.getRowsRead());
+        assertEquals(1, report.getImported());
+        assertEquals(4, report.getRejected());
+        assertEquals(List.of(2L, 3L, 4L, 5L), report.getErrors().stream().map(error -> error.getRow()).toList());
+        verify(entityManager, times(1)).persist(any(Book.class));
+    }
+
+    @Test
+    public void importBooks_ShouldRejectEveryRowThatCannotBeSaved() throws IOException {
+        doThrow(new PersistenceException("connection lost")).when(entityManager).flush();
+        String csv = "title,author\nDune,Frank Herbert\nEmma,Jane Austen\n";
+
+        ImportReport report = bookImportService.importBooks(stream(csv), BookImportService.Format.CSV, 10);
+
+        assertEquals(0, report.getImported());
+        assertEquals(2, report.getRejected());
+        assertEquals(List.of(1L, 2L), report.getErrors().stream().map(ImportRowError::getRow).toList());
+        verify(transactionManager, times(3)).rollback(any());
+        verifyNoInteractions(catalogueIndexer);
+    }
+
+    @Test
+    public void importBooks_ShouldRejectOnlyRowsWithDuplicateIsbns() throws IOException {
+        when(bookRepository.findExistingIsbns(anyCollection())).thenReturn(List.of("9780679781585"));
+        String csv = "title,author,isbn\n"
+                + "Dune,Frank Herbert,9780441172719\n"
+                + "Emma,Jane Austen,9780141439587\n"
+                + "Dune (reissue),Frank Herbert,0-441-17271-7\n"
+                + "Beloved,Toni Morrison,9780679781585\n"
+                + "Dracula,Bram Stoker,\n";
+
+        ImportReport report = bookImportService.importBooks(stream(csv), BookImportService.Format.CSV, 10);
+
+        assertEquals(3, report.getImported());
+        assertEquals(2, report.getRejected());
+        assertEquals(List.of(3L, 4L), report.getErrors().stream().map(ImportRowError::getRow).toList());
+        verify(entityManager, times(3)).persist(any(Book.class));
+        verify(transactionManager, times(1)).commit(any());
+    }
+
+    @Test
+    public void importBooks_ShouldRetryRowByRowWhenTheBatchHitsAConstraint() throws IOException {
+        doAnswer(invocation -> {
+            Book book = invocation.getArgument(0);
+            if ("Emma".equals(book.getTitle())) {
+                doThrow(new PersistenceException("duplicate key")).doNothing().when(entityManager).flush();
+            }
+            return null;
+        }).when(entityManager).persist(any(Book.class));
+        String csv = "title,author\nDune,Frank Herbert\nEmma,Jane Austen\nBeloved,Toni Morrison\n";
+
+        ImportReport report = bookImportService.importBooks(stream(csv), BookImportService.Format.CSV, 10);
+
+        assertEquals(2, report.getImported());
+        assertEquals(1, report.getRejected());
+        assertEquals(2L, report.getErrors().get(0).getRow());
+        verify(catalogueIndexer).indexedAll(argThat(books -> books.size() == 2));
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -1,5 +1,6 @@
 package com.x00179223.librarybackend;
 
+import com.x00179223.librarybackend.index.CatalogueIndexer;
 import com.x00179223.librarybackend.model.Book;
 import com.x00179223.librarybackend.model.User;
 import com.x00179223.librarybackend.model.UserBookRating;
@@ -33,6 +34,9 @@ class BookRatingServiceImplTest {
     @Mock
     private UserService userService;
 
+    @Mock
+    private CatalogueIndexer catalogueIndexer;
+
     @InjectMocks
     private BookRatingServiceImpl bookRatingService;
 
@@ -75,6 +79,7 @@ class BookRatingServiceImplTest {
 
         verify(bookRatingRepository, times(1)).findByUserAndBook(user, book);
         verify(bookRatingRepository, times(1)).save(any(UserBookRating.class));
+        verify(catalogueIndexer, times(1)).indexed(book);
     }
 
     @Test
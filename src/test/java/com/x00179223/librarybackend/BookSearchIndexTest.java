@@ -0,0 +1,93 @@
+package com.x00179223.librarybackend;
+
+import com.x00179223.librarybackend.index.BookSearchIndex;
+import com.x00179223.librarybackend.model.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BookSearchIndexTest {
+
+    private BookSearchIndex bookSearchIndex;
+
+    @BeforeEach
+    public void setUp() {
+        bookSearchIndex = new BookSearchIndex();
+        bookSearchIndex.rebuild(List.of(
+                Book.builder().id(1L).title("The Hobbit").author("J.R.R. Tolkien").genre("Fantasy").build(),
+                Book.builder().id(2L).title("The Lord of the Rings").author("J.R.R. Tolkien").genre("Fantasy").build(),
+                Book.builder().id(3L).title("Fantasy Football Annual").author("Mark Smith").genre("Sport").build(),
+                Book.builder().id(4L).title("Dune").author("Frank Herbert").genre("Science Fiction").build()
+        ));
+    }
+
+    @Test
+    public void search_ShouldMatchAcrossTitleAuthorAndGenre() {
+        assertTrue(bookSearchIndex.isReady());
+        assertEquals(List.of(4L), ids(bookSearchIndex.search("herbert", 0, 10)));
+        assertEquals(List.of(4L), ids(bookSearchIndex.search("science", 0, 10)));
+        assertEquals(2, bookSearchIndex.search("tolkien", 0, 10).size());
+    }
+
+    @Test
+    public void search_ShouldRequireEveryTokenAndMatchPrefixes() {
+        assertEquals(List.of(2L), ids(bookSearchIndex.search("tolk rings", 0, 10)));
+        assertEquals(List.of(1L), ids(bookSearchIndex.search("hobb", 0, 10)));
+        assertTrue(bookSearchIndex.search("tolkien dune", 0, 10).isEmpty());
+    }
+
+    @Test
+    public void search_ShouldRankTitleMatchesAboveGenreMatches() {
+        List<Book> results = bookSearchIndex.search("fantasy", 0, 10);
+
+        assertEquals(3, results.size());
+        assertEquals(3L, results.get(0).getId());
+    }
+
+    @Test
+    public void search_ShouldReturnRequestedWindowOfRankedResults() {
+        List<Book> all = bookSearchIndex.search("fantasy", 0, 10);
+
+        assertEquals(ids(all.subList(1, 3)), ids(bookSearchIndex.search("fantasy", 1, 5)));
+        assertEquals(ids(all.subList(0, 1)), ids(bookSearchIndex.search("fantasy", 0, 1)));
+        assertTrue(bookSearchIndex.search("fantasy", 3, 5).isEmpty());
+    }
+
+    @Test
+    public void search_ShouldNotShareBookInstancesWithCallers() {
+        Book source = Book.builder().id(5L).title("Emma").author("Jane Austen").quantityAvailable(2).build();
+        bookSearchIndex.index(source);
+        source.setQuantityAvailable(0);
+
+        Book found = bookSearchIndex.search("emma", 0, 1).get(0);
+        assertEquals(2, found.getQuantityAvailable());
+        found.setTitle("Changed");
+
+        assertEquals("Emma", bookSearchIndex.document(5L).orElseThrow().getTitle());
+        assertNotSame(bookSearchIndex.document(5L).orElseThrow(), bookSearchIndex.document(5L).orElseThrow());
+    }
+
+    @Test
+    public void index_ShouldReplaceExistingDocument() {
+        bookSearchIndex.index(Book.builder().id(4L).title("Children of Dune").author("Frank Herbert").genre("Science Fiction").build());
+
+        assertEquals(List.of(4L), ids(bookSearchIndex.search("children", 0, 10)));
+        assertEquals(4, bookSearchIndex.size());
+    }
+
+    @Test
+    public void remove_ShouldDropDocumentFromResults() {
+        bookSearchIndex.remove(1L);
+
+        assertEquals(List.of(2L), ids(bookSearchIndex.search("tolkien", 0, 10)));
+        assertTrue(bookSearchIndex.search("hobbit", 0, 10).isEmpty());
+        assertTrue(bookSearchIndex.document(1L).isEmpty());
+    }
+
+    private static List<Long> ids(List<Book> books) {
+        return books.stream().map(Book::getId).toList();
+    }
+}
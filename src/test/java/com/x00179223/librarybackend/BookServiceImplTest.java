@@ -1,25 +1,49 @@
 package com.x00179223.librarybackend;
 
+import com.x00179223.librarybackend.config.CacheConfig;
+import com.x00179223.librarybackend.index.AutocompleteIndex;
+import com.x00179223.librarybackend.index.BookSearchIndex;
+import com.x00179223.librarybackend.index.CatalogueIndexer;
+import com.x00179223.librarybackend.index.CoReservationIndex;
+import com.x00179223.librarybackend.index.FacetIndex;
+import com.x00179223.librarybackend.index.IsbnIndex;
+import com.x00179223.librarybackend.index.SimilarityIndex;
+import com.x00179223.librarybackend.index.TrendingIndex;
+import com.x00179223.librarybackend.index.SpellingDictionary;
+import com.x00179223.librarybackend.dto.BookBatchResponse;
+import com.x00179223.librarybackend.dto.BookSummary;
+import com.x00179223.librarybackend.dto.FacetQuery;
+import com.x00179223.librarybackend.dto.FacetedSearchResponse;
 import com.x00179223.librarybackend.model.Book;
 import com.x00179223.librarybackend.repository.BookRepository;
+import com.x00179223.librarybackend.repository.KeysetRepository;
 import com.x00179223.librarybackend.service.BookServiceImpl;
+import com.x00179223.librarybackend.service.InventoryEscrow;
 import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Sort;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.LongStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
@@ -31,12 +55,46 @@ public class BookServiceImplTest {
     @Mock
     private BookRepository bookRepository;
 
+    @Mock
+    private CatalogueIndexer catalogueIndexer;
+
+    private BookSearchIndex bookSearchIndex;
+
+    private SpellingDictionary spellingDictionary;
+
+    @Mock
+    private AutocompleteIndex autocompleteIndex;
+
+    private FacetIndex facetIndex;
+
+    private IsbnIndex isbnIndex;
+
+    private SimilarityIndex similarityIndex;
+
+    @Mock
+    private KeysetRepository keysetRepository;
+
+    @Mock
+    private CoReservationIndex coReservationIndex;
+
+    @Mock
+    private TrendingIndex trendingIndex;
+
+    @Mock
+    private InventoryEscrow inventoryEscrow;
+
     private Book book;
 
     @BeforeEach
     public void setUp() {
         MockitoAnnotations.openMocks(this);
-        bookService = new BookServiceImpl(bookRepository);
+        bookSearchIndex = new BookSearchIndex();
+        spellingDictionary = new SpellingDictionary();
+        facetIndex = new FacetIndex();
+        isbnIndex = new IsbnIndex();
+        similarityIndex = new SimilarityIndex();
+        bookService = new BookServiceImpl(bookRepository, bookSearchIndex, spellingDictionary, autocompleteIndex, facetIndex, isbnIndex, similarityIndex, coReservationIndex, trendingIndex, catalogueIndexer, keysetRepository, inventoryEscrow,
+                new ConcurrentMapCacheManager(CacheConfig.BOOK_SEARCHES));
 
         book = Book.builder().id(1L).author("Test Author").title("Test Title")
                 .genre("Test Genre").rating(0).ratingCount(0).ratingTotal(0)
@@ -56,6 +114,30 @@ public class BookServiceImplTest {
         assertEquals(0, savedBook.getRatingCount());
         assertEquals(0, savedBook.getRatingTotal());
         verify(bookRepository, times(1)).save(book);
+        verify(catalogueIndexer, times(1)).indexed(book);
+    }
+
+    @Test
+    public void takeCopy_ShouldPushOnlyTheStockDelta() {
+        book.setQuantityAvailable(2);
+        when(inventoryEscrow.take(1L)).thenReturn(true);
+        when(bookRepository.findById(1L)).thenReturn(Optional.of(book));
+
+        assertEquals(Optional.of(book), bookService.takeCopy(1L));
+
+        verify(catalogueIndexer).stockChanged(1L, -1);
+        verify(catalogueIndexer, never()).indexed(any(Book.class));
+    }
+
+    @Test
+    public void returnCopy_ShouldPushOneCopyBackWhenItStaysInEscrow() {
+        when(inventoryEscrow.giveBack(1L)).thenReturn(true);
+        when(bookRepository.findById(1L)).thenReturn(Optional.of(book));
+
+        bookService.returnCopy(1L);
+
+        verify(catalogueIndexer).stockChanged(1L, 1);
+        verify(bookRepository, never()).returnCopy(1L);
     }
 
     @Test
@@ -65,6 +147,7 @@ public class BookServiceImplTest {
         bookService.delete(id);
 
         verify(bookRepository, times(1)).deleteById(id);
+        verify(catalogueIndexer, times(1)).removed(id);
     }
 
     @Test
@@ -111,9 +194,9 @@ public class BookServiceImplTest {
                 .quantityAvailable(5).publicationYear(2021).rating(4.0).build());
         books.add(Book.builder().title("Test Book 2").author("Test Author 2").genre("Test Genre 2")
                 .quantityAvailable(3).publicationYear(2022).rating(4.5).build());
-        when(bookRepository.searchByTitleOrAuthorOrGenre(anyString())).thenReturn(books);
+        when(bookRepository.searchByTitleOrAuthorOrGenre(anyString(), any(Pageable.class))).thenReturn(new SliceImpl<>(books));
 
-        List<Book> searchResults = bookService.searchByTitleOrAuthorOrGenre(query);
+        List<Book> searchResults = bookService.searchByTitleOrAuthorOrGenre(query, 0, 10).getContent();
 
         assertEquals(2, searchResults.size());
         assertEquals("Test Book 1", searchResults.get(0).getTitle());
@@ -128,7 +211,182 @@ public class BookServiceImplTest {
         assertEquals(3, searchResults.get(1).getQuantityAvailable());
         assertEquals(2022, searchResults.get(1).getPublicationYear());
         assertEquals(4.5, searchResults.get(1).getRating());
-        verify(bookRepository, times(1)).searchByTitleOrAuthorOrGenre(query);
+        verify(bookRepository, times(1)).searchByTitleOrAuthorOrGenre(query, PageRequest.of(0, 10));
+    }
+
+    @Test
+    public void testSearchByTitleOrAuthorOrGenreUsesIndexWhenReady() {
+        Book hobbit = Book.builder().id(1L).title("The Hobbit").author("J.R.R. Tolkien").genre("Fantasy").build();
+        Book dune = Book.builder().id(2L).title("Dune").author("Frank Herbert").genre("Science Fiction").build();
+        bookSearchIndex.rebuild(List.of(hobbit, dune));
+
+        List<Book> searchResults = bookService.searchByTitleOrAuthorOrGenre("tolkien", 0, 10).getContent();
+
+        assertEquals(1, searchResults.size());
+        assertEquals("The Hobbit", searchResults.get(0).getTitle());
+        verify(bookRepository, never()).searchByTitleOrAuthorOrGenre(anyString(), any(Pageable.class));
+    }
+
+    @Test
+    public void testSearchByTitleOrAuthorOrGenreDoesNotShareCachedBooks() {
+        Book hobbit = Book.builder().id(1L).title("The Hobbit").author("J.R.R. Tolkien").genre("Fantasy").quantityAvailable(2).build();
+        bookSearchIndex.rebuild(List.of(hobbit));
+
+        Book first = bookService.searchByTitleOrAuthorOrGenre("tolkien", 0, 10).getContent().get(0);
+        first.setTitle("Changed by a caller");
+        bookSearchIndex.stockChanged(1L, -1);
+        Book second = bookService.searchByTitleOrAuthorOrGenre("tolkien", 0, 10).getContent().get(0);
+
+        assertEquals("The Hobbit", second.getTitle());
+        assertEquals(1, second.getQuantityAvailable());
+    }
+
+    @Test
+    public void testSearchByTitleOrAuthorOrGenreIsPagedAndCapped() {
+        List<Book> catalogue = new ArrayList<>();
+        for (long id = 1; id <= 250; id++) {
+            catalogue.add(Book.builder().id(id).title("Epic " + id).author("Author").genre("Saga").build());
+        }
+        bookSearchIndex.rebuild(catalogue);
+
+        Slice<Book> firstPage = bookService.searchByTitleOrAuthorOrGenre("epic", 0, 10);
+        Slice<Book> cappedPage = bookService.searchByTitleOrAuthorOrGenre("epic", 2, 500);
+        Slice<Book> pastWindow = bookService.searchByTitleOrAuthorOrGenre("epic", 100, 10);
+
+        assertEquals(10, firstPage.getContent().size());
+        assertTrue(firstPage.hasNext());
+        assertEquals(50, cappedPage.getContent().size());
+        assertFalse(cappedPage.hasNext());
+        assertTrue(pastWindow.getContent().isEmpty());
+        assertFalse(pastWindow.hasNext());
+    }
+
+    @Test
+    public void testSearchByTitleOrAuthorOrGenreCutsThePageStraddlingTheCap() {
+        List<Book> catalogue = new ArrayList<>();
+        for (long id = 1; id <= 1100; id++) {
+            catalogue.add(Book.builder().id(id).title("Epic " + id).author("Author").genre("Saga").build());
+        }
+        bookSearchIndex.rebuild(catalogue);
+
+        Slice<Book> lastPage = bookService.searchByTitleOrAuthorOrGenre("epic", 10, 95);
+
+        assertEquals(50, lastPage.getContent().size());
+        assertFalse(lastPage.hasNext());
+    }
+
+    @Test
+    public void testSuggestCorrectionsOnlyReturnsQueriesWithResults() {
+        List<Book> catalogue = List.of(
+                Book.builder().id(1L).title("The Hobbit").author("J.R.R. Tolkien").genre("Fantasy").build(),
+                Book.builder().id(2L).title("Dune").author("Frank Herbert").genre("Science Fiction").build());
+        bookSearchIndex.rebuild(catalogue);
+        spellingDictionary.rebuild(catalogue);
+
+        assertEquals(List.of("tolkien"), bookService.suggestCorrections("tolkein"));
+        assertEquals(List.of("hobbit tolkien"), bookService.suggestCorrections("hobit tolkein"));
+        assertEquals(List.of(), bookService.suggestCorrections("dune herbert"));
+    }
+
+    @Test
+    public void testBrowseCombinesTextSearchWithFacets() {
+        List<Book> catalogue = List.of(
+                Book.builder().id(1L).title("The Hobbit").author("J.R.R. Tolkien").genre("Fantasy").publicationYear(1937).rating(4.6).quantityAvailable(2).build(),
+                Book.builder().id(2L).title("The Silmarillion").author("J.R.R. Tolkien").genre("Fantasy").publicationYear(1977).rating(3.9).quantityAvailable(0).build(),
+                Book.builder().id(3L).title("Tolkien: A Biography").author("Humphrey Carpenter").genre("Biography").publicationYear(1977).rating(4.1).quantityAvailable(1).build());
+        bookSearchIndex.rebuild(catalogue);
+        facetIndex.rebuild(catalogue);
+
+        FacetedSearchResponse response = bookService.browse(FacetQuery.builder().query("tolkien").genres(List.of("Fantasy")).build(), 0, 10);
+
+        assertEquals(2, response.getTotalElements());
+        assertEquals(List.of("The Hobbit", "The Silmarillion"), response.getBooks().stream().map(Book::getTitle).toList());
+        assertEquals(2L, response.getGenres().get("Fantasy"));
+        assertEquals(1L, response.getGenres().get("Biography"));
+        assertEquals(1L, response.getAvailability().get(FacetIndex.AVAILABLE));
+    }
+
+    @Test
+    public void testFindByIsbnNormalizesScannedCode() {
+        Book book = Book.builder().id(7L).title("Dune").ISBN("978-0-441-17271-9").build();
+        isbnIndex.rebuild(List.of(book));
+
+        assertEquals(Optional.of(book), bookService.findByIsbn("0441172717"));
+        assertEquals(Optional.of(book), bookService.findByIsbn("9780441172719"));
+        assertEquals(Optional.empty(), bookService.findByIsbn("9780306406157"));
+        assertThrows(IllegalArgumentException.class, () -> bookService.findByIsbn("0441172718"));
+        verify(bookRepository, never()).findByISBN(anyString());
+    }
+
+    @Test
+    public void testFindByIsbnFallsBackToRepositoryBeforeIndexIsBuilt() {
+        Book book = Book.builder().id(7L).title("Dune").ISBN("9780441172719").build();
+        when(bookRepository.findByISBN("9780441172719")).thenReturn(Optional.of(book));
+
+        assertEquals(Optional.of(book), bookService.findByIsbn("978-0441172719"));
+    }
+
+    @Test
+    public void testFindAllByIdResolvesFromIndexAndLoadsTheRestInOneQuery() {
+        Book dune = Book.builder().id(1L).title("Dune").build();
+        Book emma = Book.builder().id(2L).title("Emma").build();
+        Book ulysses = Book.builder().id(3L).title("Ulysses").build();
+        bookSearchIndex.rebuild(List.of(dune, emma));
+        when(bookRepository.findAllById(List.of(3L, 9L))).thenReturn(List.of(ulysses));
+
+        BookBatchResponse response = bookService.findAllById(List.of(3L, 2L, 9L, 2L, 1L));
+
+        assertEquals(List.of(ulysses, emma, dune), response.getBooks());
+        assertEquals(List.of(9L), response.getMissing());
+        verify(bookRepository, times(1)).findAllById(anyList());
+    }
+
+    @Test
+    public void testFindAllByIdSkipsRepositoryWhenIndexHasEveryBook() {
+        bookSearchIndex.rebuild(List.of(book));
+
+        BookBatchResponse response = bookService.findAllById(List.of(1L));
+
+        assertEquals(List.of(book), response.getBooks());
+        assertTrue(response.getMissing().isEmpty());
+        verify(bookRepository, never()).findAllById(anyList());
+    }
+
+    @Test
+    public void testFindAllByIdRejectsOversizedBatches() {
+        List<Long> ids = LongStream.rangeClosed(1, 501).boxed().toList();
+
+        assertThrows(IllegalArgumentException.class, () -> bookService.findAllById(ids));
+    }
+
+    @Test
+    public void testFindSimilarLoadsNeighboursInRankOrder() {
+        Book dune = Book.builder().id(1L).title("Dune").author("Frank Herbert").genre("Science Fiction").build();
+        Book messiah = Book.builder().id(2L).title("Dune Messiah").author("Frank Herbert").genre("Science Fiction").build();
+        Book emma = Book.builder().id(3L).title("Emma").author("Jane Austen").genre("Romance").build();
+        similarityIndex.rebuild(List.of(dune, messiah, emma));
+        bookSearchIndex.rebuild(List.of(dune, messiah, emma));
+
+        assertEquals(List.of(messiah), bookService.findSimilar(1L, 5));
+        assertThrows(EntityNotFoundException.class, () -> bookService.findSimilar(42L, 5));
+    }
+
+    @Test
+    public void findAlsoReserved_ShouldRejectUnknownBook() {
+        when(bookRepository.existsById(42L)).thenReturn(false);
+
+        assertThrows(EntityNotFoundException.class, () -> bookService.findAlsoReserved(42L, 5));
+        verifyNoInteractions(coReservationIndex);
+    }
+
+    @Test
+    public void testSaveStoresIsbnAsIsbn13() {
+        Book book = Book.builder().title("Dune").ISBN("0-441-17271-7").build();
+        when(bookRepository.save(book)).thenReturn(book);
+
+        bookService.save(book);
+
+        assertEquals("9780441172719", book.getISBN());
     }
 
     @Test
@@ -173,15 +431,15 @@ public class BookServiceImplTest {
                 .quantityAvailable(5).publicationYear(2021).rating(4.0).build());
         books.add(Book.builder().title("Test Book 2").author("Test Author 2").genre("Test Genre 2")
                 .quantityAvailable(3).publicationYear(2022).rating(4.5).build());
-        Page<Book> page = new PageImpl<>(books);
+        Page<BookSummary> page = new PageImpl<>(books.stream().map(BookSummary::from).toList());
         int pageNumber = 0;
         int pageSize = 2;
         String sortField = "title";
         String sortDirection = "desc";
 
-        when(bookRepository.findAll(any(PageRequest.class))).thenReturn(page);
+        when(bookRepository.findAllSummaries(any(PageRequest.class))).thenReturn(page);
 
-        Page<Book> allBooks = bookService.findAll(pageNumber, pageSize, sortField, sortDirection);
+        Page<BookSummary> allBooks = bookService.findAll(pageNumber, pageSize, sortField, sortDirection);
 
         assertEquals(2, allBooks.getContent().size());
         assertEquals("Test Book 1", allBooks.getContent().get(0).getTitle());
@@ -196,7 +454,7 @@ public class BookServiceImplTest {
         assertEquals(3, allBooks.getContent().get(1).getQuantityAvailable());
         assertEquals(2022, allBooks.getContent().get(1).getPublicationYear());
         assertEquals(4.5, allBooks.getContent().get(1).getRating());
-        verify(bookRepository, times(1)).findAll(any(PageRequest.class));
+        verify(bookRepository, times(1)).findAllSummaries(any(PageRequest.class));
     }
 
     @Test
@@ -206,16 +464,16 @@ public class BookServiceImplTest {
                 .quantityAvailable(5).publicationYear(2021).rating(4.0).build());
         books.add(Book.builder().title("Test Book 2").author("Test Author 2").genre("Test Genre")
                 .quantityAvailable(3).publicationYear(2022).rating(4.5).build());
-        Page<Book> page = new PageImpl<>(books);
+        Page<BookSummary> page = new PageImpl<>(books.stream().map(BookSummary::from).toList());
         String genre = "Test Genre";
         int pageNumber = 0;
         int pageSize = 2;
         String sortField = "title";
         String sortDirection = "desc"; // Change sort direction to "desc"
 
-        when(bookRepository.findByGenre(anyString(), any(PageRequest.class))).thenReturn(page);
+        when(bookRepository.findSummariesByGenre(anyString(), any(PageRequest.class))).thenReturn(page);
 
-        Page<Book> booksByGenre = bookService.findByGenre(genre, pageNumber, pageSize, sortField, sortDirection);
+        Page<BookSummary> booksByGenre = bookService.findByGenre(genre, pageNumber, pageSize, sortField, sortDirection);
 
         assertEquals(2, booksByGenre.getContent().size());
         assertEquals("Test Book 1", booksByGenre.getContent().get(0).getTitle()); // Update the expected order of books
@@ -230,7 +488,7 @@ public class BookServiceImplTest {
         assertEquals(3, booksByGenre.getContent().get(1).getQuantityAvailable());
         assertEquals(2022, booksByGenre.getContent().get(1).getPublicationYear());
         assertEquals(4.5, booksByGenre.getContent().get(1).getRating());
-        verify(bookRepository, times(1)).findByGenre(genre, PageRequest.of(pageNumber, pageSize, Sort.by(sortField).descending())); // Include sort direction in the verify method call
+        verify(bookRepository, times(1)).findSummariesByGenre(genre, PageRequest.of(pageNumber, pageSize, Sort.by(sortField).descending())); // Include sort direction in the verify method call
     }
 
 
@@ -0,0 +1,78 @@
+package com.x00179223.librarybackend;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.x00179223.librarybackend.repository.BookExportRepository;
+import com.x00179223.librarybackend.service.CatalogueExportService;
+import com.x00179223.librarybackend.service.CatalogueExportServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+
+public class CatalogueExportServiceImplTest {
+
+    @Mock
+    private BookExportRepository bookExportRepository;
+
+    private CatalogueExportServiceImpl catalogueExportService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        catalogueExportService = new CatalogueExportServiceImpl(bookExportRepository, new ObjectMapper());
+        doAnswer(invocation -> {
+            Consumer<Object[]> rows = invocation.getArgument(1);
+            rows.accept(new Object[]{1L, "Dune", 3});
+            rows.accept(new Object[]{2L, "Good Omens, \"Nice\"", null});
+            return null;
+        }).when(bookExportRepository).streamBooks(anyList(), any(Consumer.class));
+    }
+
+    @Test
+    public void exportBooks_ShouldWriteJsonArray() throws IOException {
+        String output = export(CatalogueExportService.Format.JSON);
+
+        assertEquals("[{\"id\":1,\"title\":\"Dune\",\"quantityAvailable\":3},"
+                + "{\"id\":2,\"title\":\"Good Omens, \\\"Nice\\\"\",\"quantityAvailable\":null}]", output);
+    }
+
+    @Test
+    public void exportBooks_ShouldWriteOneObjectPerLineForNdjson() throws IOException {
+        String output = export(CatalogueExportService.Format.NDJSON);
+
+        assertEquals("{\"id\":1,\"title\":\"Dune\",\"quantityAvailable\":3}\n"
+                + "{\"id\":2,\"title\":\"Good Omens, \\\"Nice\\\"\",\"quantityAvailable\":null}\n", output);
+    }
+
+    @Test
+    public void exportBooks_ShouldQuoteCsvValues() throws IOException {
+        String output = export(CatalogueExportService.Format.CSV);
+
+        assertEquals("id,title,quantityAvailable\r\n1,Dune,3\r\n2,\"Good Omens, \"\"Nice\"\"\",\r\n", output);
+    }
+
+    @Test
+    public void resolveColumns_ShouldDefaultToAllAndRejectUnknown() {
+        assertEquals(List.copyOf(BookExportRepository.COLUMNS.keySet()), catalogueExportService.resolveColumns(null));
+        assertEquals(List.of("title", "isbn"), catalogueExportService.resolveColumns(List.of("Title", "ISBN", "title")));
+        assertThrows(IllegalArgumentException.class, () -> catalogueExportService.resolveColumns(List.of("password")));
+    }
+
+    private String export(CatalogueExportService.Format format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        catalogueExportService.exportBooks(format, List.of("id", "title", "quantityAvailable"), out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
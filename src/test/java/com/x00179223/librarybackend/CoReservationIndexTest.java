@@ -0,0 +1,72 @@
+package com.x00179223.librarybackend;
+
+import com.x00179223.librarybackend.index.CoReservationIndex;
+import com.x00179223.librarybackend.repository.ReservationHistoryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class CoReservationIndexTest {
+
+    private CoReservationIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        ReservationHistoryRepository repository = mock(ReservationHistoryRepository.class);
+        doAnswer(invocation -> {
+            ReservationHistoryRepository.ReservationConsumer consumer = invocation.getArgument(0);
+            long[][] rows = {{1, 10}, {1, 11}, {1, 12}, {1, 10}, {2, 10}, {2, 11}, {3, 11}, {3, 13}, {4, 12}};
+            for (long[] row : rows) {
+                consumer.accept(row[0], row[1]);
+            }
+            return null;
+        }).when(repository).streamByUser(any());
+        index = new CoReservationIndex(repository);
+        index.rebuild();
+    }
+
+    @Test
+    public void alsoReserved_ShouldRankByCoReservationCount() {
+        assertEquals(List.of(11L, 12L), index.alsoReserved(10, 10));
+        assertEquals(List.of(10L, 12L, 13L), index.alsoReserved(11, 10));
+        assertEquals(List.of(10L), index.alsoReserved(11, 1));
+        assertTrue(index.alsoReserved(99, 10).isEmpty());
+    }
+
+    @Test
+    public void recorded_ShouldCountNewReservationAgainstPatronHistory() {
+        index.recorded(13, List.of(12L, 10L));
+        index.recorded(13, List.of(12L));
+
+        assertEquals(List.of(12L, 10L, 11L), index.alsoReserved(13, 10));
+        assertEquals(List.of(13L, 10L, 11L), index.alsoReserved(12, 10));
+    }
+
+    @Test
+    public void recorded_ShouldOnlyPairTheMostRecentPartOfALongHistory() {
+        List<Long> history = new ArrayList<>();
+        for (long book = 1000; book < 1500; book++) {
+            history.add(book);
+        }
+
+        index.recorded(5, history);
+
+        assertEquals(List.of(5L), index.alsoReserved(1000, 10));
+        assertEquals(List.of(5L), index.alsoReserved(1000 + CoReservationIndex.MAX_BOOKS_PER_PATRON - 1, 10));
+        assertTrue(index.alsoReserved(1000 + CoReservationIndex.MAX_BOOKS_PER_PATRON, 10).isEmpty());
+    }
+
+    @Test
+    public void recorded_ShouldIgnoreRepeatReservationsOfTheSameBook() {
+        index.recorded(10, List.of(10L, 11L));
+
+        assertEquals(List.of(11L, 12L), index.alsoReserved(10, 10));
+        assertEquals(List.of(10L, 12L, 13L), index.alsoReserved(11, 10));
+    }
+}
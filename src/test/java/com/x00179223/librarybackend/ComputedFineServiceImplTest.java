@@ -0,0 +1,157 @@
+package com.x00179223.librarybackend;
+
+import com.x00179223.librarybackend.config.CacheConfig;
+import com.x00179223.librarybackend.model.User;
+import com.x00179223.librarybackend.repository.ReservationRepository;
+import com.x00179223.librarybackend.repository.UserRepository;
+import com.x00179223.librarybackend.service.ComputedFineServiceImpl;
+import com.x00179223.librarybackend.service.FineService;
+import com.x00179223.librarybackend.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class ComputedFineServiceImplTest {
+
+    private static final LocalDateTime DUE = LocalDateTime.of(2024, 3, 1, 10, 0);
+
+    private ReservationRepository reservationRepository;
+    private UserRepository userRepository;
+    private UserService userService;
+    private ComputedFineServiceImpl fineService;
+    private User user;
+    private List<Object[]> loans;
+
+    @BeforeEach
+    public void setUp() {
+        reservationRepository = mock(ReservationRepository.class);
+        userRepository = mock(UserRepository.class);
+        userService = mock(UserService.class);
+        user = User.builder().id(1L).fine(0.0).build();
+        loans = new ArrayList<>();
+        when(userService.findById(1L)).thenReturn(Optional.of(user));
+        when(reservationRepository.findLoanTermsByUserId(1L)).thenAnswer(invocation -> loans);
+        fineService = new ComputedFineServiceImpl(reservationRepository, userRepository, userService, new ConcurrentMapCacheManager(CacheConfig.FINES));
+    }
+
+    @Test
+    public void balance_ShouldChargeEveryStartedDayPastTheDueDate() {
+        loans.add(new Object[]{DUE, false, null, null});
+
+        assertEquals(0.0, fineService.balanceAt(1L, DUE));
+        assertEquals(0.5, fineService.balanceAt(1L, DUE.plusMinutes(1)));
+        assertEquals(1.0, fineService.balanceAt(1L, DUE.plusDays(1)));
+        assertEquals(1.5, fineService.balanceAt(1L, DUE.plusDays(2).plusHours(3)));
+        verify(reservationRepository, times(1)).findLoanTermsByUserId(1L);
+    }
+
+    @Test
+    public void balance_ShouldStopChargingOnReturnAndCapTheTotal() {
+        user.setFine(10.0);
+        loans.add(new Object[]{DUE, true, DUE.plusDays(3).plusHours(1), null});
+        loans.add(new Object[]{DUE, true, null, null});
+        loans.add(new Object[]{DUE.plusDays(30), false, null, null});
+
+        assertEquals(12.0, fineService.balanceAt(1L, DUE.plusDays(10)));
+        assertEquals(FineService.MAX_FINE, fineService.balanceAt(1L, DUE.plusDays(200)));
+    }
+
+    @Test
+    public void balances_ShouldLoadEveryUncachedPatronInOneQueryEach() {
+        loans.add(new Object[]{DUE, false, null, null});
+        fineService.balanceAt(1L, DUE);
+        List<Object[]> fines = new ArrayList<>();
+        fines.add(new Object[]{2L, 3.0});
+        fines.add(new Object[]{3L, 0.0});
+        List<Object[]> terms = new ArrayList<>();
+        terms.add(new Object[]{3L, DUE, true, DUE.plusDays(1).plusHours(1), null});
+        when(userRepository.findFinesByIds(List.of(2L, 3L, 4L))).thenReturn(fines);
+        when(reservationRepository.findLoanTermsByUserIds(List.of(2L, 3L, 4L))).thenReturn(terms);
+
+        Map<Long, Double> balances = fineService.balancesAt(List.of(1L, 2L, 3L, 4L), DUE.plusDays(2));
+
+        assertEquals(Map.of(1L, 1.5, 2L, 3.0, 3L, 1.0), balances);
+        assertEquals(1.0, fineService.balanceAt(3L, DUE.plusDays(2)));
+        verify(reservationRepository, times(1)).findLoanTermsByUserId(1L);
+        verify(reservationRepository, never()).findLoanTermsByUserId(3L);
+        verify(userService, never()).findById(2L);
+    }
+
+    @Test
+    public void balance_ShouldOnlyCountChargesAfterSettlement() {
+        loans.add(new Object[]{DUE, false, null, DUE.plusDays(2).plusHours(5)});
+
+        assertEquals(0.0, fineService.balanceAt(1L, DUE.plusDays(2).plusHours(6)));
+        assertEquals(0.5, fineService.balanceAt(1L, DUE.plusDays(3)));
+    }
+
+    @Test
+    public void adoptStoredFines_ShouldSettleStoredChargesUpToTheEndOfTheLastChargedDay() {
+        LocalDate lastCharged = LocalDate.of(2024, 3, 5);
+        when(reservationRepository.findStoredFineStamps()).thenReturn(List.of(
+                new Object[]{7L, lastCharged, null},
+                new Object[]{8L, lastCharged, lastCharged.plusDays(1).atTime(9, 0)}));
+
+        fineService.adoptStoredFines();
+
+        verify(reservationRepository).settleLoans(List.of(7L), lastCharged.atTime(LocalTime.MAX));
+        verifyNoMoreInteractions(ignoreStubs(reservationRepository));
+    }
+
+    @Test
+    public void balance_ShouldNotRecountDaysAlreadyChargedByTheStoredModel() {
+        user.setFine(2.5);
+        loans.add(new Object[]{DUE, false, null, LocalDate.of(2024, 3, 5).atTime(LocalTime.MAX)});
+
+        assertEquals(2.5, fineService.balanceAt(1L, DUE.plusDays(4).plusHours(1)));
+        assertEquals(3.0, fineService.balanceAt(1L, DUE.plusDays(5)));
+    }
+
+    @Test
+    public void loansChanged_ShouldEvictAgainOnceTheTransactionCompletes() {
+        loans.add(new Object[]{DUE, false, null, null});
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            fineService.loansChanged(1L);
+            // A concurrent read before commit caches the loans as they were.
+            fineService.balanceAt(1L, DUE.plusHours(1));
+            loans.clear();
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(0.0, fineService.balanceAt(1L, DUE.plusHours(1)));
+    }
+
+    @Test
+    public void settle_ShouldStampLoansAndReloadLedger() {
+        user.setFine(2.0);
+        loans.add(new Object[]{DUE, false, null, null});
+        assertEquals(2.5, fineService.balanceAt(1L, DUE.plusHours(1)));
+
+        fineService.settle(1L);
+
+        verify(reservationRepository).settleFines(eq(1L), any(LocalDateTime.class));
+        verify(userService).addFine(user);
+        assertEquals(0.0, user.getFine());
+        fineService.balanceAt(1L, DUE.plusHours(1));
+        verify(reservationRepository, times(2)).findLoanTermsByUserId(1L);
+    }
+}
@@ -0,0 +1,191 @@
+package com.x00179223.librarybackend;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.GreenMailUtil;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import com.x00179223.librarybackend.model.OutboxEmail;
+import com.x00179223.librarybackend.repository.OutboxEmailRepository;
+import com.x00179223.librarybackend.service.EmailOutboxDispatcher;
+import com.x00179223.librarybackend.service.EmailServiceImpl;
+import com.x00179223.librarybackend.service.Notification;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Delivers outbox rows from an embedded database to GreenMail's in-process SMTP server.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:outbox;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class EmailOutboxDispatcherTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    @Autowired
+    private OutboxEmailRepository outboxEmailRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    public void tearDown() {
+        outboxEmailRepository.deleteAll();
+    }
+
+    @Test
+    public void dispatch_ShouldDeliverQueuedEmailsInBatches() throws Exception {
+        EmailServiceImpl emailService = new EmailServiceImpl(outboxEmailRepository, 0);
+        for (int i = 0; i < 5; i++) {
+            emailService.sendOverdueEmail("patron" + i + "@example.com", "Subject " + i, "Body " + i);
+        }
+
+        int sent = dispatcher(greenMail.getSmtp().getPort(), 2, 20).dispatch(LocalDateTime.now().plusSeconds(1));
+
+        assertEquals(5, sent);
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        assertEquals(5, received.length);
+        assertEquals("Subject 0", received[0].getSubject());
+        assertEquals(5, outboxEmailRepository.countByStatus(OutboxEmail.Status.SENT));
+    }
+
+    @Test
+    public void dispatch_ShouldHoldBackEmailsOverTheRecipientLimit() {
+        EmailServiceImpl emailService = new EmailServiceImpl(outboxEmailRepository, 0);
+        for (int i = 0; i < 3; i++) {
+            emailService.sendOverdueEmail("busy@example.com", "Subject " + i, "Body " + i);
+        }
+        LocalDateTime now = LocalDateTime.now().plusSeconds(1);
+
+        int sent = dispatcher(greenMail.getSmtp().getPort(), 10, 2).dispatch(now);
+
+        assertEquals(2, sent);
+        assertEquals(2, greenMail.getReceivedMessages().length);
+        OutboxEmail held = pending().get(0);
+        assertEquals(0, held.getAttempts());
+        assertEquals(now.plusHours(1).truncatedTo(ChronoUnit.SECONDS), held.getNextAttemptAt().truncatedTo(ChronoUnit.SECONDS));
+    }
+
+    @Test
+    public void dispatch_ShouldBackOffWhenTheServerIsUnreachable() {
+        new EmailServiceImpl(outboxEmailRepository, 0).sendOverdueEmail("patron@example.com", "Subject", "Body");
+        EmailOutboxDispatcher dispatcher = dispatcher(greenMail.getSmtp().getPort() + 1, 10, 20);
+        LocalDateTime now = LocalDateTime.now().plusSeconds(1);
+
+        assertEquals(0, dispatcher.dispatch(now));
+        OutboxEmail failed = pending().get(0);
+        assertEquals(1, failed.getAttempts());
+        assertNotNull(failed.getLastError());
+        assertEquals(now.plusSeconds(30).truncatedTo(ChronoUnit.SECONDS), failed.getNextAttemptAt().truncatedTo(ChronoUnit.SECONDS));
+
+        assertEquals(0, dispatcher.dispatch(now.plusSeconds(10)));
+        assertEquals(1, pending().get(0).getAttempts());
+
+        assertEquals(0, dispatcher.dispatch(now.plusSeconds(31)));
+        OutboxEmail retried = pending().get(0);
+        assertEquals(2, retried.getAttempts());
+        assertEquals(now.plusSeconds(91).truncatedTo(ChronoUnit.SECONDS), retried.getNextAttemptAt().truncatedTo(ChronoUnit.SECONDS));
+    }
+
+    @Test
+    public void dispatch_ShouldMergeAPatronsNotificationsIntoOneDigest() throws Exception {
+        EmailServiceImpl emailService = new EmailServiceImpl(outboxEmailRepository, 0);
+        emailService.notify("reader@example.com", Notification.FINE_ISSUED, "50c", "Dracula");
+        emailService.notify("reader@example.com", Notification.HOLD_READY, "Emma", "1 Jan 2030");
+        emailService.notify("other@example.com", Notification.HOLD_READY, "Ulysses", "2 Jan 2030");
+        new EmailServiceImpl(outboxEmailRepository, 3_600_000).notify("reader@example.com", Notification.FINE_ISSUED, "50c", "Persuasion");
+
+        int sent = dispatcher(greenMail.getSmtp().getPort(), 1, 20).dispatch(LocalDateTime.now().plusSeconds(1));
+
+        assertEquals(2, sent);
+        assertEquals(4, outboxEmailRepository.countByStatus(OutboxEmail.Status.SENT));
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        assertEquals(2, received.length);
+        MimeMessage digest = received[0].getAllRecipients()[0].toString().equals("reader@example.com") ? received[0] : received[1];
+        assertEquals("3 updates on your library account", digest.getSubject());
+        String body = GreenMailUtil.getBody(digest);
+        assertTrue(body.contains("\"Dracula\""));
+        assertTrue(body.contains("\"Emma\""));
+        assertTrue(body.contains("\"Persuasion\""));
+    }
+
+    @Test
+    public void dispatch_ShouldSendUrgentNotificationsWithoutWaitingForTheDigest() throws Exception {
+        EmailServiceImpl emailService = new EmailServiceImpl(outboxEmailRepository, 3_600_000);
+        emailService.notify("reader@example.com", Notification.FINE_ISSUED, "50c", "Dracula");
+        emailService.notify("reader@example.com", Notification.HOLD_READY, "Emma", "1 Jan 2030");
+        emailService.notify("other@example.com", Notification.FINE_ISSUED, "50c", "Ulysses");
+
+        int sent = dispatcher(greenMail.getSmtp().getPort(), 10, 20).dispatch(LocalDateTime.now().plusSeconds(1));
+
+        assertEquals(1, sent);
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        assertEquals(1, received.length);
+        assertEquals("reader@example.com", received[0].getAllRecipients()[0].toString());
+        assertTrue(GreenMailUtil.getBody(received[0]).contains("\"Emma\""));
+        assertEquals(1, pending().size());
+    }
+
+    @Test
+    public void purge_ShouldDeleteSentEmailsOlderThanTheRetentionPeriod() {
+        LocalDateTime now = LocalDateTime.now();
+        OutboxEmail old = outboxEmailRepository.save(email(OutboxEmail.Status.SENT, now.minusDays(31)));
+        OutboxEmail recent = outboxEmailRepository.save(email(OutboxEmail.Status.SENT, now.minusDays(29)));
+        OutboxEmail failed = outboxEmailRepository.save(email(OutboxEmail.Status.FAILED, null));
+
+        int purged = dispatcher(greenMail.getSmtp().getPort(), 1, 20).purge(now);
+
+        assertEquals(1, purged);
+        assertFalse(outboxEmailRepository.existsById(old.getId()));
+        assertTrue(outboxEmailRepository.existsById(recent.getId()));
+        assertTrue(outboxEmailRepository.existsById(failed.getId()));
+    }
+
+    private static OutboxEmail email(OutboxEmail.Status status, LocalDateTime sentAt) {
+        return OutboxEmail.builder().recipient("patron@example.com").subject("Subject").body("Body")
+                .status(status).createdAt(LocalDateTime.now().minusDays(40)).sentAt(sentAt).build();
+    }
+
+    private List<OutboxEmail> pending() {
+        return outboxEmailRepository.findAll().stream()
+                .filter(email -> email.getStatus() == OutboxEmail.Status.PENDING)
+                .toList();
+    }
+
+    private EmailOutboxDispatcher dispatcher(int port, int batchSize, int perRecipientPerHour) {
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(port);
+        mailSender.getJavaMailProperties().put("mail.smtp.connectiontimeout", "2000");
+        return new EmailOutboxDispatcher(outboxEmailRepository, mailSender, transactionManager, batchSize, perRecipientPerHour, 30);
+    }
+
+    @Configuration
+    @AutoConfigurationPackage
+    static class JpaOnly {
+    }
+}
@@ -1,26 +1,34 @@
 package com.x00179223.librarybackend;
 
+import com.x00179223.librarybackend.model.OutboxEmail;
+import com.x00179223.librarybackend.repository.OutboxEmailRepository;
 import com.x00179223.librarybackend.service.EmailServiceImpl;
+import com.x00179223.librarybackend.service.Notification;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
 
-import static org.mockito.ArgumentMatchers.any;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 @ExtendWith(MockitoExtension.class)
 public class EmailServiceImplTest {
 
-    @InjectMocks
+    @Mock
+    private OutboxEmailRepository outboxEmailRepository;
+
     private EmailServiceImpl emailService;
 
-    @Mock
-    private JavaMailSender mailSender;
+    @BeforeEach
+    public void setUp() {
+        emailService = new EmailServiceImpl(outboxEmailRepository, 60_000);
+    }
 
     @Test
     public void sendOverdueEmailTest() {
@@ -30,6 +38,38 @@ public class EmailServiceImplTest {
 
         emailService.sendOverdueEmail(to, subject, body);
 
-        verify(mailSender, times(1)).send(any(SimpleMailMessage.class));
+        ArgumentCaptor<OutboxEmail> queued = ArgumentCaptor.forClass(OutboxEmail.class);
+        verify(outboxEmailRepository, times(1)).save(queued.capture());
+        assertEquals(to, queued.getValue().getRecipient());
+        assertEquals(subject, queued.getValue().getSubject());
+        assertEquals(body, queued.getValue().getBody());
+        assertEquals(OutboxEmail.Status.PENDING, queued.getValue().getStatus());
+        assertNotNull(queued.getValue().getNextAttemptAt());
+    }
+
+    @Test
+    public void notifyTest() {
+        LocalDateTime before = LocalDateTime.now();
+
+        emailService.notify("test@example.com", Notification.FINE_ISSUED, "50c", "Dracula");
+
+        ArgumentCaptor<OutboxEmail> queued = ArgumentCaptor.forClass(OutboxEmail.class);
+        verify(outboxEmailRepository, times(1)).save(queued.capture());
+        assertEquals("FINE_ISSUED", queued.getValue().getNotification());
+        assertArrayEquals(new String[]{"50c", "Dracula"}, Notification.decode(queued.getValue().getArguments()));
+        assertNull(queued.getValue().getBody());
+        assertFalse(queued.getValue().getNextAttemptAt().isBefore(before.plusMinutes(1)));
+    }
+
+    @Test
+    public void notifyTest_UrgentNotificationSkipsTheDigestWindow() {
+        LocalDateTime before = LocalDateTime.now();
+
+        emailService.notify("test@example.com", Notification.HOLD_READY, "Dracula", "1 Jan 2030");
+
+        ArgumentCaptor<OutboxEmail> queued = ArgumentCaptor.forClass(OutboxEmail.class);
+        verify(outboxEmailRepository, times(1)).save(queued.capture());
+        assertEquals("HOLD_READY", queued.getValue().getNotification());
+        assertTrue(queued.getValue().getNextAttemptAt().isBefore(before.plusMinutes(1)));
     }
 }
@@ -0,0 +1,181 @@
+package com.x00179223.librarybackend;
+
+import com.x00179223.librarybackend.dto.BookFilter;
+import com.x00179223.librarybackend.dto.FacetQuery;
+import com.x00179223.librarybackend.index.FacetIndex;
+import com.x00179223.librarybackend.model.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FacetIndexTest {
+
+    private FacetIndex facetIndex;
+
+    @BeforeEach
+    public void setUp() {
+        facetIndex = new FacetIndex();
+        facetIndex.rebuild(List.of(
+                Book.builder().id(1L).title("Dune").genre("Science Fiction").publicationYear(1965).rating(4.5).quantityAvailable(3).build(),
+                Book.builder().id(2L).title("Neuromancer").genre("Science Fiction").publicationYear(1984).rating(3.8).quantityAvailable(0).build(),
+                Book.builder().id(3L).title("Emma").genre("Romance").publicationYear(1815).rating(4.0).quantityAvailable(1).build(),
+                Book.builder().id(4L).title("Beloved").genre("Literary Fiction").publicationYear(1987).rating(4.2).quantityAvailable(2).build()
+        ));
+    }
+
+    @Test
+    public void query_ShouldCountEveryFacetWithoutFilters() {
+        FacetIndex.Result result = facetIndex.query(new FacetQuery(), null, 0, 10);
+
+        assertEquals(4, result.totalElements());
+        assertEquals(List.of(4L, 1L, 3L, 2L), result.bookIds());
+        assertEquals(Map.of("Science Fiction", 2L, "Romance", 1L, "Literary Fiction", 1L), result.genres());
+        assertEquals(Map.of("1810s", 1L, "1960s", 1L, "1980s", 2L), result.publicationYears());
+        assertEquals(Map.of("3", 1L, "4", 3L), result.ratings());
+        assertEquals(Map.of(FacetIndex.AVAILABLE, 3L, FacetIndex.UNAVAILABLE, 1L), result.availability());
+    }
+
+    @Test
+    public void query_ShouldExcludeEachFacetsOwnFilterFromItsCounts() {
+        FacetQuery query = FacetQuery.builder().genres(List.of("Science Fiction")).available(true).yearFrom(1900).build();
+
+        FacetIndex.Result result = facetIndex.query(query, null, 0, 10);
+
+        assertEquals(List.of(1L), result.bookIds());
+        assertEquals(Map.of("Science Fiction", 1L, "Literary Fiction", 1L), result.genres());
+        assertEquals(Map.of(FacetIndex.AVAILABLE, 1L, FacetIndex.UNAVAILABLE, 1L), result.availability());
+    }
+
+    @Test
+    public void query_ShouldRestrictToCandidatesAndPage() {
+        RoaringBitmap candidates = RoaringBitmap.bitmapOf(1, 2, 4);
+
+        FacetIndex.Result result = facetIndex.query(FacetQuery.builder().minRating(4).build(), candidates, 1, 1);
+
+        assertEquals(2, result.totalElements());
+        assertEquals(List.of(1L), result.bookIds());
+    }
+
+    @Test
+    public void index_ShouldMoveBookBetweenBuckets() {
+        facetIndex.index(Book.builder().id(2L).title("Neuromancer").genre("Cyberpunk").publicationYear(1984).rating(4.1).quantityAvailable(5).build());
+
+        FacetIndex.Result result = facetIndex.query(FacetQuery.builder().available(true).build(), null, 0, 10);
+
+        assertEquals(4, result.totalElements());
+        assertEquals(1L, result.genres().get("Cyberpunk"));
+        assertEquals(1L, result.genres().get("Science Fiction"));
+        assertEquals(4L, result.ratings().get("4"));
+    }
+
+    @Test
+    public void stockChanged_ShouldOnlyMoveTheBookBetweenAvailabilityBuckets() {
+        facetIndex.stockChanged(1L, -3);
+        facetIndex.stockChanged(2L, 4);
+        facetIndex.stockChanged(3L, 1);
+        facetIndex.stockChanged(3L, -1);
+
+        FacetIndex.Result result = facetIndex.query(FacetQuery.builder().available(true).build(), null, 0, 10);
+
+        assertEquals(List.of(4L, 3L, 2L), result.bookIds());
+        assertEquals(Map.of("Science Fiction", 1L, "Romance", 1L, "Literary Fiction", 1L), result.genres());
+    }
+
+    @Test
+    public void remove_ShouldDropBookFromAllFacets() {
+        facetIndex.remove(3L);
+
+        FacetIndex.Result result = facetIndex.query(new FacetQuery(), null, 0, 10);
+
+        assertEquals(3, result.totalElements());
+        assertFalse(result.genres().containsKey("Romance"));
+        assertFalse(result.publicationYears().containsKey("1810s"));
+    }
+
+    @Test
+    public void filter_ShouldEvaluateBooleanExpression() {
+        BookFilter filter = BookFilter.builder()
+                .type(BookFilter.Type.AND)
+                .filters(List.of(
+                        BookFilter.builder().type(BookFilter.Type.OR).filters(List.of(
+                                BookFilter.builder().type(BookFilter.Type.GENRE).genre("Science Fiction").build(),
+                                BookFilter.builder().type(BookFilter.Type.GENRE).genre("Romance").build())).build(),
+                        BookFilter.builder().type(BookFilter.Type.AVAILABLE).build(),
+                        BookFilter.builder().type(BookFilter.Type.NOT).filters(List.of(
+                                BookFilter.builder().type(BookFilter.Type.YEAR).yearFrom(1900).yearTo(1999).build())).build()))
+                .build();
+
+        FacetIndex.Result result = facetIndex.filter(filter, 0, 10);
+
+        assertEquals(List.of(3L), result.bookIds());
+        assertEquals(Map.of("Romance", 1L), result.genres());
+    }
+
+    @Test
+    public void filter_ShouldPageSelectiveAndBroadMatchesInTitleOrder() {
+        List<Book> catalogue = new ArrayList<>();
+        for (long id = 1; id <= 1000; id++) {
+            catalogue.add(Book.builder().id(id).title(String.format("Title %04d", id * 7919 % 1000))
+                    .genre(id % 50 == 0 ? "Rare" : "Common").publicationYear(2000).quantityAvailable(1).build());
+        }
+        facetIndex.rebuild(catalogue);
+
+        for (String genre : List.of("Rare", "Common")) {
+            List<Long> expected = catalogue.stream()
+                    .filter(book -> book.getGenre().equals(genre))
+                    .sorted(Comparator.comparing(Book::getTitle))
+                    .map(Book::getId)
+                    .toList();
+            BookFilter filter = BookFilter.builder().type(BookFilter.Type.GENRE).genre(genre).build();
+
+            assertEquals(expected.subList(0, 5), facetIndex.filter(filter, 0, 5).bookIds());
+            assertEquals(expected.subList(15, 20), facetIndex.filter(filter, 15, 5).bookIds());
+            assertEquals(expected.subList(expected.size() - 3, expected.size()), facetIndex.filter(filter, expected.size() - 3, 10).bookIds());
+            assertTrue(facetIndex.filter(filter, expected.size(), 10).bookIds().isEmpty());
+        }
+    }
+
+    @Test
+    public void filter_ShouldMatchMinimumRating() {
+        FacetIndex.Result result = facetIndex.filter(BookFilter.builder().type(BookFilter.Type.RATING).minRating(4).build(), 0, 10);
+
+        assertEquals(List.of(4L, 1L, 3L), result.bookIds());
+    }
+
+    @Test
+    public void filter_ShouldRejectDeeplyNestedExpression() {
+        BookFilter filter = BookFilter.builder().type(BookFilter.Type.AVAILABLE).build();
+        for (int i = 1; i < FacetIndex.MAX_FILTER_DEPTH; i++) {
+            filter = BookFilter.builder().type(BookFilter.Type.NOT).filters(List.of(filter)).build();
+        }
+        assertEquals(List.of(2L), facetIndex.filter(filter, 0, 10).bookIds());
+
+        BookFilter tooDeep = BookFilter.builder().type(BookFilter.Type.NOT).filters(List.of(filter)).build();
+        assertThrows(IllegalArgumentException.class, () -> facetIndex.filter(tooDeep, 0, 10));
+    }
+
+    @Test
+    public void filter_ShouldRejectExpressionWithTooManyClauses() {
+        List<BookFilter> operands = new ArrayList<>();
+        for (int i = 0; i < FacetIndex.MAX_FILTER_NODES; i++) {
+            operands.add(BookFilter.builder().type(BookFilter.Type.GENRE).genre("Romance").build());
+        }
+        BookFilter filter = BookFilter.builder().type(BookFilter.Type.OR).filters(operands).build();
+
+        assertThrows(IllegalArgumentException.class, () -> facetIndex.filter(filter, 0, 10));
+    }
+
+    @Test
+    public void filter_ShouldRejectMalformedExpression() {
+        BookFilter filter = BookFilter.builder().type(BookFilter.Type.NOT).filters(List.of()).build();
+
+        assertThrows(IllegalArgumentException.class, () -> facetIndex.filter(filter, 0, 10));
+    }
+}
@@ -0,0 +1,133 @@
+package com.x00179223.librarybackend;
+
+import com.x00179223.librarybackend.model.Reservation;
+import com.x00179223.librarybackend.model.User;
+import com.x00179223.librarybackend.repository.FineAccrualRepository;
+import com.x00179223.librarybackend.repository.ReservationRepository;
+import com.x00179223.librarybackend.repository.UserRepository;
+import com.x00179223.librarybackend.service.FineAccrualJob;
+import com.x00179223.librarybackend.model.OutboxEmail;
+import com.x00179223.librarybackend.repository.OutboxEmailRepository;
+import com.x00179223.librarybackend.service.EmailServiceImpl;
+import com.x00179223.librarybackend.service.FineService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:fines;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class FineAccrualJobTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 3, 10, 12, 0);
+
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ReservationRepository reservationRepository;
+    @Autowired
+    private OutboxEmailRepository outboxEmailRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+    private FineAccrualJob job;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        job = new FineAccrualJob(new FineAccrualRepository(jdbcTemplate, 100), transactionManager,
+                new EmailServiceImpl(outboxEmailRepository, 0), meterRegistry, 2);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        outboxEmailRepository.deleteAll();
+        reservationRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    public void accrue_ShouldFineEachOverdueLoanOncePerDay() {
+        User late = user("late@example.com", 0.0);
+        User punctual = user("punctual@example.com", 0.0);
+        Reservation first = loan(late, NOW.minusDays(2), false, null);
+        loan(late, NOW.minusDays(1), false, null);
+        loan(late, NOW.minusHours(1), false, null);
+        loan(punctual, NOW.plusDays(3), false, null);
+        loan(punctual, NOW.minusDays(5), true, null);
+
+        assertEquals(3, job.accrue(NOW));
+        assertEquals(1.5, fine(late));
+        assertEquals(0.0, fine(punctual));
+        assertEquals(NOW.toLocalDate(), reservationRepository.findById(first.getId()).orElseThrow().getLastFineAddedAt());
+        assertEquals(3, outboxEmailRepository.countByStatus(OutboxEmail.Status.PENDING));
+        assertEquals(3.0, meterRegistry.counter("library.fines.accrual.reservations").count());
+
+        assertEquals(0, job.accrue(NOW.plusHours(4)));
+        assertEquals(1.5, fine(late));
+
+        assertEquals(3, job.accrue(NOW.plusDays(1)));
+        assertEquals(3.0, fine(late));
+    }
+
+    @Test
+    public void accrue_ShouldCapFineInSql() {
+        User user = user("capped@example.com", 49.75);
+        loan(user, NOW.minusDays(1), false, null);
+        loan(user, NOW.minusDays(1), false, NOW.toLocalDate().minusDays(1));
+        loan(user, NOW.minusDays(1), false, NOW.toLocalDate());
+
+        assertEquals(2, job.accrue(NOW));
+        assertEquals(FineService.MAX_FINE, fine(user));
+    }
+
+    private User user(String email, double fine) {
+        return userRepository.save(User.builder().firstname("Pat").lastname("Ron").email(email).fine(fine).build());
+    }
+
+    private Reservation loan(User user, LocalDateTime dueDate, boolean returned, LocalDate lastFineAddedAt) {
+        return reservationRepository.save(Reservation.builder()
+                .user(user)
+                .reservedAt(dueDate.minusDays(20))
+                .checkedOutAt(dueDate.minusDays(14))
+                .dueDate(dueDate)
+                .returned(returned)
+                .lastFineAddedAt(lastFineAddedAt)
+                .build());
+    }
+
+    private double fine(User user) {
+        return userRepository.findById(user.getId()).orElseThrow().getFine();
+    }
+
+    @Configuration
+    @AutoConfigurationPackage
+    static class JpaOnly {
+    }
+}
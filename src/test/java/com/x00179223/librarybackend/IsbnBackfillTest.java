@@ -0,0 +1,84 @@
+package com.x00179223.librarybackend;
+
+import com.x00179223.librarybackend.model.Book;
+import com.x00179223.librarybackend.repository.BookRepository;
+import com.x00179223.librarybackend.service.IsbnBackfill;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:isbn;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(IsbnBackfill.class)
+public class IsbnBackfillTest {
+
+    @Configuration
+    @AutoConfigurationPackage
+    static class JpaOnly {
+    }
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private IsbnBackfill isbnBackfill;
+
+    @AfterEach
+    public void tearDown() {
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    public void backfill_ShouldNormaliseStoredIsbnsToIsbn13() {
+        Book isbn10 = save("Dune", "0-306-40615-2");
+        Book hyphenated = save("Emma", "978-0-14-143958-7");
+        Book invalid = save("Beloved", "12345");
+
+        isbnBackfill.backfill();
+
+        assertEquals("9780306406157", isbn(isbn10));
+        assertEquals("9780141439587", isbn(hyphenated));
+        assertEquals("12345", isbn(invalid));
+    }
+
+    @Test
+    public void backfill_ShouldKeepOneBookPerIsbnAndClearTheDuplicates() {
+        Book older = save("Dune", "0306406152");
+        Book isbn13 = save("Dune (reissue)", "9780306406157");
+        Book hyphenated = save("Dune (paperback)", "978-0-306-40615-7");
+
+        isbnBackfill.backfill();
+        isbnBackfill.backfill();
+
+        assertNull(isbn(older));
+        assertEquals("9780306406157", isbn(isbn13));
+        assertNull(isbn(hyphenated));
+        assertEquals(isbn13.getId(), bookRepository.findByISBN("9780306406157").map(Book::getId).orElseThrow());
+    }
+
+    private Book save(String title, String isbn) {
+        return bookRepository.save(Book.builder().title(title).author("Author").ISBN(isbn).build());
+    }
+
+    private String isbn(Book book) {
+        return bookRepository.findById(book.getId()).orElseThrow().getISBN();
+    }
+}
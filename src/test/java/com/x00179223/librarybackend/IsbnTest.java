@@ -0,0 +1,35 @@
+package com.x00179223.librarybackend;
+
+import com.x00179223.librarybackend.index.Isbn;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IsbnTest {
+
+    @Test
+    public void normalize_ShouldConvertIsbn10ToIsbn13() {
+        assertEquals(Optional.of("9780441172719"), Isbn.normalize("0-441-17271-7"));
+        assertEquals(Optional.of("9780306406157"), Isbn.normalize("0 306 40615 2"));
+        assertEquals(Optional.of("9780804429573"), Isbn.normalize("080442957x"));
+    }
+
+    @Test
+    public void normalize_ShouldAcceptHyphenatedIsbn13() {
+        assertEquals(Optional.of("9780441172719"), Isbn.normalize("978-0-441-17271-9"));
+        assertEquals(Optional.of("9791032305690"), Isbn.normalize("979-10-323-0569-0"));
+    }
+
+    @Test
+    public void normalize_ShouldRejectBadCheckDigitsAndShapes() {
+        assertTrue(Isbn.normalize("0-441-17271-8").isEmpty());
+        assertTrue(Isbn.normalize("9780441172710").isEmpty());
+        assertTrue(Isbn.normalize("1234567890123").isEmpty());
+        assertTrue(Isbn.normalize("04411X2717").isEmpty());
+        assertTrue(Isbn.normalize("ISBN 0441172717").isEmpty());
+        assertTrue(Isbn.normalize("").isEmpty());
+        assertTrue(Isbn.normalize(null).isEmpty());
+    }
+}
@@ -0,0 +1,94 @@
+package com.x00179223.librarybackend;
+
+import com.x00179223.librarybackend.index.ItemSimilarityModel;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ItemSimilarityModelTest {
+
+    private static ItemSimilarityModel.Builder builder() {
+        return ItemSimilarityModel.builder(50, 20, 2000, 10);
+    }
+
+    private static ItemSimilarityModel sample() {
+        ItemSimilarityModel.Builder builder = builder();
+        builder.add(1, 10, 5);
+        builder.add(1, 11, 5);
+        builder.add(1, 12, 1);
+        builder.add(2, 10, 5);
+        builder.add(2, 11, 4);
+        builder.add(2, 12, 2);
+        builder.add(2, 13, 5);
+        builder.add(3, 10, 4);
+        builder.add(3, 11, 5);
+        builder.add(3, 13, 4);
+        builder.add(4, 10, 5);
+        return builder.build(ForkJoinPool.commonPool());
+    }
+
+    @Test
+    public void recommendationsFor_ShouldRankBooksCoRatedWithLikedBooks() {
+        ItemSimilarityModel model = sample();
+
+        assertEquals(List.of(11L, 13L), model.recommendationsFor(4, 10));
+        assertEquals(List.of(13L), model.recommendationsFor(1, 10));
+        assertEquals(4, model.userCount());
+        assertEquals(4, model.bookCount());
+        assertEquals(11, model.ratingCount());
+    }
+
+    @Test
+    public void recommendationsFor_ShouldRespectLimitAndUnknownUsers() {
+        ItemSimilarityModel model = sample();
+
+        assertEquals(List.of(11L), model.recommendationsFor(4, 1));
+        assertTrue(model.recommendationsFor(99, 10).isEmpty());
+        assertTrue(ItemSimilarityModel.EMPTY.recommendationsFor(4, 10).isEmpty());
+    }
+
+    @Test
+    public void recommendationsFor_ShouldTreatAMiddlingRatingAsNeutral() {
+        ItemSimilarityModel.Builder builder = builder();
+        builder.add(1, 10, 5);
+        builder.add(1, 11, 5);
+        builder.add(2, 10, 4);
+        builder.add(2, 11, 5);
+        builder.add(2, 12, 1);
+        builder.add(3, 10, 3);
+        ItemSimilarityModel model = builder.build(ForkJoinPool.commonPool());
+
+        assertTrue(model.recommendationsFor(3, 10).isEmpty());
+    }
+
+    @Test
+    public void build_ShouldGiveTheSameResultOnOneOrManyWorkers() {
+        ItemSimilarityModel.Builder sequential = builder();
+        ItemSimilarityModel.Builder parallel = builder();
+        Random random = new Random(42);
+        for (int user = 0; user < 1500; user++) {
+            int taste = random.nextInt(6);
+            for (int i = 0; i < 15; i++) {
+                long book = taste * 100L + random.nextInt(120);
+                float rating = 1 + random.nextInt(5);
+                sequential.add(user, book, rating);
+                parallel.add(user, book, rating);
+            }
+        }
+
+        ItemSimilarityModel one = sequential.build(new ForkJoinPool(1));
+        ItemSimilarityModel many = parallel.build(new ForkJoinPool(4));
+
+        boolean anyRecommendations = false;
+        for (int user = 0; user < 1500; user++) {
+            List<Long> expected = one.recommendationsFor(user, 20);
+            anyRecommendations |= !expected.isEmpty();
+            assertEquals(expected, many.recommendationsFor(user, 20));
+        }
+        assertTrue(anyRecommendations);
+    }
+}
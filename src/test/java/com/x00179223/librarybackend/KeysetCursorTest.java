@@ -0,0 +1,40 @@
+package com.x00179223.librarybackend;
+
+import com.x00179223.librarybackend.repository.KeysetCursor;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class KeysetCursorTest {
+
+    @Test
+    public void decode_ShouldRoundTripEncodedCursor() {
+        KeysetCursor cursor = new KeysetCursor("title", "asc", "Dune | Part One", 42L);
+
+        KeysetCursor decoded = KeysetCursor.decode(cursor.encode());
+
+        assertEquals(cursor, decoded);
+    }
+
+    @Test
+    public void encode_ShouldBeUrlSafe() {
+        String token = new KeysetCursor("reservedAt", "desc", "2023-04-01T10:15:30", 7L).encode();
+
+        assertTrue(token.matches("[A-Za-z0-9_-]+"));
+    }
+
+    @Test
+    public void decode_ShouldTellANullValueFromTheStringNull() {
+        KeysetCursor missing = KeysetCursor.decode(new KeysetCursor("author", "asc", null, 3L).encode());
+        KeysetCursor literal = KeysetCursor.decode(new KeysetCursor("author", "asc", "null", 3L).encode());
+
+        assertNull(missing.value());
+        assertEquals("null", literal.value());
+    }
+
+    @Test
+    public void decode_ShouldRejectMalformedToken() {
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode("not a cursor"));
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode("dGl0bGV8YXNj"));
+    }
+}
@@ -0,0 +1,85 @@
+package com.x00179223.librarybackend;
+
+import com.x00179223.librarybackend.dto.KeysetPage;
+import com.x00179223.librarybackend.model.Book;
+import com.x00179223.librarybackend.repository.BookRepository;
+import com.x00179223.librarybackend.repository.KeysetRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:keyset;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(KeysetRepository.class)
+public class KeysetRepositoryTest {
+
+    private static final Set<String> SORT_FIELDS = Set.of("id", "author");
+
+    @Configuration
+    @AutoConfigurationPackage
+    static class JpaOnly {
+    }
+
+    @Autowired
+    private KeysetRepository keysetRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    private final List<Long> ids = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() {
+        for (String author : new String[]{"Austen", null, "null", "Herbert", null, "Asimov"}) {
+            ids.add(bookRepository.save(Book.builder().title("Title").author(author).build()).getId());
+        }
+    }
+
+    @Test
+    public void findPage_ShouldPageThroughNullSortValuesAscending() {
+        assertEquals(List.of(ids.get(1), ids.get(4), ids.get(5), ids.get(0), ids.get(3), ids.get(2)), readAll("asc"));
+    }
+
+    @Test
+    public void findPage_ShouldPageThroughNullSortValuesDescending() {
+        assertEquals(List.of(ids.get(2), ids.get(3), ids.get(0), ids.get(5), ids.get(4), ids.get(1)), readAll("desc"));
+    }
+
+    @Test
+    public void findPage_ShouldRejectCursorForAnotherSortOrder() {
+        String next = keysetRepository.findPage(Book.class, SORT_FIELDS, "author", "asc", null, 2).getNext();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> keysetRepository.findPage(Book.class, SORT_FIELDS, "author", "desc", next, 2));
+    }
+
+    private List<Long> readAll(String direction) {
+        List<Long> seen = new ArrayList<>();
+        String after = null;
+        do {
+            KeysetPage<Book> page = keysetRepository.findPage(Book.class, SORT_FIELDS, "author", direction, after, 1);
+            page.getContent().forEach(book -> seen.add(book.getId()));
+            after = page.getNext();
+        } while (after != null);
+        return seen;
+    }
+}
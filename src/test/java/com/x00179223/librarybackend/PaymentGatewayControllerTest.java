@@ -0,0 +1,50 @@
+package com.x00179223.librarybackend;
+
+import com.x00179223.librarybackend.client.StripeClient;
+import com.x00179223.librarybackend.controller.PaymentGatewayController;
+import com.x00179223.librarybackend.dto.ChargeResponse;
+import com.x00179223.librarybackend.dto.OutstandingFine;
+import com.x00179223.librarybackend.exception.FineNotCoveredException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class PaymentGatewayControllerTest {
+
+    @InjectMocks
+    private PaymentGatewayController paymentGatewayController;
+
+    @Mock
+    private StripeClient stripeClient;
+
+    @Test
+    public void chargeCard_ShouldReturnTheCharge() throws Exception {
+        ChargeResponse charge = ChargeResponse.builder().id("ch_1").amount(1250L).currency("eur").status("succeeded").build();
+        when(stripeClient.chargeNewCard("tok_visa", 12.5, 1L)).thenReturn(charge);
+
+        ResponseEntity<?> response = paymentGatewayController.chargeCard("tok_visa", 12.5, 1L);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(charge, response.getBody());
+    }
+
+    @Test
+    public void chargeCard_ShouldAnswerAnUnderpaymentWithTheOutstandingBalance() throws Exception {
+        when(stripeClient.chargeNewCard("tok_visa", 10.0, 1L)).thenThrow(new FineNotCoveredException(12.5));
+
+        ResponseEntity<?> response = paymentGatewayController.chargeCard("tok_visa", 10.0, 1L);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        OutstandingFine body = (OutstandingFine) response.getBody();
+        assertEquals(1L, body.getUserId());
+        assertEquals(12.5, body.getBalance());
+    }
+}
@@ -0,0 +1,276 @@
+package com.x00179223.librarybackend;
+
+import com.x00179223.librarybackend.config.CacheConfig;
+import com.x00179223.librarybackend.dto.ReservationSummary;
+import com.x00179223.librarybackend.exception.BookUnavailableException;
+import com.x00179223.librarybackend.index.*;
+import com.x00179223.librarybackend.model.Book;
+import com.x00179223.librarybackend.model.InventoryLease;
+import com.x00179223.librarybackend.model.Reservation;
+import com.x00179223.librarybackend.model.User;
+import com.x00179223.librarybackend.repository.*;
+import com.x00179223.librarybackend.service.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Many patrons reserving the last copies of one book at once through the reservation service,
+ * against a real database. The stock check and decrement is a single conditional UPDATE, so
+ * the row lock it takes is the only serialisation point and no copy can be handed out twice;
+ * everyone who misses out is queued on the hold list. The escrow case runs several
+ * {@link InventoryEscrow} nodes against the same row.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:contention;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ReservationServiceImpl.class, BookServiceImpl.class, UserServiceImpl.class, EmailServiceImpl.class,
+        StoredFineServiceImpl.class, InventoryEscrow.class, ReservationDeadlines.class, KeysetRepository.class,
+        ReservationHistoryRepository.class, CoReservationIndex.class, TrendingIndex.class, CatalogueIndexer.class,
+        BookSearchIndex.class, SpellingDictionary.class, AutocompleteIndex.class, FacetIndex.class, IsbnIndex.class,
+        SimilarityIndex.class})
+public class ReservationContentionTest {
+
+    private static final int RESERVERS = 200;
+    private static final int COPIES = 50;
+    private static final int NODES = 4;
+    private static final int BLOCK_SIZE = 8;
+
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ReservationRepository reservationRepository;
+    @Autowired
+    private HoldRepository holdRepository;
+    @Autowired
+    private InventoryLeaseRepository leaseRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private ReservationService reservationService;
+    @Autowired
+    private BookService bookService;
+    @Autowired
+    private CatalogueIndexer catalogueIndexer;
+
+    @AfterEach
+    public void tearDown() {
+        holdRepository.deleteAll();
+        leaseRepository.deleteAll();
+        reservationRepository.deleteAll();
+        bookRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    public void reserveBook_ShouldNeverOversellUnderContention() throws InterruptedException {
+        Book book = bookRepository.save(Book.builder().title("Hot Book").author("Popular Author").quantityAvailable(COPIES).build());
+        List<User> patrons = new ArrayList<>();
+        for (int i = 0; i < RESERVERS; i++) {
+            patrons.add(userRepository.save(User.builder().firstname("Patron").lastname(String.valueOf(i)).email("patron" + i + "@example.com").build()));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(RESERVERS);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(RESERVERS);
+        AtomicInteger reserved = new AtomicInteger();
+        AtomicInteger queued = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        for (User patron : patrons) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                    reservationService.reserveBook(book.getId(), patron.getId());
+                    reserved.incrementAndGet();
+                } catch (BookUnavailableException e) {
+                    queued.incrementAndGet();
+                } catch (Exception e) {
+                    failed.incrementAndGet();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        start.countDown();
+        assertTrue(done.await(60, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        assertEquals(0, failed.get());
+        assertEquals(COPIES, reserved.get());
+        assertEquals(RESERVERS - COPIES, queued.get());
+        assertEquals(COPIES, reservationRepository.count());
+        assertEquals(RESERVERS - COPIES, holdRepository.count());
+        assertEquals(0, bookRepository.findById(book.getId()).orElseThrow().getQuantityAvailable());
+    }
+
+    @Test
+    public void findByIsbn_ShouldShowStockLeftAfterReservations() {
+        Book book = bookRepository.save(Book.builder().title("Emma").author("Austen").ISBN("9780141439587").quantityAvailable(2).build());
+        User user = userRepository.save(User.builder().firstname("Jane").lastname("Reader").email("jane@example.com").build());
+        catalogueIndexer.rebuild();
+
+        Reservation reservation = reservationService.reserveBook(book.getId(), user.getId());
+        assertEquals(1, bookService.findByIsbn("0-14-143958-0").orElseThrow().getQuantityAvailable());
+
+        reservationService.cancelReservation(reservation.getId());
+        Book found = bookService.findByIsbn("9780141439587").orElseThrow();
+        assertEquals(2, found.getQuantityAvailable());
+
+        found.setQuantityAvailable(0);
+        assertEquals(2, bookService.findByIsbn("9780141439587").orElseThrow().getQuantityAvailable());
+    }
+
+    @Test
+    public void escrow_ShouldNeverOversellAcrossNodes() throws InterruptedException {
+        Book book = bookRepository.save(Book.builder().title("Launch Day").author("Popular Author").quantityAvailable(COPIES).build());
+        User user = userRepository.save(User.builder().firstname("Busy").lastname("Patron").email("busy@example.com").build());
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        List<InventoryEscrow> nodes = new ArrayList<>();
+        for (int i = 0; i < NODES; i++) {
+            nodes.add(escrowNode("node-" + i));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(RESERVERS);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(RESERVERS);
+        AtomicInteger reserved = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        for (int i = 0; i < RESERVERS; i++) {
+            InventoryEscrow node = nodes.get(i % NODES);
+            boolean rollBack = i % 10 == 0;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                    boolean taken = Boolean.TRUE.equals(transaction.execute(status -> {
+                        if (!node.take(book.getId())) {
+                            return false;
+                        }
+                        if (rollBack) {
+                            status.setRollbackOnly();
+                            return false;
+                        }
+                        reservationRepository.save(Reservation.builder()
+                                .book(bookRepository.getReferenceById(book.getId()))
+                                .user(userRepository.getReferenceById(user.getId()))
+                                .reservedAt(LocalDateTime.now())
+                                .build());
+                        return true;
+                    }));
+                    if (taken) {
+                        reserved.incrementAndGet();
+                    }
+                } catch (Exception e) {
+                    failed.incrementAndGet();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        start.countDown();
+        assertTrue(done.await(60, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        assertEquals(0, failed.get());
+        assertTrue(reserved.get() <= COPIES);
+        assertEquals(reserved.get(), reservationRepository.count());
+        int escrowed = nodes.stream().mapToInt(node -> node.leased(book.getId())).sum();
+        assertEquals(escrowed, nodes.get(0).escrowed(book.getId()));
+        assertEquals(COPIES, reserved.get() + escrowed + bookRepository.findById(book.getId()).orElseThrow().getQuantityAvailable());
+
+        nodes.forEach(InventoryEscrow::releaseAll);
+        assertEquals(COPIES - reserved.get(), bookRepository.findById(book.getId()).orElseThrow().getQuantityAvailable());
+        assertEquals(0, leaseRepository.count());
+    }
+
+    @Test
+    public void findAllSummaries_ShouldCountOnlyTheReservationsItReturns() {
+        Book book = bookRepository.save(Book.builder().title("Emma").author("Austen").quantityAvailable(1).build());
+        User user = userRepository.save(User.builder().firstname("Jane").lastname("Reader").email("jane@example.com").build());
+        reservationRepository.save(Reservation.builder().book(book).user(user).reservedAt(LocalDateTime.now()).build());
+        reservationRepository.save(Reservation.builder().user(user).reservedAt(LocalDateTime.now()).build());
+
+        Page<ReservationSummary> page = reservationRepository.findAllSummaries(PageRequest.of(0, 1));
+
+        assertEquals(1, page.getContent().size());
+        assertEquals(1, page.getTotalElements());
+        assertEquals(1, page.getTotalPages());
+    }
+
+    @Test
+    public void rebuild_ShouldCountEscrowedCopiesAsAvailable() {
+        Book book = bookRepository.save(Book.builder().title("Launch Day").author("Popular Author").ISBN("9780306406157").quantityAvailable(COPIES).build());
+        InventoryEscrow node = escrowNode("busy");
+        assertTrue(Boolean.TRUE.equals(new TransactionTemplate(transactionManager).execute(status -> node.take(book.getId()))));
+
+        catalogueIndexer.rebuild();
+
+        assertEquals(COPIES - 1, bookService.findByIsbn("9780306406157").orElseThrow().getQuantityAvailable());
+    }
+
+    @Test
+    public void escrow_ShouldReturnCopiesLeasedByANodeThatDied() {
+        Book book = bookRepository.save(Book.builder().title("Launch Day").author("Popular Author").quantityAvailable(COPIES).build());
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        InventoryEscrow crashed = escrowNode("crashed");
+        assertTrue(Boolean.TRUE.equals(transaction.execute(status -> crashed.take(book.getId()))));
+        assertEquals(COPIES - BLOCK_SIZE, bookRepository.findById(book.getId()).orElseThrow().getQuantityAvailable());
+
+        InventoryLease lease = leaseRepository.findAll().get(0);
+        lease.setRenewedAt(LocalDateTime.now().minusHours(1));
+        leaseRepository.save(lease);
+        escrowNode("survivor").releaseIdle();
+
+        assertEquals(COPIES - 1, bookRepository.findById(book.getId()).orElseThrow().getQuantityAvailable());
+        assertEquals(0, leaseRepository.count());
+    }
+
+    private InventoryEscrow escrowNode(String node) {
+        return new InventoryEscrow(bookRepository, leaseRepository, transactionManager, node, true, BLOCK_SIZE, 60000, 300000);
+    }
+
+    @Configuration
+    @AutoConfigurationPackage
+    static class JpaOnly {
+        // The application class scans every component; this test imports only the reservation path.
+
+        @Bean
+        CacheManager cacheManager() {
+            return new ConcurrentMapCacheManager(CacheConfig.BOOK_SEARCHES);
+        }
+    }
+}
@@ -1,8 +1,15 @@
 package com.x00179223.librarybackend;
 
+import com.x00179223.librarybackend.dto.ReservationSummary;
+import com.x00179223.librarybackend.exception.BookUnavailableException;
+import com.x00179223.librarybackend.index.CoReservationIndex;
+import com.x00179223.librarybackend.index.TrendingIndex;
 import com.x00179223.librarybackend.model.Book;
+import com.x00179223.librarybackend.model.Hold;
 import com.x00179223.librarybackend.model.Reservation;
 import com.x00179223.librarybackend.model.User;
+import com.x00179223.librarybackend.repository.HoldRepository;
+import com.x00179223.librarybackend.repository.KeysetRepository;
 import com.x00179223.librarybackend.repository.ReservationRepository;
 import com.x00179223.librarybackend.service.*;
 import jakarta.persistence.EntityNotFoundException;
@@ -13,7 +20,11 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.*;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -40,6 +51,27 @@ public class ReservationServiceImplTest {
     @Mock
     private EmailService emailService;
 
+    @Mock
+    private KeysetRepository keysetRepository;
+
+    @Mock
+    private CoReservationIndex coReservationIndex;
+
+    @Mock
+    private TrendingIndex trendingIndex;
+
+    @Mock
+    private HoldRepository holdRepository;
+
+    @Mock
+    private FineService fineService;
+
+    @Mock
+    private ReservationDeadlines reservationDeadlines;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     @BeforeEach
     public void setUp() {
     }
@@ -53,15 +85,21 @@ public class ReservationServiceImplTest {
 
         when(bookService.findById(bookId)).thenReturn(Optional.of(book));
         when(userService.findById(userId)).thenReturn(Optional.of(user));
-        when(reservationRepository.save(any(Reservation.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        Book taken = Book.builder().id(bookId).title("Test Book").quantityAvailable(4).build();
+        when(bookService.takeCopy(bookId)).thenReturn(Optional.of(taken));
+        when(reservationRepository.save(any(Reservation.class))).thenAnswer(invocation -> saved(invocation.getArgument(0)));
+        when(reservationRepository.findRecentBookIdsByUserId(eq(userId), any(Pageable.class))).thenReturn(List.of(7L, 8L));
 
         Reservation reservation = reservationService.reserveBook(bookId, userId);
 
         Assertions.assertNotNull(reservation);
-        Assertions.assertEquals(book, reservation.getBook());
+        Assertions.assertEquals(taken, reservation.getBook());
         Assertions.assertEquals(user, reservation.getUser());
-        Assertions.assertEquals(4, book.getQuantityAvailable());
-        verify(bookService, times(1)).save(book);
+        Assertions.assertEquals(4, reservation.getBook().getQuantityAvailable());
+        verify(bookService, times(1)).takeCopy(bookId);
+        verify(bookService, never()).save(any(Book.class));
+        verify(coReservationIndex).recorded(bookId, List.of(7L, 8L));
+        verify(trendingIndex).recorded(bookId, reservation.getReservedAt());
     }
 
     @Test
@@ -98,9 +136,75 @@ public class ReservationServiceImplTest {
 
         when(bookService.findById(bookId)).thenReturn(Optional.of(book));
         when(userService.findById(userId)).thenReturn(Optional.of(user));
+        when(bookService.takeCopy(bookId)).thenReturn(Optional.empty());
+        when(holdRepository.save(any(Hold.class))).thenAnswer(invocation -> {
+            Hold hold = invocation.getArgument(0);
+            hold.setId(9L);
+            return hold;
+        });
+        when(holdRepository.countAhead(bookId, 9L)).thenReturn(3L);
 
-        Assertions.assertThrows(IllegalArgumentException.class, () -> reservationService.reserveBook(bookId, userId));
+        BookUnavailableException ex = Assertions.assertThrows(BookUnavailableException.class, () -> reservationService.reserveBook(bookId, userId));
+        assertEquals(9L, ex.getHold().getHoldId());
+        assertEquals(3L, ex.getHold().getPosition());
         verify(bookService, times(0)).save(any(Book.class));
+        verify(reservationRepository, never()).save(any(Reservation.class));
+    }
+
+    @Test
+    public void reserveBook_ShouldReturnExistingHoldWhenAlreadyQueued() {
+        Long bookId = 1L;
+        Long userId = 2L;
+        Book book = Book.builder().id(bookId).title("Test Book").quantityAvailable(0).build();
+        User user = User.builder().id(userId).email("test@example.com").build();
+        Hold hold = Hold.builder().id(9L).book(book).user(user).build();
+
+        when(bookService.findById(bookId)).thenReturn(Optional.of(book));
+        when(userService.findById(userId)).thenReturn(Optional.of(user));
+        when(bookService.takeCopy(bookId)).thenReturn(Optional.empty());
+        when(holdRepository.findByBookIdAndUserId(bookId, userId)).thenReturn(Optional.of(hold));
+        when(holdRepository.countAhead(bookId, 9L)).thenReturn(1L);
+
+        BookUnavailableException ex = Assertions.assertThrows(BookUnavailableException.class, () -> reservationService.reserveBook(bookId, userId));
+        assertEquals(1L, ex.getHold().getPosition());
+        verify(holdRepository, never()).save(any(Hold.class));
+    }
+
+    @Test
+    public void reserveBook_ShouldReportTheWinningHoldWhenAConcurrentRequestQueuedThePatronFirst() {
+        Long bookId = 1L;
+        Long userId = 2L;
+        Book book = Book.builder().id(bookId).title("Test Book").quantityAvailable(0).build();
+        User user = User.builder().id(userId).email("test@example.com").build();
+        Hold winner = Hold.builder().id(9L).book(book).user(user).build();
+
+        when(bookService.findById(bookId)).thenReturn(Optional.of(book));
+        when(userService.findById(userId)).thenReturn(Optional.of(user));
+        when(bookService.takeCopy(bookId)).thenReturn(Optional.empty());
+        when(holdRepository.findByBookIdAndUserId(bookId, userId)).thenReturn(Optional.empty(), Optional.of(winner));
+        when(holdRepository.save(any(Hold.class))).thenThrow(new DataIntegrityViolationException("uk_holds_book_id_user_id"));
+        when(holdRepository.countAhead(bookId, 9L)).thenReturn(2L);
+
+        BookUnavailableException ex = Assertions.assertThrows(BookUnavailableException.class, () -> reservationService.reserveBook(bookId, userId));
+        assertEquals(9L, ex.getHold().getHoldId());
+        assertEquals(2L, ex.getHold().getPosition());
+    }
+
+    @Test
+    public void promoteWaitingHolds_ShouldHandStockedCopiesToWaitingPatrons() {
+        Book book = Book.builder().id(1L).title("Test Book").build();
+        User waiting = User.builder().id(3L).email("waiting@example.com").build();
+        Hold hold = Hold.builder().id(9L).book(book).user(waiting).build();
+
+        when(holdRepository.findBookIdsWithStock()).thenReturn(List.of(1L));
+        when(bookService.takeCopy(1L)).thenReturn(Optional.of(book), Optional.of(book));
+        when(holdRepository.findQueueHead(eq(1L), any(Pageable.class))).thenReturn(List.of(hold), List.of());
+        when(holdRepository.claim(9L)).thenReturn(1);
+        when(reservationRepository.save(any(Reservation.class))).thenAnswer(invocation -> saved(invocation.getArgument(0)));
+
+        assertEquals(1, reservationService.promoteWaitingHolds());
+        verify(reservationRepository).save(any(Reservation.class));
+        verify(bookService).returnCopy(1L);
     }
 
 
@@ -112,14 +216,62 @@ public class ReservationServiceImplTest {
         Reservation reservation = Reservation.builder().id(reservationId).book(book).user(user).build();
 
         when(reservationRepository.findById(reservationId)).thenReturn(Optional.of(reservation));
-        when(bookService.save(book)).thenReturn(book);
+        when(holdRepository.findQueueHead(eq(1L), any(Pageable.class))).thenReturn(List.of());
 
         Reservation cancelledReservation = reservationService.cancelReservation(reservationId);
 
         assertEquals(reservation, cancelledReservation);
-        assertEquals(3, book.getQuantityAvailable());
         verify(reservationRepository).delete(reservation);
-        verify(bookService).save(book);
+        verify(bookService).returnCopy(1L);
+    }
+
+    @Test
+    public void cancelReservation_ShouldHandCopyToHeadOfHoldQueue() {
+        Book book = Book.builder().id(1L).title("Test Book").quantityAvailable(0).build();
+        User waiting = User.builder().id(3L).email("waiting@example.com").build();
+        Reservation reservation = Reservation.builder().id(1L).book(book).user(User.builder().id(2L).build()).build();
+        Hold hold = Hold.builder().id(9L).book(book).user(waiting).build();
+
+        when(reservationRepository.findById(1L)).thenReturn(Optional.of(reservation));
+        when(holdRepository.findQueueHead(eq(1L), any(Pageable.class))).thenReturn(List.of(hold));
+        when(holdRepository.claim(9L)).thenReturn(1);
+        when(reservationRepository.save(any(Reservation.class))).thenAnswer(invocation -> saved(invocation.getArgument(0)));
+
+        reservationService.cancelReservation(1L);
+
+        verify(bookService, never()).returnCopy(anyLong());
+        verify(reservationRepository).save(argThat(promoted -> promoted.getUser() == waiting && promoted.getBook() == book));
+        verify(emailService).notify(eq("waiting@example.com"), eq(Notification.HOLD_READY), eq("Test Book"), anyString());
+    }
+
+    @Test
+    public void reserveBook_ShouldOnlyRecordTheReservationOnceItCommits() {
+        Book book = Book.builder().id(1L).title("Test Book").quantityAvailable(5).build();
+        User user = User.builder().id(2L).email("test@example.com").build();
+        when(bookService.findById(1L)).thenReturn(Optional.of(book));
+        when(userService.findById(2L)).thenReturn(Optional.of(user));
+        when(bookService.takeCopy(1L)).thenReturn(Optional.of(book));
+        when(reservationRepository.save(any(Reservation.class))).thenAnswer(invocation -> saved(invocation.getArgument(0)));
+        when(reservationRepository.findRecentBookIdsByUserId(eq(2L), any(Pageable.class))).thenReturn(List.of());
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            reservationService.reserveBook(1L, 2L);
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+            verify(coReservationIndex, never()).recorded(anyLong(), anyList());
+            verify(trendingIndex, never()).recorded(anyLong(), any(LocalDateTime.class));
+            verify(reservationDeadlines, never()).pickUpBy(anyLong(), any(LocalDateTime.class));
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+            verify(coReservationIndex).recorded(1L, List.of());
+            verify(trendingIndex).recorded(eq(1L), any(LocalDateTime.class));
+            verify(reservationDeadlines).pickUpBy(eq(10L), any(LocalDateTime.class));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
     }
 
     @Test
@@ -225,15 +377,18 @@ public class ReservationServiceImplTest {
         BookService bookService = mock(BookService.class);
         UserService userService = mock(UserService.class);
         EmailService emailService = mock(EmailService.class);
-        ReservationServiceImpl reservationService = new ReservationServiceImpl(reservationRepository, bookService, userService, emailService);
-        List<Reservation> reservations = Collections.singletonList(new Reservation());
-        Page<Reservation> expectedPage = new PageImpl<>(reservations);
+        KeysetRepository keysetRepository = mock(KeysetRepository.class);
+        ReservationServiceImpl reservationService = new ReservationServiceImpl(reservationRepository, bookService, userService, emailService, keysetRepository,
+                mock(CoReservationIndex.class), mock(TrendingIndex.class), mock(HoldRepository.class), mock(FineService.class), mock(ReservationDeadlines.class),
+                mock(PlatformTransactionManager.class));
+        List<ReservationSummary> reservations = Collections.singletonList(new ReservationSummary());
+        Page<ReservationSummary> expectedPage = new PageImpl<>(reservations);
 
-        when(reservationRepository.findAll(any(Pageable.class))).thenReturn(expectedPage);
+        when(reservationRepository.findAllSummaries(any(Pageable.class))).thenReturn(expectedPage);
 
-        Page<Reservation> result = reservationService.findAllReservations(page, size, sortField, sortDirection);
+        Page<ReservationSummary> result = reservationService.findAllReservations(page, size, sortField, sortDirection);
 
-        verify(reservationRepository).findAll(any(Pageable.class));
+        verify(reservationRepository).findAllSummaries(any(Pageable.class));
         assertEquals(expectedPage, result);
     }
 
@@ -299,13 +454,15 @@ public class ReservationServiceImplTest {
                 .build();
 
         when(userService.findById(userId)).thenReturn(Optional.of(user));
-        when(reservationRepository.findReservationsByUserId(userId)).thenReturn(Arrays.asList(reservation1, reservation2));
+        when(reservationRepository.findSummariesByUserId(userId)).thenReturn(Arrays.asList(
+                ReservationSummary.from(reservation1), ReservationSummary.from(reservation2)));
 
-        List<Reservation> reservations = reservationService.findReservationsByUserId(userId);
+        List<ReservationSummary> reservations = reservationService.findReservationsByUserId(userId);
 
         assertEquals(2, reservations.size());
-        assertEquals(reservation1, reservations.get(0));
-        assertEquals(reservation2, reservations.get(1));
+        assertEquals(ReservationSummary.from(reservation1), reservations.get(0));
+        assertEquals("Book 2", reservations.get(1).getBook().getTitle());
+        assertEquals("test@example.com", reservations.get(1).getUser().getEmail());
     }
 
 
@@ -373,6 +530,33 @@ public class ReservationServiceImplTest {
 
         assertThrows(EntityNotFoundException.class, () -> reservationService.findReservationById(reservation.getId()));
     }
+    @Test
+    void expirePickUp_ShouldCancelAndReleaseTheCopyWhenStillUncollected() {
+        LocalDateTime now = LocalDateTime.now();
+        Book book = Book.builder().id(3L).title("Test Book").build();
+        Reservation reservation = Reservation.builder().id(1L).book(book).pickUpBy(now.minusMinutes(1)).build();
+        when(reservationRepository.findById(1L)).thenReturn(Optional.of(reservation));
+        when(reservationRepository.deleteExpiredPickUp(1L, now)).thenReturn(1);
+        when(holdRepository.findQueueHead(eq(3L), any(Pageable.class))).thenReturn(List.of());
+
+        assertTrue(reservationService.expirePickUp(1L, now));
+
+        verify(bookService).returnCopy(3L);
+        verify(reservationDeadlines).cleared(1L);
+    }
+
+    @Test
+    void expirePickUp_ShouldLeaveTheCopyAloneWhenAlreadyCollectedOrExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        Reservation reservation = Reservation.builder().id(1L).book(Book.builder().id(3L).build()).build();
+        when(reservationRepository.findById(1L)).thenReturn(Optional.of(reservation));
+        when(reservationRepository.deleteExpiredPickUp(1L, now)).thenReturn(0);
+
+        assertFalse(reservationService.expirePickUp(1L, now));
+
+        verifyNoInteractions(bookService);
+    }
+
     @Test
     void addFine_ShouldAddFineToUser() {
         Reservation reservation = Reservation.builder()
@@ -389,7 +573,7 @@ public class ReservationServiceImplTest {
         verify(userService, times(1)).addFine(user);
         assertEquals(0.5, user.getFine());
         assertEquals(LocalDate.now(), reservation.getLastFineAddedAt());
-        verify(emailService, times(1)).sendOverdueEmail(user.getEmail(), "Overdue Book Return", "You have been issued a 50c charge for overdue book return.");
+        verify(emailService, times(1)).notify(user.getEmail(), Notification.FINE_ISSUED, "50c", null);
     }
 
     @Test
@@ -408,4 +592,9 @@ public class ReservationServiceImplTest {
             reservationService.addFine(1L, 1L);
         });
     }
-}
\ No newline at end of file
+
+    private static Reservation saved(Reservation reservation) {
+        reservation.setId(10L);
+        return reservation;
+    }
+}
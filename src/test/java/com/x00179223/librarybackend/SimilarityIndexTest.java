@@ -0,0 +1,92 @@
+package com.x00179223.librarybackend;
+
+import com.x00179223.librarybackend.index.SimilarityIndex;
+import com.x00179223.librarybackend.model.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SimilarityIndexTest {
+
+    private SimilarityIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        index = new SimilarityIndex();
+        index.rebuild(List.of(
+                book(1L, "Dune", "Frank Herbert", "Science Fiction"),
+                book(2L, "Dune Messiah", "Frank Herbert", "Science Fiction"),
+                book(3L, "Children of Dune", "Frank Herbert", "Science Fiction"),
+                book(4L, "Foundation", "Isaac Asimov", "Science Fiction"),
+                book(5L, "Emma", "Jane Austen", "Romance")
+        ));
+    }
+
+    @Test
+    public void similar_ShouldRankSharedAuthorAndTitleAboveGenreOnly() {
+        assertEquals(List.of(2L, 3L, 4L), index.similar(1L, 10));
+    }
+
+    @Test
+    public void similar_ShouldExcludeSourceAndRespectLimit() {
+        List<Long> neighbours = index.similar(2L, 1);
+
+        assertEquals(1, neighbours.size());
+        assertFalse(neighbours.contains(2L));
+    }
+
+    @Test
+    public void similar_ShouldReturnNothingWhenNoTermIsShared() {
+        assertTrue(index.similar(5L, 10).isEmpty());
+        assertTrue(index.similar(99L, 10).isEmpty());
+    }
+
+    @Test
+    public void index_ShouldPickUpNewAndUpdatedBooks() {
+        index.index(book(6L, "Persuasion", "Jane Austen", "Romance"));
+        assertEquals(List.of(6L), index.similar(5L, 10));
+
+        index.index(book(6L, "Persuasion", "Someone Else", "Horror"));
+        assertTrue(index.similar(5L, 10).isEmpty());
+    }
+
+    @Test
+    public void index_ShouldLeaveRankingAloneWhenOnlyStockChanged() {
+        Book restocked = book(2L, "Dune Messiah", "Frank Herbert", "Science Fiction");
+        restocked.setQuantityAvailable(4);
+        index.index(restocked);
+
+        assertEquals(List.of(2L, 3L, 4L), index.similar(1L, 10));
+    }
+
+    @Test
+    public void index_ShouldRankANewBookBeforeWeightsAreNextRefreshed() {
+        List<Book> catalogue = new ArrayList<>();
+        for (long id = 100; id < 400; id++) {
+            catalogue.add(book(id, "Volume " + id, "Author " + id, "Reference"));
+        }
+        catalogue.add(book(5L, "Emma", "Jane Austen", "Romance"));
+        index.rebuild(catalogue);
+
+        index.index(book(6L, "Persuasion", "Jane Austen", "Romance"));
+
+        assertEquals(List.of(6L), index.similar(5L, 10));
+        assertEquals(List.of(5L), index.similar(6L, 10));
+    }
+
+    @Test
+    public void remove_ShouldDropBookFromNeighbours() {
+        index.remove(2L);
+
+        assertFalse(index.contains(2L));
+        assertEquals(List.of(3L, 4L), index.similar(1L, 10));
+    }
+
+    private static Book book(Long id, String title, String author, String genre) {
+        return Book.builder().id(id).title(title).author(author).genre(genre).build();
+    }
+}
@@ -0,0 +1,56 @@
+package com.x00179223.librarybackend;
+
+import com.x00179223.librarybackend.index.SpellingDictionary;
+import com.x00179223.librarybackend.model.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SpellingDictionaryTest {
+
+    private SpellingDictionary spellingDictionary;
+
+    @BeforeEach
+    public void setUp() {
+        spellingDictionary = new SpellingDictionary();
+        spellingDictionary.rebuild(List.of(
+                Book.builder().id(1L).title("The Hobbit").author("J.R.R. Tolkien").genre("Fantasy").build(),
+                Book.builder().id(2L).title("The Silmarillion").author("J.R.R. Tolkien").genre("Fantasy").build(),
+                Book.builder().id(3L).title("Hamlet").author("William Shakespeare").genre("Drama").build()
+        ));
+    }
+
+    @Test
+    public void lookup_ShouldCorrectTranspositionsAndTypos() {
+        assertEquals(List.of("tolkien"), spellingDictionary.lookup("tolkein", 3));
+        assertEquals("shakespeare", spellingDictionary.lookup("shakespere", 3).get(0));
+        assertEquals("silmarillion", spellingDictionary.lookup("silmarilion", 3).get(0));
+    }
+
+    @Test
+    public void lookup_ShouldReturnNothingBeyondMaxEditDistance() {
+        assertTrue(spellingDictionary.lookup("xyzzyq", 3).isEmpty());
+    }
+
+    @Test
+    public void suggest_ShouldCorrectEachUnknownToken() {
+        assertEquals("the hobbit", spellingDictionary.suggest("teh hobit", 5).get(0));
+        assertEquals("j r r tolkien", spellingDictionary.suggest("j r r tolkein", 5).get(0));
+    }
+
+    @Test
+    public void suggest_ShouldReturnNothingWhenQueryIsAlreadySpelledCorrectly() {
+        assertTrue(spellingDictionary.suggest("hobbit", 5).isEmpty());
+    }
+
+    @Test
+    public void remove_ShouldForgetTermsNoLongerInCatalogue() {
+        spellingDictionary.remove(3L);
+
+        assertTrue(spellingDictionary.lookup("shakespere", 3).isEmpty());
+        assertEquals(List.of("tolkien"), spellingDictionary.lookup("tolkein", 3));
+    }
+}
@@ -4,8 +4,10 @@ import com.stripe.exception.StripeException;
 import com.stripe.model.Charge;
 import com.x00179223.librarybackend.client.StripeClient;
 import com.x00179223.librarybackend.dto.ChargeResponse;
+import com.x00179223.librarybackend.exception.FineNotCoveredException;
 import com.x00179223.librarybackend.exception.ResourceNotFoundException;
 import com.x00179223.librarybackend.model.User;
+import com.x00179223.librarybackend.service.FineService;
 import com.x00179223.librarybackend.service.UserService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -31,6 +33,9 @@ public class StripeClientTest {
     @Mock
     private UserService userService;
 
+    @Mock
+    private FineService fineService;
+
     @Mock
     private Charge charge;
 
@@ -71,7 +76,7 @@ public class StripeClientTest {
         assertEquals(testChargeResponse.getStatus(), response.getStatus());
 
         verify(userService).findById(userId);
-        verify(userService).addFine(testUser);
+        verify(fineService).settle(userId);
         verifyNoMoreInteractions(userService);
     }
 
@@ -80,6 +85,17 @@ public class StripeClientTest {
         // TODO: Implement this test
     }
 
+    @Test
+    public void testChargeNewCardUnderpayment() {
+        when(userService.findById(1L)).thenReturn(Optional.of(testUser));
+        when(fineService.balance(1L)).thenReturn(12.5);
+
+        FineNotCoveredException exception = assertThrows(FineNotCoveredException.class, () -> stripeClient.chargeNewCard("tok_visa", 10.0, 1L));
+
+        assertEquals(12.5, exception.getBalance());
+        verify(fineService, never()).settle(any());
+    }
+
     @Test
     public void testChargeNewCardUserNotFound() throws Exception {
         String token = "tok_visa";
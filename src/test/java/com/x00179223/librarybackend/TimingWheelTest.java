@@ -0,0 +1,92 @@
+package com.x00179223.librarybackend;
+
+import com.x00179223.librarybackend.service.ReservationDeadlines;
+import com.x00179223.librarybackend.service.TimingWheel;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TimingWheelTest {
+
+    private static final long START = 1_700_000_000_000L;
+
+    @Test
+    public void advance_ShouldFireEachKeyOnTheFirstTickAtOrAfterItsDeadline() {
+        TimingWheel<String> wheel = new TimingWheel<>(1000, 4, START);
+        wheel.schedule("soon", START + 1_500);
+        wheel.schedule("hour", START + 3_600_000);
+        wheel.schedule("week", START + 7L * 24 * 3_600_000);
+
+        assertEquals(List.of(), wheel.advance(START + 1_999));
+        assertEquals(List.of("soon"), wheel.advance(START + 2_000));
+        assertEquals(List.of(), wheel.advance(START + 3_599_999));
+        assertEquals(List.of("hour"), wheel.advance(START + 3_600_000));
+        assertEquals(List.of(), wheel.advance(START + 7L * 24 * 3_600_000 - 1_000));
+        assertEquals(List.of("week"), wheel.advance(START + 7L * 24 * 3_600_000));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void advance_ShouldFireDeadlinesAlreadyPassedOnTheNextAdvance() {
+        TimingWheel<String> wheel = new TimingWheel<>(1000, 4, START);
+        wheel.schedule("late", START - 60_000);
+
+        assertEquals(List.of("late"), wheel.advance(START));
+    }
+
+    @Test
+    public void schedule_ShouldReplaceAnEarlierDeadlineAndCancelShouldDropIt() {
+        TimingWheel<String> wheel = new TimingWheel<>(1000, 4, START);
+        wheel.schedule("moved", START + 5_000);
+        wheel.schedule("moved", START + 90_000);
+        wheel.schedule("cancelled", START + 5_000);
+
+        assertTrue(wheel.cancel("cancelled"));
+        assertEquals(List.of(), wheel.advance(START + 60_000));
+        assertEquals(List.of("moved"), wheel.advance(START + 90_000));
+        assertFalse(wheel.cancel("moved"));
+    }
+
+    @Test
+    public void advance_ShouldKeepDeadlinesBeyondTheTopLevelUntilTheyAreDue() {
+        TimingWheel<String> wheel = new TimingWheel<>(1000, 2, START);
+        long deadline = START + 10_000_000;
+        wheel.schedule("far", deadline);
+
+        assertEquals(List.of(), wheel.advance(deadline - 1_000));
+        assertEquals(List.of("far"), wheel.advance(deadline));
+    }
+
+    @Test
+    public void advance_ShouldFireRandomDeadlinesNeitherEarlyNorLate() {
+        TimingWheel<Integer> wheel = new TimingWheel<>(10, 3, START);
+        Random random = new Random(42);
+        long[] deadlines = new long[500];
+        for (int i = 0; i < deadlines.length; i++) {
+            deadlines[i] = START + 1 + random.nextInt(3_000_000);
+            wheel.schedule(i, deadlines[i]);
+        }
+        List<Integer> fired = new ArrayList<>();
+        for (long now = START; now < START + 3_000_000 + 7_777; now += 7_777) {
+            for (Integer key : wheel.advance(now)) {
+                assertTrue(deadlines[key] <= now, "fired early");
+                assertTrue(deadlines[key] > now - 7_777 - 10, "fired late");
+                fired.add(key);
+            }
+        }
+        assertEquals(deadlines.length, fired.size());
+    }
+
+    @Test
+    public void nextCharge_ShouldFallOnTheNextWholeDayAfterTheDueDate() {
+        LocalDateTime due = LocalDateTime.of(2024, 3, 1, 14, 0);
+
+        assertEquals(due.plusDays(1), ReservationDeadlines.nextCharge(due, due));
+        assertEquals(due.plusDays(3), ReservationDeadlines.nextCharge(due, due.plusDays(2).plusHours(1)));
+    }
+}
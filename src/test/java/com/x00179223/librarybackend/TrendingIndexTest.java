@@ -0,0 +1,77 @@
+package com.x00179223.librarybackend;
+
+import com.x00179223.librarybackend.index.TrendingIndex;
+import com.x00179223.librarybackend.repository.ReservationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class TrendingIndexTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    private ReservationRepository reservationRepository;
+    private TrendingIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        reservationRepository = mock(ReservationRepository.class);
+        index = new TrendingIndex(reservationRepository, 24);
+    }
+
+    @Test
+    public void top_ShouldPreferRecentReservationsOverOlderOnes() {
+        index.recorded(1L, START);
+        index.recorded(1L, START);
+        index.recorded(1L, START);
+        index.recorded(2L, START.plusDays(2));
+
+        // Three reservations two half-lives ago weigh 0.75 of one reservation now.
+        assertEquals(List.of(2L, 1L), index.top(10));
+
+        index.recorded(1L, START.plusDays(2));
+        assertEquals(List.of(1L, 2L), index.top(10));
+    }
+
+    @Test
+    public void top_ShouldRespectLimit() {
+        for (long book = 1; book <= 5; book++) {
+            index.recorded(book, START.plusHours(book));
+        }
+
+        assertEquals(List.of(5L, 4L), index.top(2));
+        assertTrue(index.top(0).isEmpty());
+    }
+
+    @Test
+    public void recorded_ShouldKeepRankingStableAcrossRenormalisationAndDropColdBooks() {
+        index.recorded(1L, START);
+        index.recorded(2L, START.plusDays(30));
+        index.recorded(3L, START.plusDays(60));
+        index.recorded(3L, START.plusDays(60));
+        index.recorded(2L, START.plusDays(60));
+
+        assertEquals(List.of(3L, 2L), index.top(10));
+    }
+
+    @Test
+    public void rebuild_ShouldReplayRecentReservations() {
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{7L, LocalDateTime.now().minusHours(1)});
+        rows.add(new Object[]{8L, LocalDateTime.now().minusDays(3)});
+        rows.add(new Object[]{8L, LocalDateTime.now().minusDays(3)});
+        when(reservationRepository.findBookReservationTimesSince(any())).thenReturn(rows);
+        index.recorded(99L, START);
+
+        index.rebuild();
+
+        assertEquals(List.of(7L, 8L), index.top(10));
+    }
+}
@@ -1,10 +1,13 @@
 package com.x00179223.librarybackend;
 
 import com.x00179223.librarybackend.dto.BookIdUserIdRequest;
+import com.x00179223.librarybackend.dto.KeysetPage;
+import com.x00179223.librarybackend.dto.UserSummary;
 import com.x00179223.librarybackend.dto.UserUpdateRequest;
 import com.x00179223.librarybackend.exception.ResourceNotFoundException;
 import com.x00179223.librarybackend.model.Book;
 import com.x00179223.librarybackend.model.User;
+import com.x00179223.librarybackend.repository.KeysetRepository;
 import com.x00179223.librarybackend.repository.UserRepository;
 import com.x00179223.librarybackend.service.BookService;
 import com.x00179223.librarybackend.service.UserServiceImpl;
@@ -35,11 +38,29 @@ public class UserServiceImplTest {
     @Mock
     private BookService bookService;
 
+    @Mock
+    private KeysetRepository keysetRepository;
+
     @BeforeEach
     public void setUp() {
         MockitoAnnotations.openMocks(this);
     }
 
+    @Test
+    public void findAllAfter_ShouldPageByWhitelistedKeyset() {
+        User user = User.builder().id(1L).lastname("Doe").email("jane@example.com").password("secret").build();
+        KeysetPage<User> expected = KeysetPage.<User>builder().content(List.of(user)).size(10).hasNext(true).next("next").build();
+        when(keysetRepository.findPage(eq(User.class), anySet(), eq("lastname"), eq("asc"), eq("token"), eq(10))).thenReturn(expected);
+
+        KeysetPage<UserSummary> result = userService.findAllAfter("token", 10, "lastname", "asc");
+
+        assertEquals(List.of(UserSummary.from(user)), result.getContent());
+        assertTrue(result.isHasNext());
+        assertEquals("next", result.getNext());
+        verify(keysetRepository).findPage(eq(User.class), argThat(fields -> fields.contains("lastname") && !fields.contains("password")),
+                eq("lastname"), eq("asc"), eq("token"), eq(10));
+    }
+
     @Test
     public void findByEmail_ShouldReturnUserWhenEmailExists() {
         String testEmail = "test@example.com";
@@ -182,16 +203,16 @@ public class UserServiceImplTest {
         String sortField = "email";
         String sortDirection = "asc";
         PageRequest pageable = PageRequest.of(page, size, Sort.by(sortField));
-        Page<User> userPage = new PageImpl<>(users, pageable, users.size());
+        Page<UserSummary> userPage = new PageImpl<>(users.stream().map(UserSummary::from).toList(), pageable, users.size());
 
-        when(userRepository.findAll(pageable)).thenReturn(userPage);
+        when(userRepository.findAllSummaries(pageable)).thenReturn(userPage);
 
-        Page<User> result = userService.findAll(page, size, sortField, sortDirection);
+        Page<UserSummary> result = userService.findAll(page, size, sortField, sortDirection);
 
         assertNotNull(result);
         assertEquals(userPage, result);
         assertEquals(2, result.getContent().size());
-        verify(userRepository, times(1)).findAll(pageable);
+        verify(userRepository, times(1)).findAllSummaries(pageable);
     }
 
     @Test